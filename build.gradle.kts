@@ -26,6 +26,7 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-validation")
 	implementation("jakarta.validation:jakarta.validation-api:3.1.0")
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("io.projectreactor.netty:reactor-netty-http")
 	implementation("org.flywaydb:flyway-core")
 	implementation("org.flywaydb:flyway-database-postgresql")
@@ -44,6 +45,9 @@ dependencies {
 	implementation("org.apache.tika:tika-core:2.9.2")
 	implementation("org.apache.tika:tika-parsers-standard-package:2.9.2")
 
+	// Pure-Java BPE tokenizer with the OpenAI encodings (o200k_base, cl100k_base)
+	implementation("com.knuddels:jtokkit:1.1.0")
+
 	// Apache Commons Text for Jaro-Winkler similarity
 	implementation("org.apache.commons:commons-text:1.12.0")
 
@@ -69,3 +73,25 @@ dependencyManagement {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("benchmark")
+	}
+}
+
+// Synthetic throughput/latency benchmarks (JUnit tests tagged "benchmark"), not part of the regular build
+tasks.register<Test>("benchmark") {
+	description = "Runs benchmarks tagged 'benchmark'."
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("benchmark")
+	}
+	jvmArgs("-Djdk.tracePinnedThreads=short")
+	testLogging {
+		showStandardStreams = true
+	}
+	outputs.upToDateWhen { false }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -16,7 +17,9 @@ import ru.hh.aiinterviewer.exception.FileTypeNotSupportedException;
 import ru.hh.aiinterviewer.exception.InvalidStatusTransitionException;
 import ru.hh.aiinterviewer.exception.NotFoundException;
 import ru.hh.aiinterviewer.exception.SessionCompletedException;
+import ru.hh.aiinterviewer.exception.StreamNotResumableException;
 import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
 import ru.hh.aiinterviewer.exception.VacancyNotParsableException;
 
 @ControllerAdvice
@@ -64,6 +67,24 @@ public class GlobalExceptionHandler {
             .build());
   }
 
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<ApiError> handleConcurrentModification(OptimisticLockingFailureException ex) {
+    return ResponseEntity.status(HttpStatus.CONFLICT)
+        .body(ApiError.builder()
+            .code(ApiErrorCode.CONCURRENT_MODIFICATION.getCode())
+            .message("Session was modified by a concurrent request, retry the message")
+            .build());
+  }
+
+  @ExceptionHandler(StreamNotResumableException.class)
+  public ResponseEntity<ApiError> handleStreamNotResumable(StreamNotResumableException ex) {
+    return ResponseEntity.status(HttpStatus.CONFLICT)
+        .body(ApiError.builder()
+            .code(ApiErrorCode.STREAM_NOT_RESUMABLE.getCode())
+            .message(ex.getMessage())
+            .build());
+  }
+
   @ExceptionHandler(SessionCompletedException.class)
   public ResponseEntity<ApiError> handleSessionCompleted(SessionCompletedException ex) {
     return ResponseEntity.status(HttpStatus.GONE)
@@ -109,6 +130,15 @@ public class GlobalExceptionHandler {
             .build());
   }
 
+  @ExceptionHandler(UpstreamBusyException.class)
+  public ResponseEntity<ApiError> handleUpstreamBusy(UpstreamBusyException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body(ApiError.builder()
+            .code(ApiErrorCode.UPSTREAM_BUSY.getCode())
+            .message(ex.getMessage())
+            .build());
+  }
+
   @ExceptionHandler(IllegalStateException.class)
   public ResponseEntity<ApiError> handleIllegalState(IllegalStateException ex) {
     String message = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
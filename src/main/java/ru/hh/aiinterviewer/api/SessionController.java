@@ -1,27 +1,36 @@
 package ru.hh.aiinterviewer.api;
 
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 import ru.hh.aiinterviewer.api.dto.CreateSessionRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageResponseDto;
 import ru.hh.aiinterviewer.api.dto.SessionResponseDto;
 import ru.hh.aiinterviewer.api.dto.SessionStatusResponseDto;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
 import ru.hh.aiinterviewer.domain.model.InterviewFormat;
 import ru.hh.aiinterviewer.domain.model.SessionMode;
+import ru.hh.aiinterviewer.exception.FileTooLargeException;
 import ru.hh.aiinterviewer.service.InterviewQueryService;
 import ru.hh.aiinterviewer.service.InterviewService;
 import ru.hh.aiinterviewer.service.VacancyService;
@@ -34,12 +43,11 @@ public class SessionController {
   private final InterviewService interviewService;
   private final InterviewQueryService interviewQueryService;
   private final VacancyService vacancyService;
+  private final ApplicationProperties applicationProperties;
 
   @PostMapping
   public ResponseEntity<SessionResponseDto> create(@Valid @RequestBody CreateSessionRequestDto request) {
-    UUID sessionId = interviewService.createSession(request);
-    SessionResponseDto response = interviewQueryService.getHistory(sessionId);
-    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    return createSession(request);
   }
 
   @PostMapping(value = "/form", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -51,6 +59,8 @@ public class SessionController {
       @RequestPart(value = "roleName", required = false) String roleName,
       @RequestPart(value = "numQuestions", required = false) Integer numQuestions,
       @RequestPart(value = "planPreferences", required = false) String planPreferences,
+      @RequestPart(value = "freshPlan", required = false) Boolean freshPlan,
+      @RequestPart(value = "async", required = false) Boolean async,
       @RequestPart(value = "interviewFormat", required = false) String interviewFormat,
       @RequestPart(value = "communicationStylePreset", required = false) String communicationStylePreset,
       @RequestPart(value = "communicationStyleFreeform", required = false) String communicationStyleFreeform
@@ -62,6 +72,8 @@ public class SessionController {
         .roleName(roleName)
         .numQuestions(numQuestions)
         .planPreferences(planPreferences)
+        .freshPlan(freshPlan)
+        .async(async)
         .interviewFormat(interviewFormat == null ? null : InterviewFormat.fromValue(interviewFormat))
         .communicationStylePreset(communicationStylePreset)
         .communicationStyleFreeform(communicationStyleFreeform);
@@ -72,11 +84,16 @@ public class SessionController {
       builder.vacancyText(extracted);
     }
 
-    CreateSessionRequestDto request = builder.build();
+    return createSession(builder.build());
+  }
 
-    UUID sessionId = interviewService.createSession(request);
-    SessionResponseDto response = interviewQueryService.getHistory(sessionId);
-    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+  @GetMapping(value = "/{sessionId}/plan/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<String>> streamPlan(
+      @PathVariable("sessionId") String sessionId,
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+  ) {
+    UUID id = UUID.fromString(sessionId);
+    return interviewService.streamPlan(id, lastEventId);
   }
 
   @PostMapping("/{sessionId}/messages")
@@ -90,14 +107,44 @@ public class SessionController {
   }
 
   @PostMapping(value = "/{sessionId}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public SseEmitter addMessageStream(
+  public Flux<ServerSentEvent<String>> addMessageStream(
       @PathVariable("sessionId") String sessionId,
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
       @Valid @RequestBody MessageRequestDto request
   ) {
     UUID id = UUID.fromString(sessionId);
+    // A reconnect repeats the original request, the message is not sent to the model again
+    if (lastEventId != null && !lastEventId.isBlank()) {
+      return interviewService.resumeMessageStream(id, lastEventId);
+    }
     return interviewService.processMessageStream(id, request);
   }
 
+  @PostMapping(value = "/{sessionId}/messages/audio",
+      consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE, "audio/*"})
+  public ResponseEntity<MessageResponseDto> addAudioMessage(
+      @PathVariable("sessionId") String sessionId,
+      HttpServletRequest request
+  ) throws IOException, ServletException {
+    UUID id = UUID.fromString(sessionId);
+    try (InputStream audio = openAudio(request)) {
+      return ResponseEntity.ok(interviewService.processAudioMessage(id, audio));
+    }
+  }
+
+  @PostMapping(value = "/{sessionId}/messages/audio/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE,
+      consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE, "audio/*"})
+  public Flux<ServerSentEvent<String>> addAudioMessageStream(
+      @PathVariable("sessionId") String sessionId,
+      HttpServletRequest request
+  ) throws IOException, ServletException {
+    UUID id = UUID.fromString(sessionId);
+    // The upload is fully read (transcribed) before the answer stream is returned
+    try (InputStream audio = openAudio(request)) {
+      return interviewService.processAudioMessageStream(id, audio);
+    }
+  }
+
   @GetMapping("/{sessionId}")
   public ResponseEntity<SessionResponseDto> getSession(@PathVariable("sessionId") String sessionId) {
     UUID id = UUID.fromString(sessionId);
@@ -111,4 +158,33 @@ public class SessionController {
     SessionStatusResponseDto response = interviewQueryService.getStatus(id);
     return ResponseEntity.ok(response);
   }
+
+  private ResponseEntity<SessionResponseDto> createSession(CreateSessionRequestDto request) {
+    if (Boolean.TRUE.equals(request.getAsync())) {
+      UUID sessionId = interviewService.createSessionAsync(request);
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(interviewQueryService.getHistory(sessionId));
+    }
+    UUID sessionId = interviewService.createSession(request);
+    SessionResponseDto response = interviewQueryService.getHistory(sessionId);
+    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+  }
+
+  /**
+   * Audio comes either as the raw request body or as the {@code audio} part of a multipart form,
+   * in both cases it is read as a stream rather than bound to a byte array.
+   */
+  private InputStream openAudio(HttpServletRequest request) throws IOException, ServletException {
+    if (request.getContentLengthLong() > applicationProperties.getMaxAudioSizeBytes()) {
+      throw new FileTooLargeException("Audio file too large");
+    }
+    String contentType = request.getContentType();
+    if (contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+      Part part = request.getPart("audio");
+      if (part == null) {
+        throw new IllegalArgumentException("audio part is required");
+      }
+      return part.getInputStream();
+    }
+    return request.getInputStream();
+  }
 }
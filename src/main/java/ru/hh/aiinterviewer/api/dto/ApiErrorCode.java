@@ -13,8 +13,11 @@ public enum ApiErrorCode {
   UNSUPPORTED_AUDIO_FORMAT("UNSUPPORTED_AUDIO_FORMAT"),
   INVALID_STATUS_TRANSITION("INVALID_STATUS_TRANSITION"),
   SESSION_COMPLETED("SESSION_COMPLETED"),
+  CONCURRENT_MODIFICATION("CONCURRENT_MODIFICATION"),
+  STREAM_NOT_RESUMABLE("STREAM_NOT_RESUMABLE"),
   NOT_FOUND("NOT_FOUND"),
   UNAUTHORIZED("UNAUTHORIZED"),
+  UPSTREAM_BUSY("UPSTREAM_BUSY"),
   INTERNAL_ERROR("INTERNAL_ERROR");
 
   @Getter
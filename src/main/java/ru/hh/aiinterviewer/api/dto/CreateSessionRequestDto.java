@@ -28,6 +28,12 @@ public class CreateSessionRequestDto {
 
   private String planPreferences;
 
+  // Generate a new plan even if one for the same vacancy and parameters is cached
+  private Boolean freshPlan;
+
+  // Return right away with status=planning and generate the plan in the background
+  private Boolean async;
+
   private InterviewFormat interviewFormat;
 
   private String communicationStylePreset;
@@ -14,6 +14,6 @@ public class MessageRequestDto {
   // Text message content (required when type=text)
   private String message;
 
-  // Audio payload (base64-encoded) (required when type=audio). Only WAV supported.
+  // Audio payload (base64-encoded) (required when type=audio). WAV, OGG/Opus, WebM, M4A/AAC or FLAC.
   private String audioBase64;
 }
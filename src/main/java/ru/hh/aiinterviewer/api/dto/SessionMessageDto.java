@@ -14,4 +14,5 @@ public class SessionMessageDto {
   @NotBlank
   private String content;
   private OffsetDateTime createdAt;
+  private boolean interrupted;
 }
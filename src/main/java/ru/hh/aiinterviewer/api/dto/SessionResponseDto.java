@@ -21,7 +21,10 @@ public class SessionResponseDto {
   private String communicationStylePreset;
   private String communicationStyleFreeform;
   private String planPreferences;
+  private Integer currentQuestion;
+  private Integer totalQuestions;
   private OffsetDateTime startedAt;
   private OffsetDateTime endedAt;
+  private TokenUsageDto tokenUsage;
   private List<SessionMessageDto> messages;
 }
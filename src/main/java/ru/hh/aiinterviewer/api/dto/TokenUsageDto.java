@@ -0,0 +1,13 @@
+package ru.hh.aiinterviewer.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TokenUsageDto {
+
+  private long promptTokens;
+  private long completionTokens;
+  private long cachedTokens;
+}
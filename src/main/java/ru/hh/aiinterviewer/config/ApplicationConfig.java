@@ -1,5 +1,8 @@
 package ru.hh.aiinterviewer.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -9,38 +12,174 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.hh.aiinterviewer.domain.repository.ConversationSummaryRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.Interaction;
+import ru.hh.aiinterviewer.llm.PromptBudgetAdvisor;
+import ru.hh.aiinterviewer.llm.PromptCacheAdvisor;
 import ru.hh.aiinterviewer.llm.SessionChatMemory;
+import ru.hh.aiinterviewer.llm.TierMetricsAdvisor;
+import ru.hh.aiinterviewer.llm.UpstreamLimitAdvisor;
+import ru.hh.aiinterviewer.service.ConversationSummarizer;
+import ru.hh.aiinterviewer.service.TokenAccounting;
+import ru.hh.aiinterviewer.service.UpstreamLimiters;
 
 @Configuration
+@EnableScheduling
 @EnableConfigurationProperties({ApplicationProperties.class, AuthProperties.class})
 public class ApplicationConfig {
 
   @Autowired
-  private SessionRepository sessionRepository;
+  private SessionMessageRepository sessionMessageRepository;
+
+  @Autowired
+  private ApplicationProperties applicationProperties;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private UpstreamLimiters upstreamLimiters;
+
+  @Autowired
+  private ConversationSummaryRepository conversationSummaryRepository;
+
+  @Autowired
+  private TokenAccounting tokenAccounting;
 
   @Bean
-  public ChatClient interviewerChatClient(ChatClient.Builder builder) {
-    return builder.defaultAdvisors(
-            getSessionHistoryAdvisor(0),
-            SimpleLoggerAdvisor.builder().order(1).build()
+  public ChatClient interviewerChatClient(ChatClient.Builder builder, ConversationSummarizer conversationSummarizer) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.INTERVIEW))
+        .defaultAdvisors(
+            getSessionHistoryAdvisor(0, conversationSummarizer),
+            new PromptBudgetAdvisor(applicationProperties.getLlmMaxPromptTokens(), meterRegistry, 1),
+            new PromptCacheAdvisor(meterRegistry, tokenAccounting, 2),
+            SimpleLoggerAdvisor.builder().order(3).build(),
+            new UpstreamLimitAdvisor(upstreamLimiters),
+            new TierMetricsAdvisor(Interaction.INTERVIEW, meterRegistry)
         )
         .build();
   }
 
   @Bean
   public ChatClient prepareInterviewPlanChatClient(ChatClient.Builder builder) {
-    return builder.defaultAdvisors().build();
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.PLAN))
+        .defaultAdvisors(new UpstreamLimitAdvisor(upstreamLimiters), new TierMetricsAdvisor(Interaction.PLAN, meterRegistry))
+        .build();
+  }
+
+  /**
+   * Plan corrections: mostly a short patch of the question list, see {@code PlanReviser}.
+   */
+  @Bean
+  public ChatClient revisePlanChatClient(ChatClient.Builder builder) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.REVISE))
+        .defaultAdvisors(new UpstreamLimitAdvisor(upstreamLimiters), new TierMetricsAdvisor(Interaction.REVISE, meterRegistry))
+        .build();
+  }
+
+  /**
+   * Same model requests as {@link #interviewerChatClient} but without the history advisor: speculative turns must
+   * not be stored as session messages until they are used. They also warm the provider cache for the session prefix.
+   */
+  @Bean
+  public ChatClient openingTurnChatClient(ChatClient.Builder builder) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.INTERVIEW))
+        .defaultAdvisors(
+            new PromptCacheAdvisor(meterRegistry, tokenAccounting, 1),
+            SimpleLoggerAdvisor.builder().order(2).build(),
+            new UpstreamLimitAdvisor(upstreamLimiters),
+            new TierMetricsAdvisor(Interaction.INTERVIEW, meterRegistry)
+        )
+        .build();
+  }
+
+  /**
+   * Transcribes segments of long audio answers; the pool size caps segments in flight across all requests.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService transcriptionExecutor() {
+    return Executors.newFixedThreadPool(applicationProperties.getTranscriptionChunkParallelism(),
+        Thread.ofVirtual().name("transcription-", 0).factory());
+  }
+
+  /**
+   * Background plan generation for sessions created asynchronously; concurrency is bounded by the LLM limiter.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService planningExecutor() {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("planning-", 0).factory());
+  }
+
+  /**
+   * Compacts old interview turns into rolling summaries; a cheaper model is enough for that.
+   */
+  @Bean
+  public ChatClient conversationSummaryChatClient(ChatClient.Builder builder) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.SUMMARY))
+        .defaultAdvisors(new UpstreamLimitAdvisor(upstreamLimiters), new TierMetricsAdvisor(Interaction.SUMMARY, meterRegistry))
+        .build();
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService summarizationExecutor() {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("summarization-", 0).factory());
+  }
+
+  /**
+   * Scores candidate answers in the background with structured output; a cheaper model is enough for that too.
+   */
+  @Bean
+  public ChatClient answerAssessmentChatClient(ChatClient.Builder builder) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.ASSESSMENT))
+        .defaultAdvisors(new UpstreamLimitAdvisor(upstreamLimiters), new TierMetricsAdvisor(Interaction.ASSESSMENT, meterRegistry))
+        .build();
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService assessmentExecutor() {
+    return Executors.newFixedThreadPool(applicationProperties.getAssessmentConcurrency(),
+        Thread.ofVirtual().name("assessment-", 0).factory());
+  }
+
+  /**
+   * Map step of the final feedback: answers left unscored are scored per plan question, at most this many at once.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService feedbackExecutor() {
+    return Executors.newFixedThreadPool(applicationProperties.getFeedbackSegmentConcurrency(),
+        Thread.ofVirtual().name("feedback-", 0).factory());
+  }
+
+  /**
+   * Final feedback assembled from answer assessments, without the history.
+   */
+  @Bean
+  public ChatClient feedbackChatClient(ChatClient.Builder builder) {
+    return builder.defaultOptions(ModelTiers.options(applicationProperties, Interaction.FEEDBACK))
+        .defaultAdvisors(
+            new PromptCacheAdvisor(meterRegistry, tokenAccounting, 1),
+            SimpleLoggerAdvisor.builder().order(2).build(),
+            new UpstreamLimitAdvisor(upstreamLimiters),
+            new TierMetricsAdvisor(Interaction.FEEDBACK, meterRegistry)
+        )
+        .build();
   }
 
-  private Advisor getSessionHistoryAdvisor(int order) {
-    return MessageChatMemoryAdvisor.builder(getSessionChatMemory()).order(order).build();
+  private Advisor getSessionHistoryAdvisor(int order, ConversationSummarizer conversationSummarizer) {
+    return MessageChatMemoryAdvisor.builder(getSessionChatMemory(conversationSummarizer)).order(order).build();
   }
 
-  private ChatMemory getSessionChatMemory() {
+  private ChatMemory getSessionChatMemory(ConversationSummarizer conversationSummarizer) {
     return SessionChatMemory.builder()
-        .maxMessages(8)
-        .sessionRepository(sessionRepository)
+        .maxMessages(applicationProperties.getChatMemoryMaxMessages())
+        .maxTokens(applicationProperties.getChatMemoryMaxTokens())
+        .sessionMessageRepository(sessionMessageRepository)
+        .conversationSummaryRepository(conversationSummaryRepository)
+        .conversationSummarizer(conversationSummarizer)
+        .tokenAccounting(tokenAccounting)
+        .meterRegistry(meterRegistry)
         .build();
   }
 }
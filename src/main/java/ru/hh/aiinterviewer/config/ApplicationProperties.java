@@ -1,10 +1,18 @@
 package ru.hh.aiinterviewer.config;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
+import ru.hh.aiinterviewer.llm.Interaction;
 
 @ConfigurationProperties(prefix = "app")
 @Validated
@@ -24,6 +32,168 @@ public class ApplicationProperties {
   @Max(192000)
   private int maxAudioSampleRate = 48000;
 
+  @Positive
+  private int chatMemoryMaxMessages = 8;
+
+  @Positive
+  private int llmMaxConcurrency = 64;
+
+  @Positive
+  private int transcriptionMaxConcurrency = 16;
+
+  @Positive
+  private int vacancyMaxConcurrency = 16;
+
+  @Positive
+  private long upstreamAcquireTimeoutMs = 30_000;
+
+  @Positive
+  private int streamReplayMaxChunks = 4096;
+
+  @Positive
+  private int streamReplayMaxStreams = 2000;
+
+  @Positive
+  private long streamReplayTtlMs = 600_000;
+
+  @PositiveOrZero
+  private long streamResumeGraceMs = 30_000;
+
+  @PositiveOrZero
+  private long streamCoalesceWindowMs = 20;
+
+  @Positive
+  private int streamCoalesceMaxBytes = 64;
+
+  @Positive
+  private long audioSpoolMemoryThresholdBytes = 1024 * 1024;
+
+  @Positive
+  private long maxAudioDurationSeconds = 900;
+
+  private boolean audioPreprocessingEnabled = true;
+
+  @Positive
+  private int audioTargetSampleRate = 16000;
+
+  private double audioVadThresholdDbfs = -45;
+
+  @PositiveOrZero
+  private int audioVadPaddingMs = 300;
+
+  private boolean transcriptionChunkingEnabled = true;
+
+  @Positive
+  private int transcriptionChunkMinSeconds = 60;
+
+  @Positive
+  private int transcriptionChunkSeconds = 30;
+
+  @PositiveOrZero
+  private int transcriptionChunkOverlapMs = 500;
+
+  @Positive
+  private int transcriptionChunkParallelism = 8;
+
+  private boolean transcriptionCacheEnabled = true;
+
+  @Positive
+  private long transcriptionCacheMaxBytes = 16 * 1024 * 1024;
+
+  @PositiveOrZero
+  private long transcriptionCacheTtlMs = 7 * 24 * 3600 * 1000L;
+
+  private boolean transcriptionCacheDbEnabled = true;
+
+  private boolean planCacheEnabled = true;
+
+  @Positive
+  private int planCacheMaxEntries = 1000;
+
+  @PositiveOrZero
+  private long planCacheTtlMs = 24 * 3600 * 1000L;
+
+  private boolean planCacheDbEnabled = true;
+
+  private boolean planPoolEnabled = true;
+
+  @Positive
+  private int planPoolTopRoles = 10;
+
+  private List<Integer> planPoolQuestionCounts = List.of(5);
+
+  @Positive
+  private int planPoolDepth = 2;
+
+  @Positive
+  private long planPoolRefillIntervalMs = 60_000;
+
+  @Positive
+  private int planPoolMaxGenerationsPerMinute = 6;
+
+  @Positive
+  private int planPoolConcurrency = 2;
+
+  private boolean openingSpeculationEnabled = true;
+
+  @Min(1)
+  private int openingSpeculationMaxEntries = 1000;
+
+  @Min(0)
+  private long openingSpeculationTtlMs = 3_600_000;
+
+  @Positive
+  private long openingSpeculationAwaitMs = 10_000;
+
+  @Positive
+  private int chatMemoryMaxTokens = 3000;
+
+  private boolean chatSummaryEnabled = true;
+
+  @Min(1)
+  private int chatSummaryKeepMessages = 4;
+
+  @Positive
+  private int llmMaxPromptTokens = 16000;
+
+  @Positive
+  private int vacancyPageMaxTokens = 1500;
+
+  @Positive
+  private int vacancyFileMaxTokens = 4000;
+
+  private boolean assessmentEnabled = true;
+
+  @Positive
+  private int assessmentConcurrency = 4;
+
+  @PositiveOrZero
+  private long assessmentAwaitMs = 5_000;
+
+  private boolean feedbackMapReduceEnabled = true;
+
+  @Min(1)
+  private int feedbackSegmentConcurrency = 4;
+
+  private boolean planPatchEnabled = true;
+
+  // Calls that do not need the flagship model run on a cheaper one unless configured otherwise
+  @Valid
+  private Map<Interaction, ModelProfile> models = new EnumMap<>(Map.of(
+      Interaction.REVISE, new ModelProfile("gpt-4o-mini"),
+      Interaction.FEEDBACK, new ModelProfile("gpt-4o-mini"),
+      Interaction.SUMMARY, new ModelProfile("gpt-4o-mini"),
+      Interaction.ASSESSMENT, new ModelProfile("gpt-4o-mini")));
+
+  private boolean llmBalancerEnabled = false;
+
+  // A stream without a first token after this long is raced against another endpoint; 0 disables hedging
+  @PositiveOrZero
+  private long llmHedgeDelayMs = 2_000;
+
+  @Valid
+  private List<LlmEndpoint> llmEndpoints = new ArrayList<>();
+
   public long getMaxFileSizeBytes() {
     return maxFileSizeBytes;
   }
@@ -55,4 +225,553 @@ public class ApplicationProperties {
   public void setMaxAudioSampleRate(int maxAudioSampleRate) {
     this.maxAudioSampleRate = maxAudioSampleRate;
   }
+
+  public int getChatMemoryMaxMessages() {
+    return chatMemoryMaxMessages;
+  }
+
+  public void setChatMemoryMaxMessages(int chatMemoryMaxMessages) {
+    this.chatMemoryMaxMessages = chatMemoryMaxMessages;
+  }
+
+  public int getLlmMaxConcurrency() {
+    return llmMaxConcurrency;
+  }
+
+  public void setLlmMaxConcurrency(int llmMaxConcurrency) {
+    this.llmMaxConcurrency = llmMaxConcurrency;
+  }
+
+  public int getTranscriptionMaxConcurrency() {
+    return transcriptionMaxConcurrency;
+  }
+
+  public void setTranscriptionMaxConcurrency(int transcriptionMaxConcurrency) {
+    this.transcriptionMaxConcurrency = transcriptionMaxConcurrency;
+  }
+
+  public int getVacancyMaxConcurrency() {
+    return vacancyMaxConcurrency;
+  }
+
+  public void setVacancyMaxConcurrency(int vacancyMaxConcurrency) {
+    this.vacancyMaxConcurrency = vacancyMaxConcurrency;
+  }
+
+  public long getUpstreamAcquireTimeoutMs() {
+    return upstreamAcquireTimeoutMs;
+  }
+
+  public void setUpstreamAcquireTimeoutMs(long upstreamAcquireTimeoutMs) {
+    this.upstreamAcquireTimeoutMs = upstreamAcquireTimeoutMs;
+  }
+
+  public int getStreamReplayMaxChunks() {
+    return streamReplayMaxChunks;
+  }
+
+  public void setStreamReplayMaxChunks(int streamReplayMaxChunks) {
+    this.streamReplayMaxChunks = streamReplayMaxChunks;
+  }
+
+  public int getStreamReplayMaxStreams() {
+    return streamReplayMaxStreams;
+  }
+
+  public void setStreamReplayMaxStreams(int streamReplayMaxStreams) {
+    this.streamReplayMaxStreams = streamReplayMaxStreams;
+  }
+
+  public long getStreamReplayTtlMs() {
+    return streamReplayTtlMs;
+  }
+
+  public void setStreamReplayTtlMs(long streamReplayTtlMs) {
+    this.streamReplayTtlMs = streamReplayTtlMs;
+  }
+
+  public long getStreamResumeGraceMs() {
+    return streamResumeGraceMs;
+  }
+
+  public void setStreamResumeGraceMs(long streamResumeGraceMs) {
+    this.streamResumeGraceMs = streamResumeGraceMs;
+  }
+
+  public long getStreamCoalesceWindowMs() {
+    return streamCoalesceWindowMs;
+  }
+
+  public void setStreamCoalesceWindowMs(long streamCoalesceWindowMs) {
+    this.streamCoalesceWindowMs = streamCoalesceWindowMs;
+  }
+
+  public int getStreamCoalesceMaxBytes() {
+    return streamCoalesceMaxBytes;
+  }
+
+  public void setStreamCoalesceMaxBytes(int streamCoalesceMaxBytes) {
+    this.streamCoalesceMaxBytes = streamCoalesceMaxBytes;
+  }
+
+  public long getAudioSpoolMemoryThresholdBytes() {
+    return audioSpoolMemoryThresholdBytes;
+  }
+
+  public void setAudioSpoolMemoryThresholdBytes(long audioSpoolMemoryThresholdBytes) {
+    this.audioSpoolMemoryThresholdBytes = audioSpoolMemoryThresholdBytes;
+  }
+
+  public long getMaxAudioDurationSeconds() {
+    return maxAudioDurationSeconds;
+  }
+
+  public void setMaxAudioDurationSeconds(long maxAudioDurationSeconds) {
+    this.maxAudioDurationSeconds = maxAudioDurationSeconds;
+  }
+
+  public boolean isAudioPreprocessingEnabled() {
+    return audioPreprocessingEnabled;
+  }
+
+  public void setAudioPreprocessingEnabled(boolean audioPreprocessingEnabled) {
+    this.audioPreprocessingEnabled = audioPreprocessingEnabled;
+  }
+
+  public int getAudioTargetSampleRate() {
+    return audioTargetSampleRate;
+  }
+
+  public void setAudioTargetSampleRate(int audioTargetSampleRate) {
+    this.audioTargetSampleRate = audioTargetSampleRate;
+  }
+
+  public double getAudioVadThresholdDbfs() {
+    return audioVadThresholdDbfs;
+  }
+
+  public void setAudioVadThresholdDbfs(double audioVadThresholdDbfs) {
+    this.audioVadThresholdDbfs = audioVadThresholdDbfs;
+  }
+
+  public int getAudioVadPaddingMs() {
+    return audioVadPaddingMs;
+  }
+
+  public void setAudioVadPaddingMs(int audioVadPaddingMs) {
+    this.audioVadPaddingMs = audioVadPaddingMs;
+  }
+
+  public boolean isTranscriptionChunkingEnabled() {
+    return transcriptionChunkingEnabled;
+  }
+
+  public void setTranscriptionChunkingEnabled(boolean transcriptionChunkingEnabled) {
+    this.transcriptionChunkingEnabled = transcriptionChunkingEnabled;
+  }
+
+  public int getTranscriptionChunkMinSeconds() {
+    return transcriptionChunkMinSeconds;
+  }
+
+  public void setTranscriptionChunkMinSeconds(int transcriptionChunkMinSeconds) {
+    this.transcriptionChunkMinSeconds = transcriptionChunkMinSeconds;
+  }
+
+  public int getTranscriptionChunkSeconds() {
+    return transcriptionChunkSeconds;
+  }
+
+  public void setTranscriptionChunkSeconds(int transcriptionChunkSeconds) {
+    this.transcriptionChunkSeconds = transcriptionChunkSeconds;
+  }
+
+  public int getTranscriptionChunkOverlapMs() {
+    return transcriptionChunkOverlapMs;
+  }
+
+  public void setTranscriptionChunkOverlapMs(int transcriptionChunkOverlapMs) {
+    this.transcriptionChunkOverlapMs = transcriptionChunkOverlapMs;
+  }
+
+  public int getTranscriptionChunkParallelism() {
+    return transcriptionChunkParallelism;
+  }
+
+  public void setTranscriptionChunkParallelism(int transcriptionChunkParallelism) {
+    this.transcriptionChunkParallelism = transcriptionChunkParallelism;
+  }
+
+  public boolean isTranscriptionCacheEnabled() {
+    return transcriptionCacheEnabled;
+  }
+
+  public void setTranscriptionCacheEnabled(boolean transcriptionCacheEnabled) {
+    this.transcriptionCacheEnabled = transcriptionCacheEnabled;
+  }
+
+  public long getTranscriptionCacheMaxBytes() {
+    return transcriptionCacheMaxBytes;
+  }
+
+  public void setTranscriptionCacheMaxBytes(long transcriptionCacheMaxBytes) {
+    this.transcriptionCacheMaxBytes = transcriptionCacheMaxBytes;
+  }
+
+  public long getTranscriptionCacheTtlMs() {
+    return transcriptionCacheTtlMs;
+  }
+
+  public void setTranscriptionCacheTtlMs(long transcriptionCacheTtlMs) {
+    this.transcriptionCacheTtlMs = transcriptionCacheTtlMs;
+  }
+
+  public boolean isTranscriptionCacheDbEnabled() {
+    return transcriptionCacheDbEnabled;
+  }
+
+  public void setTranscriptionCacheDbEnabled(boolean transcriptionCacheDbEnabled) {
+    this.transcriptionCacheDbEnabled = transcriptionCacheDbEnabled;
+  }
+
+  public boolean isPlanCacheEnabled() {
+    return planCacheEnabled;
+  }
+
+  public void setPlanCacheEnabled(boolean planCacheEnabled) {
+    this.planCacheEnabled = planCacheEnabled;
+  }
+
+  public int getPlanCacheMaxEntries() {
+    return planCacheMaxEntries;
+  }
+
+  public void setPlanCacheMaxEntries(int planCacheMaxEntries) {
+    this.planCacheMaxEntries = planCacheMaxEntries;
+  }
+
+  public long getPlanCacheTtlMs() {
+    return planCacheTtlMs;
+  }
+
+  public void setPlanCacheTtlMs(long planCacheTtlMs) {
+    this.planCacheTtlMs = planCacheTtlMs;
+  }
+
+  public boolean isPlanCacheDbEnabled() {
+    return planCacheDbEnabled;
+  }
+
+  public void setPlanCacheDbEnabled(boolean planCacheDbEnabled) {
+    this.planCacheDbEnabled = planCacheDbEnabled;
+  }
+
+  public boolean isPlanPoolEnabled() {
+    return planPoolEnabled;
+  }
+
+  public void setPlanPoolEnabled(boolean planPoolEnabled) {
+    this.planPoolEnabled = planPoolEnabled;
+  }
+
+  public int getPlanPoolTopRoles() {
+    return planPoolTopRoles;
+  }
+
+  public void setPlanPoolTopRoles(int planPoolTopRoles) {
+    this.planPoolTopRoles = planPoolTopRoles;
+  }
+
+  public List<Integer> getPlanPoolQuestionCounts() {
+    return planPoolQuestionCounts;
+  }
+
+  public void setPlanPoolQuestionCounts(List<Integer> planPoolQuestionCounts) {
+    this.planPoolQuestionCounts = planPoolQuestionCounts;
+  }
+
+  public int getPlanPoolDepth() {
+    return planPoolDepth;
+  }
+
+  public void setPlanPoolDepth(int planPoolDepth) {
+    this.planPoolDepth = planPoolDepth;
+  }
+
+  public long getPlanPoolRefillIntervalMs() {
+    return planPoolRefillIntervalMs;
+  }
+
+  public void setPlanPoolRefillIntervalMs(long planPoolRefillIntervalMs) {
+    this.planPoolRefillIntervalMs = planPoolRefillIntervalMs;
+  }
+
+  public int getPlanPoolMaxGenerationsPerMinute() {
+    return planPoolMaxGenerationsPerMinute;
+  }
+
+  public void setPlanPoolMaxGenerationsPerMinute(int planPoolMaxGenerationsPerMinute) {
+    this.planPoolMaxGenerationsPerMinute = planPoolMaxGenerationsPerMinute;
+  }
+
+  public int getPlanPoolConcurrency() {
+    return planPoolConcurrency;
+  }
+
+  public void setPlanPoolConcurrency(int planPoolConcurrency) {
+    this.planPoolConcurrency = planPoolConcurrency;
+  }
+
+  public boolean isOpeningSpeculationEnabled() {
+    return openingSpeculationEnabled;
+  }
+
+  public void setOpeningSpeculationEnabled(boolean openingSpeculationEnabled) {
+    this.openingSpeculationEnabled = openingSpeculationEnabled;
+  }
+
+  public int getOpeningSpeculationMaxEntries() {
+    return openingSpeculationMaxEntries;
+  }
+
+  public void setOpeningSpeculationMaxEntries(int openingSpeculationMaxEntries) {
+    this.openingSpeculationMaxEntries = openingSpeculationMaxEntries;
+  }
+
+  public long getOpeningSpeculationTtlMs() {
+    return openingSpeculationTtlMs;
+  }
+
+  public void setOpeningSpeculationTtlMs(long openingSpeculationTtlMs) {
+    this.openingSpeculationTtlMs = openingSpeculationTtlMs;
+  }
+
+  public long getOpeningSpeculationAwaitMs() {
+    return openingSpeculationAwaitMs;
+  }
+
+  public void setOpeningSpeculationAwaitMs(long openingSpeculationAwaitMs) {
+    this.openingSpeculationAwaitMs = openingSpeculationAwaitMs;
+  }
+
+  public int getChatMemoryMaxTokens() {
+    return chatMemoryMaxTokens;
+  }
+
+  public void setChatMemoryMaxTokens(int chatMemoryMaxTokens) {
+    this.chatMemoryMaxTokens = chatMemoryMaxTokens;
+  }
+
+  public boolean isChatSummaryEnabled() {
+    return chatSummaryEnabled;
+  }
+
+  public void setChatSummaryEnabled(boolean chatSummaryEnabled) {
+    this.chatSummaryEnabled = chatSummaryEnabled;
+  }
+
+  public int getChatSummaryKeepMessages() {
+    return chatSummaryKeepMessages;
+  }
+
+  public void setChatSummaryKeepMessages(int chatSummaryKeepMessages) {
+    this.chatSummaryKeepMessages = chatSummaryKeepMessages;
+  }
+
+  public int getLlmMaxPromptTokens() {
+    return llmMaxPromptTokens;
+  }
+
+  public void setLlmMaxPromptTokens(int llmMaxPromptTokens) {
+    this.llmMaxPromptTokens = llmMaxPromptTokens;
+  }
+
+  public int getVacancyPageMaxTokens() {
+    return vacancyPageMaxTokens;
+  }
+
+  public void setVacancyPageMaxTokens(int vacancyPageMaxTokens) {
+    this.vacancyPageMaxTokens = vacancyPageMaxTokens;
+  }
+
+  public int getVacancyFileMaxTokens() {
+    return vacancyFileMaxTokens;
+  }
+
+  public void setVacancyFileMaxTokens(int vacancyFileMaxTokens) {
+    this.vacancyFileMaxTokens = vacancyFileMaxTokens;
+  }
+
+  public boolean isAssessmentEnabled() {
+    return assessmentEnabled;
+  }
+
+  public void setAssessmentEnabled(boolean assessmentEnabled) {
+    this.assessmentEnabled = assessmentEnabled;
+  }
+
+  public int getAssessmentConcurrency() {
+    return assessmentConcurrency;
+  }
+
+  public void setAssessmentConcurrency(int assessmentConcurrency) {
+    this.assessmentConcurrency = assessmentConcurrency;
+  }
+
+  public long getAssessmentAwaitMs() {
+    return assessmentAwaitMs;
+  }
+
+  public void setAssessmentAwaitMs(long assessmentAwaitMs) {
+    this.assessmentAwaitMs = assessmentAwaitMs;
+  }
+
+  public boolean isFeedbackMapReduceEnabled() {
+    return feedbackMapReduceEnabled;
+  }
+
+  public void setFeedbackMapReduceEnabled(boolean feedbackMapReduceEnabled) {
+    this.feedbackMapReduceEnabled = feedbackMapReduceEnabled;
+  }
+
+  public int getFeedbackSegmentConcurrency() {
+    return feedbackSegmentConcurrency;
+  }
+
+  public void setFeedbackSegmentConcurrency(int feedbackSegmentConcurrency) {
+    this.feedbackSegmentConcurrency = feedbackSegmentConcurrency;
+  }
+
+  public boolean isPlanPatchEnabled() {
+    return planPatchEnabled;
+  }
+
+  public void setPlanPatchEnabled(boolean planPatchEnabled) {
+    this.planPatchEnabled = planPatchEnabled;
+  }
+
+  public Map<Interaction, ModelProfile> getModels() {
+    return models;
+  }
+
+  public void setModels(Map<Interaction, ModelProfile> models) {
+    this.models = models;
+  }
+
+  public boolean isLlmBalancerEnabled() {
+    return llmBalancerEnabled;
+  }
+
+  public void setLlmBalancerEnabled(boolean llmBalancerEnabled) {
+    this.llmBalancerEnabled = llmBalancerEnabled;
+  }
+
+  public long getLlmHedgeDelayMs() {
+    return llmHedgeDelayMs;
+  }
+
+  public void setLlmHedgeDelayMs(long llmHedgeDelayMs) {
+    this.llmHedgeDelayMs = llmHedgeDelayMs;
+  }
+
+  public List<LlmEndpoint> getLlmEndpoints() {
+    return llmEndpoints;
+  }
+
+  public void setLlmEndpoints(List<LlmEndpoint> llmEndpoints) {
+    this.llmEndpoints = llmEndpoints;
+  }
+
+  /**
+   * Model options for one {@link Interaction}. Unset fields keep the {@code spring.ai.openai.chat.options} defaults.
+   */
+  public static class ModelProfile {
+
+    private String model;
+
+    @PositiveOrZero
+    private Double temperature;
+
+    @Positive
+    private Integer maxTokens;
+
+    public ModelProfile() {
+    }
+
+    public ModelProfile(String model) {
+      this.model = model;
+    }
+
+    public String getModel() {
+      return model;
+    }
+
+    public void setModel(String model) {
+      this.model = model;
+    }
+
+    public Double getTemperature() {
+      return temperature;
+    }
+
+    public void setTemperature(Double temperature) {
+      this.temperature = temperature;
+    }
+
+    public Integer getMaxTokens() {
+      return maxTokens;
+    }
+
+    public void setMaxTokens(Integer maxTokens) {
+      this.maxTokens = maxTokens;
+    }
+  }
+
+  /**
+   * One OpenAI-compatible chat endpoint behind the balancer. Without an API key the {@code spring.ai.openai} one is used.
+   */
+  public static class LlmEndpoint {
+
+    private String name;
+
+    @NotBlank
+    private String baseUrl;
+
+    private String apiKey;
+
+    @Min(1)
+    private int maxConcurrency = 32;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getBaseUrl() {
+      return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+      this.baseUrl = baseUrl;
+    }
+
+    public String getApiKey() {
+      return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+      this.apiKey = apiKey;
+    }
+
+    public int getMaxConcurrency() {
+      return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+    }
+  }
 }
@@ -0,0 +1,54 @@
+package ru.hh.aiinterviewer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import ru.hh.aiinterviewer.llm.BalancedChatModel;
+
+/**
+ * Puts a {@link BalancedChatModel} over {@code app.llm-endpoints} behind every chat client instead of the single
+ * {@code spring.ai.openai} endpoint. Endpoints share the {@code spring.ai.openai.chat.options} defaults.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.llm-balancer-enabled", havingValue = "true")
+public class LlmBalancerConfig {
+
+  @Bean
+  @Primary
+  public BalancedChatModel balancedChatModel(ApplicationProperties applicationProperties,
+                                             OpenAiChatModel openAiChatModel,
+                                             @Value("${spring.ai.openai.api-key:}") String defaultApiKey,
+                                             ObjectProvider<RestClient.Builder> restClientBuilders,
+                                             ObjectProvider<WebClient.Builder> webClientBuilders,
+                                             MeterRegistry meterRegistry) {
+    if (applicationProperties.getLlmEndpoints().isEmpty()) {
+      throw new IllegalStateException("app.llm-balancer-enabled is set, but app.llm-endpoints is empty");
+    }
+    OpenAiChatOptions defaultOptions = (OpenAiChatOptions) openAiChatModel.getDefaultOptions();
+    List<BalancedChatModel.Endpoint> endpoints = applicationProperties.getLlmEndpoints().stream()
+        .map(endpoint -> new BalancedChatModel.Endpoint(
+            StringUtils.hasText(endpoint.getName()) ? endpoint.getName() : URI.create(endpoint.getBaseUrl()).getHost(),
+            BalancedChatModel.endpointModel(
+                endpoint.getBaseUrl(),
+                StringUtils.hasText(endpoint.getApiKey()) ? endpoint.getApiKey() : defaultApiKey,
+                defaultOptions.copy(),
+                restClientBuilders.getIfAvailable(RestClient::builder),
+                webClientBuilders.getIfAvailable(WebClient::builder)),
+            endpoint.getMaxConcurrency()))
+        .toList();
+    return new BalancedChatModel(endpoints, defaultOptions, Duration.ofMillis(applicationProperties.getLlmHedgeDelayMs()),
+        applicationProperties.getUpstreamAcquireTimeoutMs(), meterRegistry);
+  }
+}
@@ -0,0 +1,32 @@
+package ru.hh.aiinterviewer.config;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import ru.hh.aiinterviewer.config.ApplicationProperties.ModelProfile;
+import ru.hh.aiinterviewer.llm.Interaction;
+
+/**
+ * Default options of the chat client serving an {@link Interaction}, from its {@code app.models} profile.
+ */
+@UtilityClass
+public class ModelTiers {
+
+  public static OpenAiChatOptions options(ApplicationProperties applicationProperties, Interaction interaction) {
+    ModelProfile profile = applicationProperties.getModels().get(interaction);
+    OpenAiChatOptions.Builder options = OpenAiChatOptions.builder();
+    if (profile == null) {
+      return options.build();
+    }
+    if (profile.getModel() != null && !profile.getModel().isBlank()) {
+      options.model(profile.getModel());
+    }
+    if (profile.getTemperature() != null) {
+      options.temperature(profile.getTemperature());
+    }
+    // max_tokens is rejected by reasoning models, the completion limit works for all of them
+    if (profile.getMaxTokens() != null) {
+      options.maxCompletionTokens(profile.getMaxTokens());
+    }
+    return options.build();
+  }
+}
@@ -0,0 +1,57 @@
+package ru.hh.aiinterviewer.domain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+@Data
+@Entity
+@Builder
+@Table(name = "answer_assessments")
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerAssessment {
+
+  @Id
+  @Builder.Default
+  private UUID id = UUID.randomUUID();
+
+  @Column(name = "session_id", nullable = false, updatable = false)
+  private UUID sessionId;
+
+  // Main question of the plan the answer belongs to, clarifying questions included
+  @Column(name = "question_number", nullable = false)
+  private int questionNumber;
+
+  // The interviewer message the candidate answered
+  @Column(name = "question")
+  private String question;
+
+  @Column(name = "answer", nullable = false)
+  private String answer;
+
+  // 0..10
+  @Column(name = "score", nullable = false)
+  private int score;
+
+  @Column(name = "summary")
+  private String summary;
+
+  @Column(name = "strengths")
+  private String strengths;
+
+  @Column(name = "gaps")
+  private String gaps;
+
+  @CreationTimestamp
+  @Column(name = "created_at")
+  private OffsetDateTime createdAt;
+}
@@ -0,0 +1,40 @@
+package ru.hh.aiinterviewer.domain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+@Data
+@Entity
+@Builder
+@Table(name = "conversation_summaries")
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+
+  @Id
+  @Column(name = "session_id")
+  private UUID sessionId;
+
+  @Column(name = "summary", nullable = false)
+  private String summary;
+
+  // created_at of the newest message folded into the summary; later messages are passed to the model verbatim
+  @Column(name = "covered_until", nullable = false)
+  private OffsetDateTime coveredUntil;
+
+  @Column(name = "covered_messages", nullable = false)
+  private int coveredMessages;
+
+  @UpdateTimestamp
+  @Column(name = "updated_at")
+  private OffsetDateTime updatedAt;
+}
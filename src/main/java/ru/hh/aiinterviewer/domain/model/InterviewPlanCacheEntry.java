@@ -0,0 +1,44 @@
+package ru.hh.aiinterviewer.domain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+@Data
+@Entity
+@Builder
+@Table(name = "interview_plan_cache")
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterviewPlanCacheEntry implements Persistable<String> {
+
+  // SHA-256 of the model and the plan prompt built from the normalized vacancy, question count and preferences
+  @Id
+  @Column(name = "cache_key")
+  private String key;
+
+  @Column(name = "plan", nullable = false)
+  private String plan;
+
+  @CreationTimestamp
+  @Column(name = "created_at")
+  private OffsetDateTime createdAt;
+
+  @Override
+  public String getId() {
+    return key;
+  }
+
+  @Override
+  public boolean isNew() {
+    return true;
+  }
+}
@@ -0,0 +1,8 @@
+package ru.hh.aiinterviewer.domain.model;
+
+/**
+ * Main question of an interview plan. {@code text} is the whole item as written in the plan, including notes on the
+ * expected answer; {@code topic} and {@code difficulty} are null when the item does not name them.
+ */
+public record PlanQuestion(int number, String topic, String difficulty, String text) {
+}
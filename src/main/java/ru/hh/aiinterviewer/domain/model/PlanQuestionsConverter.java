@@ -0,0 +1,24 @@
+package ru.hh.aiinterviewer.domain.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.util.List;
+import ru.hh.aiinterviewer.utils.JsonUtils;
+
+@Converter
+public class PlanQuestionsConverter implements AttributeConverter<List<PlanQuestion>, String> {
+
+  private static final TypeReference<List<PlanQuestion>> TYPE = new TypeReference<>() {
+  };
+
+  @Override
+  public String convertToDatabaseColumn(List<PlanQuestion> questions) {
+    return questions == null || questions.isEmpty() ? null : JsonUtils.toJson(questions);
+  }
+
+  @Override
+  public List<PlanQuestion> convertToEntityAttribute(String json) {
+    return json == null || json.isBlank() ? List.of() : JsonUtils.fromJson(json, TYPE);
+  }
+}
@@ -1,18 +1,14 @@
 package ru.hh.aiinterviewer.domain.model;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.OneToMany;
-import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
@@ -20,6 +16,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import ru.hh.aiinterviewer.llm.PlanQuestions;
 
 @Data
 @Entity
@@ -53,6 +50,17 @@ public class Session {
   @Column(name = "interview_plan")
   private String interviewPlan;
 
+  // Main questions parsed from the plan, empty when its question list doesn't follow the prescribed format
+  @Builder.Default
+  @Convert(converter = PlanQuestionsConverter.class)
+  @Column(name = "plan_questions")
+  private List<PlanQuestion> planQuestions = List.of();
+
+  // Number of the last main question asked, 0 before the first one
+  @Builder.Default
+  @Column(name = "current_question")
+  private int currentQuestion = 0;
+
   @Column(name = "instructions")
   private String instructions;
 
@@ -82,15 +90,19 @@ public class Session {
   @Column(name = "created_at")
   private OffsetDateTime createdAt;
 
-  @Builder.Default
-  @OrderBy("createdAt ASC")
-  @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL,orphanRemoval = true)
-  @JoinColumn(name = "session_id")
-  private List<SessionMessage> messages = new ArrayList<>();
+  @Version
+  @Column(name = "version")
+  private Long version;
 
-  public void addMessage(SessionMessage message) {
-    messages.add(message);
-  }
+  // Running totals maintained by SessionRepository#addTokenUsage, never written from the entity
+  @Column(name = "prompt_tokens", insertable = false, updatable = false)
+  private Long promptTokens;
+
+  @Column(name = "completion_tokens", insertable = false, updatable = false)
+  private Long completionTokens;
+
+  @Column(name = "cached_tokens", insertable = false, updatable = false)
+  private Long cachedTokens;
 
   public boolean isPlanned() {
     return status == SessionStatus.PLANNED;
@@ -106,6 +118,25 @@ public class Session {
     }
   }
 
+  public void updatePlan(String plan) {
+    interviewPlan = plan;
+    planQuestions = PlanQuestions.parse(plan);
+    currentQuestion = 0;
+  }
+
+  /**
+   * Moves the progress to the main question the interviewer has just asked. Progress never goes back, and stays
+   * within the plan when its questions are known.
+   */
+  public boolean advanceTo(int question) {
+    boolean known = planQuestions != null && !planQuestions.isEmpty();
+    if (question <= currentQuestion || (known && question > planQuestions.size())) {
+      return false;
+    }
+    currentQuestion = question;
+    return true;
+  }
+
   public void startInterview() {
     if (!isPlanned()) {
       throw new IllegalStateException("Session is not in planned status");
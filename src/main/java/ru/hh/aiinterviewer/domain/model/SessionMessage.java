@@ -5,15 +5,24 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.springframework.ai.chat.messages.Message;
+import org.springframework.data.domain.Persistable;
+import ru.hh.aiinterviewer.llm.TokenCounter;
+import ru.hh.aiinterviewer.llm.TokenUsage;
 
 @Data
 @Entity
@@ -21,40 +30,107 @@ import org.springframework.ai.chat.messages.Message;
 @Table(name = "messages")
 @NoArgsConstructor
 @AllArgsConstructor
-public class SessionMessage {
+public class SessionMessage implements Persistable<UUID> {
 
   @Id
   @Builder.Default
   private UUID id = UUID.randomUUID();
 
+  @Column(name = "session_id", nullable = false, updatable = false)
+  private UUID sessionId;
+
   @Enumerated(EnumType.STRING)
   @Column(name = "role")
   private MessageRole role;
 
   private boolean internal;
 
+  // The client disconnected while the answer was streaming, content holds what had been sent so far
+  private boolean interrupted;
+
   @Column(name = "content")
   private String content;
 
+  // Local tokenizer count of the content, so that the chat memory budgets its window without re-encoding it
+  @Column(name = "tokens")
+  private Integer tokens;
+
+  // Provider usage of the model call that produced an assistant message
+  @Column(name = "prompt_tokens")
+  private Integer promptTokens;
+
+  @Column(name = "completion_tokens")
+  private Integer completionTokens;
+
+  @Column(name = "cached_tokens")
+  private Integer cachedTokens;
+
   @CreationTimestamp
   @Column(name = "created_at")
   private OffsetDateTime createdAt;
 
-  public static SessionMessage newAssistantMessage(String message) {
+  // Ids are assigned on the client side, so Spring Data can't tell new rows apart by id alone:
+  // without this flag every save() would turn into merge() with an extra SELECT before the INSERT.
+  @Transient
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private boolean persisted;
+
+  public static SessionMessage newAssistantMessage(UUID sessionId, String message) {
     return SessionMessage.builder()
+        .sessionId(sessionId)
         .role(MessageRole.ASSISTANT)
         .content(message)
         .build();
   }
 
-  public static SessionMessage from(Message message) {
+  public static SessionMessage newInterruptedAssistantMessage(UUID sessionId, String partialMessage) {
+    return SessionMessage.builder()
+        .sessionId(sessionId)
+        .role(MessageRole.ASSISTANT)
+        .content(partialMessage)
+        .interrupted(true)
+        .build();
+  }
+
+  public static SessionMessage from(UUID sessionId, Message message) {
     return SessionMessage.builder()
+        .sessionId(sessionId)
         .role(MessageRole.fromValue(message.getMessageType().getValue()))
         .content(message.getText())
         .build();
   }
 
+  public SessionMessage withUsage(TokenUsage usage) {
+    this.promptTokens = usage.prompt();
+    this.completionTokens = usage.completion();
+    this.cachedTokens = usage.cached();
+    return this;
+  }
+
+  public int getTokenCount() {
+    return tokens != null ? tokens : TokenCounter.getDefault().count(content);
+  }
+
   public Message toMessage() {
     return role.getMessage(content);
   }
+
+  @Override
+  public boolean isNew() {
+    return !persisted;
+  }
+
+  @PrePersist
+  void countTokens() {
+    if (tokens == null) {
+      tokens = TokenCounter.getDefault().count(content);
+    }
+  }
+
+  @PostLoad
+  @PostPersist
+  void markPersisted() {
+    persisted = true;
+  }
 }
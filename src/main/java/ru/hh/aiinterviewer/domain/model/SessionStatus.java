@@ -8,10 +8,12 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public enum SessionStatus {
 
+  PLANNING("planning"),
   PLANNED("planned"),
   ONGOING("ongoing"),
   FEEDBACK("feedback"),
-  COMPLETED("completed");
+  COMPLETED("completed"),
+  FAILED("failed");
 
   @Getter
   private final String value;
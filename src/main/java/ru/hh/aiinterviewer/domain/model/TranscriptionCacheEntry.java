@@ -0,0 +1,49 @@
+package ru.hh.aiinterviewer.domain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+@Data
+@Entity
+@Builder
+@Table(name = "transcription_cache")
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranscriptionCacheEntry implements Persistable<String> {
+
+  // SHA-256 of the audio bytes, model and transcription options
+  @Id
+  @Column(name = "cache_key")
+  private String key;
+
+  @Column(name = "text", nullable = false)
+  private String text;
+
+  // Duration of the audio sent upstream, credited as saved on every hit
+  @Column(name = "audio_seconds")
+  private double audioSeconds;
+
+  @CreationTimestamp
+  @Column(name = "created_at")
+  private OffsetDateTime createdAt;
+
+  @Override
+  public String getId() {
+    return key;
+  }
+
+  // Entries are immutable, so save() always inserts instead of selecting first to decide between insert and merge
+  @Override
+  public boolean isNew() {
+    return true;
+  }
+}
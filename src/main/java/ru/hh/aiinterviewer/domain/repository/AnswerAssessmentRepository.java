@@ -0,0 +1,11 @@
+package ru.hh.aiinterviewer.domain.repository;
+
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.hh.aiinterviewer.domain.model.AnswerAssessment;
+
+public interface AnswerAssessmentRepository extends JpaRepository<AnswerAssessment, UUID> {
+
+  List<AnswerAssessment> findBySessionIdOrderByCreatedAtAsc(UUID sessionId);
+}
@@ -0,0 +1,8 @@
+package ru.hh.aiinterviewer.domain.repository;
+
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.hh.aiinterviewer.domain.model.ConversationSummary;
+
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, UUID> {
+}
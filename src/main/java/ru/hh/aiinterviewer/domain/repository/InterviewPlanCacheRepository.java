@@ -0,0 +1,17 @@
+package ru.hh.aiinterviewer.domain.repository;
+
+import java.time.OffsetDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hh.aiinterviewer.domain.model.InterviewPlanCacheEntry;
+
+public interface InterviewPlanCacheRepository extends JpaRepository<InterviewPlanCacheEntry, String> {
+
+  @Modifying
+  @Transactional
+  @Query("delete from InterviewPlanCacheEntry e where e.createdAt < :before")
+  int deleteCreatedBefore(@Param("before") OffsetDateTime before);
+}
@@ -0,0 +1,52 @@
+package ru.hh.aiinterviewer.domain.repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+
+public interface SessionMessageRepository extends JpaRepository<SessionMessage, UUID> {
+
+  /**
+   * Last {@code limit} messages of the session plus all of its system messages, oldest first.
+   * Served by the (session_id, created_at) index in a single round-trip.
+   */
+  @Query(value = """
+      select m.* from messages m
+      where m.session_id = :sessionId
+        and (m.role = 'SYSTEM' or m.id in (
+          select w.id from messages w
+          where w.session_id = :sessionId
+          order by w.created_at desc
+          limit :limit))
+      order by m.created_at
+      """, nativeQuery = true)
+  List<SessionMessage> findWindow(@Param("sessionId") UUID sessionId, @Param("limit") int limit);
+
+  /**
+   * Same window as {@link #findWindow}, limited to messages newer than {@code after} (the part covered by the
+   * conversation summary is skipped).
+   */
+  @Query(value = """
+      select m.* from messages m
+      where m.session_id = :sessionId
+        and (m.role = 'SYSTEM' or m.id in (
+          select w.id from messages w
+          where w.session_id = :sessionId
+            and w.created_at > :after
+          order by w.created_at desc
+          limit :limit))
+      order by m.created_at
+      """, nativeQuery = true)
+  List<SessionMessage> findWindowAfter(@Param("sessionId") UUID sessionId, @Param("after") OffsetDateTime after,
+                                       @Param("limit") int limit);
+
+  List<SessionMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId);
+
+  List<SessionMessage> findBySessionIdAndCreatedAtAfterOrderByCreatedAtAsc(UUID sessionId, OffsetDateTime after);
+
+  long countBySessionId(UUID sessionId);
+}
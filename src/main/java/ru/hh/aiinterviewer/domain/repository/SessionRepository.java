@@ -2,7 +2,27 @@ package ru.hh.aiinterviewer.domain.repository;
 
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.hh.aiinterviewer.domain.model.Session;
 
 public interface SessionRepository extends JpaRepository<Session, UUID> {
+
+  /**
+   * Adds the usage of a model call to the session totals in place. The version is left alone: usage arrives while
+   * the turn that holds the session is still running, and must not make its save fail.
+   */
+  @Modifying
+  @Transactional
+  @Query("""
+      update Session s set
+        s.promptTokens = coalesce(s.promptTokens, 0) + :prompt,
+        s.completionTokens = coalesce(s.completionTokens, 0) + :completion,
+        s.cachedTokens = coalesce(s.cachedTokens, 0) + :cached
+      where s.id = :id
+      """)
+  int addTokenUsage(@Param("id") UUID id, @Param("prompt") long prompt, @Param("completion") long completion,
+                    @Param("cached") long cached);
 }
@@ -0,0 +1,8 @@
+package ru.hh.aiinterviewer.exception;
+
+public class StreamNotResumableException extends RuntimeException {
+
+  public StreamNotResumableException(String message) {
+    super(message);
+  }
+}
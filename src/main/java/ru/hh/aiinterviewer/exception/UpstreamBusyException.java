@@ -0,0 +1,8 @@
+package ru.hh.aiinterviewer.exception;
+
+public class UpstreamBusyException extends RuntimeException {
+
+  public UpstreamBusyException(String message) {
+    super(message);
+  }
+}
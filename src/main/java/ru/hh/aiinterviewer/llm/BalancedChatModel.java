@@ -0,0 +1,402 @@
+package ru.hh.aiinterviewer.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
+
+/**
+ * Chat model over several OpenAI-compatible endpoints.
+ * <p>
+ * A request goes to the endpoint with the lowest expected latency: the EWMA of its call latency (of the time to the
+ * first token for streams) plus a penalty for its recent error rate. The error rate decays while an endpoint gets no
+ * traffic, so a recovered endpoint is tried again. Endpoints at their concurrency cap are skipped.
+ * <p>
+ * A failed call moves on to the next endpoint. A stream is raced against the next endpoint when its first token is
+ * later than the hedge delay or when it fails before the first token; the first one to answer is kept and the other
+ * is cancelled. Requests the endpoint rejected as invalid are not sent anywhere else.
+ */
+public class BalancedChatModel implements ChatModel {
+
+  private static final Logger log = LoggerFactory.getLogger(BalancedChatModel.class);
+
+  private static final double LATENCY_ALPHA = 0.2;
+  private static final double ERROR_ALPHA = 0.3;
+  private static final Duration ERROR_HALF_LIFE = Duration.ofSeconds(30);
+  // An endpoint failing every call ranks behind one answering within this time
+  private static final double ERROR_PENALTY_MS = 10_000;
+  // Client errors that depend on the endpoint (its key, its rate limit) rather than on the request
+  private static final Set<Integer> ENDPOINT_CLIENT_ERRORS = Set.of(401, 403, 408, 429);
+
+  private final List<Backend> backends;
+  private final ChatOptions defaultOptions;
+  private final Duration hedgeDelay;
+  private final long acquireTimeoutMs;
+  private final MeterRegistry meterRegistry;
+
+  public record Endpoint(String name, ChatModel model, int maxConcurrency) {
+  }
+
+  public BalancedChatModel(List<Endpoint> endpoints, ChatOptions defaultOptions, Duration hedgeDelay,
+                           long acquireTimeoutMs, MeterRegistry meterRegistry) {
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("At least one endpoint is required");
+    }
+    this.backends = endpoints.stream().map(endpoint -> new Backend(endpoint, meterRegistry)).toList();
+    this.defaultOptions = defaultOptions;
+    this.hedgeDelay = hedgeDelay;
+    this.acquireTimeoutMs = acquireTimeoutMs;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Model for one endpoint of the balancer: it does not retry, failed calls are moved to another endpoint instead.
+   */
+  public static OpenAiChatModel endpointModel(String baseUrl, String apiKey, OpenAiChatOptions defaultOptions,
+                                              RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {
+    return OpenAiChatModel.builder()
+        .openAiApi(OpenAiApi.builder()
+            .baseUrl(baseUrl)
+            .apiKey(apiKey)
+            .restClientBuilder(restClientBuilder)
+            .webClientBuilder(webClientBuilder)
+            .responseErrorHandler(new EndpointErrorHandler())
+            .build())
+        .defaultOptions(defaultOptions)
+        .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+        .build();
+  }
+
+  @Override
+  public ChatOptions getDefaultOptions() {
+    return defaultOptions.copy();
+  }
+
+  @Override
+  public ChatResponse call(Prompt prompt) {
+    List<Backend> tried = new ArrayList<>();
+    RuntimeException failure = null;
+    while (tried.size() < backends.size()) {
+      Backend backend = acquire(ranked(b -> b.callLatency, tried));
+      tried.add(backend);
+      long start = System.nanoTime();
+      try {
+        ChatResponse response = backend.model.call(prompt);
+        backend.succeeded(backend.callLatency, start);
+        return response;
+      } catch (RuntimeException e) {
+        if (!isEndpointFault(e)) {
+          throw e;
+        }
+        backend.failed();
+        log.warn("LLM endpoint {} failed: {}", backend.name, e.getMessage());
+        failure = e;
+      } finally {
+        backend.permits.release();
+      }
+    }
+    throw failure;
+  }
+
+  @Override
+  public Flux<ChatResponse> stream(Prompt prompt) {
+    // Waiting for a permit blocks
+    return Flux.defer(() -> {
+          Backend primary = acquire(ranked(b -> b.firstTokenLatency, List.of()));
+          if (backends.size() == 1) {
+            return attempt(primary, prompt);
+          }
+          Sinks.Empty<Void> unanswered = Sinks.empty();
+          Flux<ChatResponse> first = attempt(primary, prompt)
+              .doOnError(e -> {
+                if (isEndpointFault(e)) {
+                  unanswered.tryEmitEmpty();
+                } else {
+                  unanswered.tryEmitError(e);
+                }
+              })
+              .doOnComplete(unanswered::tryEmitEmpty);
+          Mono<String> failedOver = unanswered.asMono().thenReturn("failure");
+          Mono<String> trigger = hedgeDelay.isZero()
+              ? failedOver
+              : Mono.firstWithSignal(Mono.delay(hedgeDelay).thenReturn("delay"), failedOver);
+          Flux<ChatResponse> second = trigger.flatMapMany(reason -> hedge(primary, prompt, reason));
+          // Whichever emits first wins, the other one is cancelled
+          return Flux.firstWithValue(first, second)
+              .onErrorMap(NoSuchElementException.class, BalancedChatModel::firstCause);
+        })
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  /**
+   * Same prompt on the best other endpoint with a free permit: hedging never waits for capacity.
+   */
+  private Flux<ChatResponse> hedge(Backend primary, Prompt prompt, String reason) {
+    Optional<Backend> backup = tryAcquire(ranked(b -> b.firstTokenLatency, List.of(primary)));
+    if (backup.isEmpty()) {
+      return Flux.empty();
+    }
+    Counter.builder("llm.endpoint.hedges")
+        .description("Streams sent to a second endpoint, by whether the first one was slow or failed")
+        .tag("reason", reason)
+        .register(meterRegistry)
+        .increment();
+    log.debug("Hedging stream from {} to {} after {}", primary.name, backup.get().name, reason);
+    return attempt(backup.get(), prompt);
+  }
+
+  /**
+   * Stream from an endpoint whose permit is already held; the permit is released when the stream ends or is cancelled.
+   */
+  private Flux<ChatResponse> attempt(Backend backend, Prompt prompt) {
+    long start = System.nanoTime();
+    AtomicBoolean answered = new AtomicBoolean();
+    return Flux.defer(() -> backend.model.stream(prompt))
+        .doOnNext(response -> {
+          if (answered.compareAndSet(false, true)) {
+            backend.succeeded(backend.firstTokenLatency, start);
+          }
+        })
+        .doOnError(e -> {
+          if (isEndpointFault(e)) {
+            backend.failed();
+          }
+        })
+        .doFinally(signal -> {
+          // Lost a hedge race: the time to its first token is at least this long
+          if (signal == SignalType.CANCEL && !answered.get()) {
+            backend.firstTokenLatency.record(millisSince(start));
+          }
+          backend.permits.release();
+        });
+  }
+
+  private List<Backend> ranked(Function<Backend, Ewma> latency, Collection<Backend> excluded) {
+    long now = System.nanoTime();
+    return backends.stream()
+        .filter(backend -> !excluded.contains(backend))
+        .map(backend -> new Ranked(backend, backend.score(latency.apply(backend), now)))
+        .sorted(Comparator.comparingDouble(Ranked::score))
+        .map(Ranked::backend)
+        .toList();
+  }
+
+  private static Optional<Backend> tryAcquire(List<Backend> ranked) {
+    for (Backend backend : ranked) {
+      if (backend.permits.tryAcquire()) {
+        return Optional.of(backend);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Backend acquire(List<Backend> ranked) {
+    Optional<Backend> free = tryAcquire(ranked);
+    if (free.isPresent()) {
+      return free.get();
+    }
+    Backend best = ranked.getFirst();
+    try {
+      if (best.permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        return best;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UpstreamBusyException("Interrupted while waiting for an LLM endpoint");
+    }
+    throw new UpstreamBusyException("Too many concurrent requests to LLM endpoints");
+  }
+
+  /**
+   * Whether another endpoint may serve the request: server errors, rate limits, rejected keys and network failures
+   * are the endpoint's fault, malformed requests are not.
+   */
+  static boolean isEndpointFault(Throwable e) {
+    if (e instanceof NonTransientAiException) {
+      return false;
+    }
+    if (e instanceof WebClientResponseException response) {
+      return isEndpointFault(response.getStatusCode());
+    }
+    return true;
+  }
+
+  private static boolean isEndpointFault(HttpStatusCode status) {
+    return !status.is4xxClientError() || ENDPOINT_CLIENT_ERRORS.contains(status.value());
+  }
+
+  private static Throwable firstCause(NoSuchElementException e) {
+    Throwable[] causes = e.getSuppressed();
+    return causes.length > 0 ? Exceptions.unwrapMultiple(causes[0]).getFirst() : e;
+  }
+
+  private static double millisSince(long startNanos) {
+    return (System.nanoTime() - startNanos) / 1_000_000.0;
+  }
+
+  private record Ranked(Backend backend, double score) {
+  }
+
+  private static final class Backend {
+
+    private final String name;
+    private final ChatModel model;
+    private final Semaphore permits;
+    private final Ewma callLatency = new Ewma(LATENCY_ALPHA, null, 0);
+    private final Ewma firstTokenLatency = new Ewma(LATENCY_ALPHA, null, 0);
+    private final Ewma errors = new Ewma(ERROR_ALPHA, 0.0, ERROR_HALF_LIFE.toNanos());
+    private final Counter successes;
+    private final Counter failures;
+
+    private Backend(Endpoint endpoint, MeterRegistry meterRegistry) {
+      this.name = endpoint.name();
+      this.model = endpoint.model();
+      this.permits = new Semaphore(endpoint.maxConcurrency(), true);
+      this.successes = calls(meterRegistry, "success");
+      this.failures = calls(meterRegistry, "failure");
+      Gauge.builder("llm.endpoint.in.flight", permits, s -> endpoint.maxConcurrency() - s.availablePermits())
+          .description("Chat requests in flight per endpoint")
+          .tag("endpoint", name)
+          .register(meterRegistry);
+      latencyGauge(meterRegistry, "call", callLatency);
+      latencyGauge(meterRegistry, "first_token", firstTokenLatency);
+    }
+
+    private double score(Ewma latency, long now) {
+      return latency.value(now) + errors.value(now) * ERROR_PENALTY_MS;
+    }
+
+    private void succeeded(Ewma latency, long startNanos) {
+      latency.record(millisSince(startNanos));
+      errors.record(0);
+      successes.increment();
+    }
+
+    private void failed() {
+      errors.record(1);
+      failures.increment();
+    }
+
+    private Counter calls(MeterRegistry meterRegistry, String result) {
+      return Counter.builder("llm.endpoint.calls")
+          .description("Chat requests per endpoint by result")
+          .tag("endpoint", name)
+          .tag("result", result)
+          .register(meterRegistry);
+    }
+
+    private void latencyGauge(MeterRegistry meterRegistry, String kind, Ewma latency) {
+      Gauge.builder("llm.endpoint.latency", latency, l -> l.value(System.nanoTime()))
+          .description("Moving average of the latency the endpoint is ranked by, ms")
+          .tag("endpoint", name)
+          .tag("kind", kind)
+          .register(meterRegistry);
+    }
+  }
+
+  /**
+   * Exponentially weighted moving average. Without an initial value the first sample seeds it; with a half-life the
+   * average also fades towards zero between samples.
+   */
+  static final class Ewma {
+
+    private record Sample(double value, long nanos) {
+    }
+
+    private final double alpha;
+    private final long halfLifeNanos;
+    private final AtomicReference<Sample> last;
+
+    Ewma(double alpha, Double initial, long halfLifeNanos) {
+      this.alpha = alpha;
+      this.halfLifeNanos = halfLifeNanos;
+      this.last = new AtomicReference<>(initial == null ? null : new Sample(initial, System.nanoTime()));
+    }
+
+    void record(double sample) {
+      long now = System.nanoTime();
+      last.updateAndGet(previous -> {
+        if (previous == null) {
+          return new Sample(sample, now);
+        }
+        double current = decayed(previous, now);
+        return new Sample(current + alpha * (sample - current), now);
+      });
+    }
+
+    double value(long now) {
+      Sample sample = last.get();
+      return sample == null ? 0 : decayed(sample, now);
+    }
+
+    private double decayed(Sample sample, long now) {
+      if (halfLifeNanos == 0) {
+        return sample.value();
+      }
+      return sample.value() * Math.pow(0.5, (double) Math.max(0, now - sample.nanos()) / halfLifeNanos);
+    }
+  }
+
+  /**
+   * Maps error responses like the default Spring AI handler, except that rate limits and rejected keys are treated as
+   * transient: they are the endpoint's problem, and another endpoint may serve the same request.
+   */
+  private static final class EndpointErrorHandler implements ResponseErrorHandler {
+
+    @Override
+    public boolean hasError(ClientHttpResponse response) throws IOException {
+      return response.getStatusCode().isError();
+    }
+
+    @Override
+    public void handleError(URI url, HttpMethod method, ClientHttpResponse response) throws IOException {
+      HttpStatusCode status = response.getStatusCode();
+      String message = status.value() + " - " + new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+      if (isEndpointFault(status)) {
+        throw new TransientAiException(message);
+      }
+      throw new NonTransientAiException(message);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package ru.hh.aiinterviewer.llm;
+
+/**
+ * Kinds of model calls the service makes. Each has its own model profile under {@code app.models} and is tagged
+ * separately in the model call metrics.
+ */
+public enum Interaction {
+
+  PLAN,
+  REVISE,
+  INTERVIEW,
+  FEEDBACK,
+  SUMMARY,
+  ASSESSMENT;
+
+  public String tag() {
+    return name().toLowerCase();
+  }
+}
@@ -0,0 +1,20 @@
+package ru.hh.aiinterviewer.llm;
+
+import java.util.List;
+
+/**
+ * Edit of the question list of a plan, as the revision model returns it. Item numbers refer to the list before the
+ * edit; {@code INSERT} puts the new item after {@code number} (0 for the top). {@code fullRevision} asks for the
+ * whole plan to be regenerated, for corrections outside the question list.
+ */
+public record PlanPatch(boolean fullRevision, List<Edit> edits) {
+
+  public enum Action {
+    REPLACE,
+    INSERT,
+    REMOVE
+  }
+
+  public record Edit(Action action, int number, String text) {
+  }
+}
@@ -0,0 +1,214 @@
+package ru.hh.aiinterviewer.llm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.experimental.UtilityClass;
+import ru.hh.aiinterviewer.domain.model.PlanQuestion;
+
+/**
+ * Reads the question list of an interview plan into {@link PlanQuestion} items, and renders the plan for the
+ * interviewer with the questions already asked folded to their topics.
+ * <p>
+ * Plans stay text (they are streamed, cached and revised as such), so the structure comes from the output format
+ * the plan prompts prescribe for the last section: a {@link #QUESTIONS_HEADING} heading followed by items
+ * {@code N. [сложность] (Тема: ...) вопрос}, optionally with notes on the expected answer on the following lines.
+ * A plan whose list does not follow it yields no items and is passed to the interviewer whole.
+ */
+@UtilityClass
+public class PlanQuestions {
+
+  public static final String QUESTIONS_HEADING = "Список вопросов для интервью";
+
+  private static final Pattern HEADING = Pattern.compile(
+      "(?im)^[\\s#*]*(?:\\d+\\.\\s*)?\\**" + Pattern.quote(QUESTIONS_HEADING) + ".*$");
+  private static final Pattern ITEM = Pattern.compile("^\\s*\\**(\\d+)[.)]\\**\\s+(.+)$");
+  private static final Pattern SECTION_END = Pattern.compile("^\\s*(?:#{1,6}\\s|---).*$");
+  private static final Pattern SECTION_END_LINE = Pattern.compile("(?m)^\\s*(?:#{1,6}\\s|---).*$");
+  // Numbering the model may put in front of an item text anyway
+  private static final Pattern ITEM_NUMBER = Pattern.compile("^\\**\\d+[.)]\\**\\s+");
+  private static final Pattern TOPIC = Pattern.compile("(?iu)\\(\\s*тема\\s*:\\s*([^)]+)\\)");
+  private static final Pattern DIFFICULTY = Pattern.compile("(?iu)\\[\\s*(л[её]гкий|средний|сложный)\\s*]");
+  // The numbering the interviewer prompt prescribes for main questions: «Вопрос X/N»
+  private static final Pattern ASKED = Pattern.compile("(?iu)вопрос\\s*(\\d+)\\s*/\\s*(\\d+)");
+
+  public static List<PlanQuestion> parse(String plan) {
+    int[] heading = lastHeading(plan);
+    if (heading == null) {
+      return List.of();
+    }
+    List<PlanQuestion> questions = new ArrayList<>();
+    Integer number = null;
+    StringBuilder text = new StringBuilder();
+    for (String line : plan.substring(heading[1]).split("\\R")) {
+      Matcher item = ITEM.matcher(line);
+      if (item.matches()) {
+        if (number != null) {
+          questions.add(question(number, text));
+        }
+        number = Integer.parseInt(item.group(1));
+        text.setLength(0);
+        text.append(item.group(2).strip());
+      } else if (SECTION_END.matcher(line).matches()) {
+        break;
+      } else if (number != null && !line.isBlank()) {
+        text.append('\n').append(line.strip());
+      }
+    }
+    if (number != null) {
+      questions.add(question(number, text));
+    }
+    // Numbering that is not 1..N means the list is not the plain question list the format asks for
+    for (int i = 0; i < questions.size(); i++) {
+      if (questions.get(i).number() != i + 1) {
+        return List.of();
+      }
+    }
+    return List.copyOf(questions);
+  }
+
+  /**
+   * The plan as the interviewer sees it once {@code currentQuestion} has been asked: everything before the question
+   * list as is, asked questions reduced to their topics, the current and the remaining ones in full.
+   */
+  public static String render(String plan, List<PlanQuestion> questions, int currentQuestion) {
+    if (questions == null || questions.isEmpty() || currentQuestion <= 1) {
+      return plan;
+    }
+    int[] heading = lastHeading(plan);
+    if (heading == null) {
+      return plan;
+    }
+    StringBuilder rendered = new StringBuilder(plan.substring(0, heading[0]).stripTrailing())
+        .append("\n\n### ").append(QUESTIONS_HEADING).append('\n')
+        .append("Всего основных вопросов: ").append(questions.size()).append(".\n")
+        .append("Уже заданы (не повторяй их): ")
+        .append(questions.stream()
+            .filter(question -> question.number() < currentQuestion)
+            .map(question -> question.number() + (question.topic() == null ? "" : " (" + question.topic() + ")"))
+            .collect(Collectors.joining(", ")))
+        .append('\n');
+    questions.stream()
+        .filter(question -> question.number() >= currentQuestion)
+        .forEach(question -> rendered
+            .append(question.number() == currentQuestion ? "Текущий вопрос:\n" : "")
+            .append(question.number() == currentQuestion + 1 ? "Следующие вопросы:\n" : "")
+            .append(question.number()).append(". ").append(question.text()).append('\n'));
+    return rendered.toString();
+  }
+
+  /**
+   * Everything before the question list: vacancy analysis, interview structure, evaluation criteria.
+   */
+  public static String overview(String plan) {
+    int[] heading = lastHeading(plan);
+    return heading == null ? plan : plan.substring(0, heading[0]).stripTrailing();
+  }
+
+  /**
+   * The plan with {@code patch} applied to its question list, renumbered; everything outside the list is kept as is.
+   * Empty when the patch does not apply: the plan has no parsable list, an edit points outside it or touches an item
+   * twice, or an added item is blank.
+   */
+  public static Optional<String> apply(String plan, PlanPatch patch) {
+    List<PlanQuestion> questions = parse(plan);
+    if (questions.isEmpty() || patch == null || patch.fullRevision() || patch.edits() == null
+        || patch.edits().isEmpty()) {
+      return Optional.empty();
+    }
+    Map<Integer, String> replaced = new HashMap<>();
+    Set<Integer> removed = new HashSet<>();
+    Map<Integer, List<String>> inserted = new HashMap<>();
+    for (PlanPatch.Edit edit : patch.edits()) {
+      int number = edit.number();
+      String text = edit.text() == null ? "" : ITEM_NUMBER.matcher(edit.text().strip()).replaceFirst("");
+      boolean valid = switch (edit.action()) {
+        case REPLACE -> number >= 1 && number <= questions.size() && !text.isBlank()
+            && !removed.contains(number) && replaced.putIfAbsent(number, text) == null;
+        case REMOVE -> number >= 1 && number <= questions.size()
+            && !replaced.containsKey(number) && removed.add(number);
+        case INSERT -> number >= 0 && number <= questions.size() && !text.isBlank()
+            && inserted.computeIfAbsent(number, key -> new ArrayList<>()).add(text);
+        case null -> false;
+      };
+      if (!valid) {
+        return Optional.empty();
+      }
+    }
+    List<String> items = new ArrayList<>(inserted.getOrDefault(0, List.of()));
+    for (PlanQuestion question : questions) {
+      if (!removed.contains(question.number())) {
+        items.add(replaced.getOrDefault(question.number(), question.text()));
+      }
+      items.addAll(inserted.getOrDefault(question.number(), List.of()));
+    }
+    if (items.isEmpty()) {
+      return Optional.empty();
+    }
+    int[] heading = lastHeading(plan);
+    int end = listEnd(plan, heading[1]);
+    StringBuilder patched = new StringBuilder(plan.substring(0, heading[1])).append('\n');
+    for (int i = 0; i < items.size(); i++) {
+      patched.append(i + 1).append(". ").append(items.get(i).strip().replace("\n", "\n   ")).append('\n');
+    }
+    if (end < plan.length()) {
+      patched.append('\n').append(plan.substring(end));
+    }
+    String result = patched.toString();
+    // Item texts come from the model, a line in them that reads as a list item would shift the numbering
+    return parse(result).size() == items.size() ? Optional.of(result) : Optional.empty();
+  }
+
+  /**
+   * Number of the last main question the interviewer asked in {@code answer}.
+   */
+  public static OptionalInt askedQuestion(String answer) {
+    if (answer == null) {
+      return OptionalInt.empty();
+    }
+    Matcher matcher = ASKED.matcher(answer);
+    OptionalInt asked = OptionalInt.empty();
+    while (matcher.find()) {
+      asked = OptionalInt.of(Integer.parseInt(matcher.group(1)));
+    }
+    return asked;
+  }
+
+  private static PlanQuestion question(int number, CharSequence text) {
+    String value = text.toString();
+    Matcher topic = TOPIC.matcher(value);
+    Matcher difficulty = DIFFICULTY.matcher(value);
+    return new PlanQuestion(
+        number,
+        topic.find() ? topic.group(1).strip() : null,
+        difficulty.find() ? difficulty.group(1).toLowerCase().replace('ё', 'е') : null,
+        value);
+  }
+
+  // Start of the first line after the question list that ends it, or the plan length
+  private static int listEnd(String plan, int listStart) {
+    Matcher sectionEnd = SECTION_END_LINE.matcher(plan);
+    return sectionEnd.find(listStart) ? sectionEnd.start() : plan.length();
+  }
+
+  // The analysis may mention the list by name, the list itself is the last section
+  private static int[] lastHeading(String plan) {
+    if (plan == null) {
+      return null;
+    }
+    Matcher matcher = HEADING.matcher(plan);
+    int[] heading = null;
+    while (matcher.find()) {
+      heading = new int[] {matcher.start(), matcher.end()};
+    }
+    return heading;
+  }
+}
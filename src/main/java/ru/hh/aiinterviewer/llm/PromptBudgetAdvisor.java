@@ -0,0 +1,127 @@
+package ru.hh.aiinterviewer.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import ru.hh.aiinterviewer.utils.LruCache;
+
+/**
+ * Checks the size of a request with the local tokenizer before it is sent, and keeps it within
+ * {@code maxPromptTokens}: the chat memory only requests a compaction when the history outgrows its budget, and the
+ * turn that triggered it would otherwise go out oversized. The oldest conversation messages are dropped first;
+ * system messages and the latest message are always sent.
+ * <p>
+ * The system prompt and history messages are the same strings turn after turn, their counts are cached.
+ */
+public class PromptBudgetAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private static final Logger log = LoggerFactory.getLogger(PromptBudgetAdvisor.class);
+  // Role and separators the chat format adds around every message
+  private static final int TOKENS_PER_MESSAGE = 4;
+  private static final long MAX_CACHED_CHARS = 4_000_000;
+
+  private final int maxPromptTokens;
+  private final int order;
+  private final LruCache<CountKey, Integer> counts =
+      new LruCache<>(MAX_CACHED_CHARS, 0, (key, count) -> key.text().length());
+  private final DistributionSummary estimatedTokens;
+  private final Counter droppedMessages;
+
+  public PromptBudgetAdvisor(int maxPromptTokens, MeterRegistry meterRegistry, int order) {
+    this.maxPromptTokens = maxPromptTokens;
+    this.order = order;
+    this.estimatedTokens = DistributionSummary.builder("llm.prompt.tokens.estimated")
+        .description("Prompt size counted locally before the model call")
+        .register(meterRegistry);
+    this.droppedMessages = Counter.builder("llm.prompt.messages.dropped")
+        .description("History messages left out of a request to fit the prompt token budget")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    return chain.nextCall(fit(request));
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return chain.nextStream(fit(request));
+  }
+
+  ChatClientRequest fit(ChatClientRequest request) {
+    Prompt prompt = request.prompt();
+    TokenCounter counter = TokenCounter.forModel(prompt.getOptions() == null ? null : prompt.getOptions().getModel());
+    List<Message> messages = new ArrayList<>(prompt.getInstructions());
+    int tokens = 0;
+    for (Message message : messages) {
+      tokens += count(counter, message);
+    }
+    estimatedTokens.record(tokens);
+    if (tokens <= maxPromptTokens) {
+      return request;
+    }
+
+    int dropped = 0;
+    int oldest = indexOfOldestDroppable(messages);
+    while (tokens > maxPromptTokens && oldest >= 0) {
+      tokens -= count(counter, messages.remove(oldest));
+      dropped++;
+      oldest = indexOfOldestDroppable(messages);
+    }
+    droppedMessages.increment(dropped);
+    log.warn("Prompt for conversation {} exceeds {} tokens, dropped {} oldest messages, {} tokens left",
+        request.context().get(ChatMemory.CONVERSATION_ID), maxPromptTokens, dropped, tokens);
+    return request.mutate().prompt(prompt.mutate().messages(messages).build()).build();
+  }
+
+  private int count(TokenCounter counter, Message message) {
+    String text = message.getText();
+    if (text == null || text.isEmpty()) {
+      return TOKENS_PER_MESSAGE;
+    }
+    CountKey key = new CountKey(counter.getEncodingName(), text);
+    Integer count = counts.get(key);
+    if (count == null) {
+      count = counter.count(text);
+      counts.put(key, count);
+    }
+    return count + TOKENS_PER_MESSAGE;
+  }
+
+  private static int indexOfOldestDroppable(List<Message> messages) {
+    for (int i = 0; i < messages.size() - 1; i++) {
+      if (messages.get(i).getMessageType() != MessageType.SYSTEM) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String getName() {
+    return PromptBudgetAdvisor.class.getSimpleName();
+  }
+
+  @Override
+  public int getOrder() {
+    return order;
+  }
+
+  private record CountKey(String encoding, String text) {
+  }
+}
@@ -0,0 +1,125 @@
+package ru.hh.aiinterviewer.llm;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import reactor.core.publisher.Flux;
+import ru.hh.aiinterviewer.service.TokenAccounting;
+
+/**
+ * Arranges interviewer requests for provider-side prompt caching, which only reuses an exact prefix of the request.
+ * <p>
+ * The memory advisor puts history in front of the request's own messages, so the system prompt (instructions plus
+ * plan, the same for every turn of a session) ended up after a history that changes every turn. Here the request's
+ * system prompt goes first, followed by system messages from the history (the rolling summary, which changes only
+ * on compaction), then the conversation. The session id is sent as the OpenAI {@code user} so that requests of one
+ * session are routed to the same cache.
+ * <p>
+ * Cached and uncached prompt tokens of every call are recorded from the usage metadata; streamed calls request the
+ * trailing usage chunk for that. The usage is also accounted to the session the call was made for.
+ */
+public class PromptCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private static final Logger log = LoggerFactory.getLogger(PromptCacheAdvisor.class);
+
+  private final DistributionSummary cachedTokens;
+  private final DistributionSummary uncachedTokens;
+  private final TokenAccounting tokenAccounting;
+  private final int order;
+
+  public PromptCacheAdvisor(MeterRegistry meterRegistry, TokenAccounting tokenAccounting, int order) {
+    this.cachedTokens = promptTokens(meterRegistry, "hit");
+    this.uncachedTokens = promptTokens(meterRegistry, "miss");
+    this.tokenAccounting = tokenAccounting;
+    this.order = order;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    ChatClientResponse response = chain.nextCall(arrange(request, false));
+    record(request, response.chatResponse());
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return chain.nextStream(arrange(request, true))
+        .doOnNext(response -> record(request, response.chatResponse()));
+  }
+
+  static List<Message> layout(List<Message> messages) {
+    List<Message> ordered = new ArrayList<>(messages.size());
+    messages.stream()
+        .filter(message -> message.getMessageType() == MessageType.SYSTEM && !SessionChatMemory.isFromHistory(message))
+        .forEach(ordered::add);
+    messages.stream()
+        .filter(message -> message.getMessageType() == MessageType.SYSTEM && SessionChatMemory.isFromHistory(message))
+        .forEach(ordered::add);
+    messages.stream()
+        .filter(message -> message.getMessageType() != MessageType.SYSTEM)
+        .forEach(ordered::add);
+    return ordered;
+  }
+
+  private static ChatClientRequest arrange(ChatClientRequest request, boolean stream) {
+    Prompt prompt = request.prompt();
+    Prompt.Builder arranged = prompt.mutate().messages(layout(prompt.getInstructions()));
+    // Other providers keep their options as they are
+    if (prompt.getOptions() instanceof OpenAiChatOptions options) {
+      OpenAiChatOptions copy = options.copy();
+      Object conversationId = request.context().get(ChatMemory.CONVERSATION_ID);
+      if (conversationId != null) {
+        copy.setUser(conversationId.toString());
+      }
+      if (stream) {
+        copy.setStreamUsage(true);
+      }
+      arranged.chatOptions(copy);
+    }
+    return request.mutate().prompt(arranged.build()).build();
+  }
+
+  private void record(ChatClientRequest request, ChatResponse response) {
+    TokenUsage.of(response).ifPresent(usage -> {
+      cachedTokens.record(usage.cached());
+      uncachedTokens.record(usage.prompt() - usage.cached());
+      Object conversationId = request.context().get(ChatMemory.CONVERSATION_ID);
+      log.debug("Prompt tokens for conversation {}: {} cached of {}", conversationId, usage.cached(), usage.prompt());
+      if (tokenAccounting != null && conversationId != null) {
+        tokenAccounting.record(conversationId.toString(), usage, true);
+      }
+    });
+  }
+
+  private static DistributionSummary promptTokens(MeterRegistry meterRegistry, String cache) {
+    return DistributionSummary.builder("llm.prompt.tokens")
+        .description("Prompt tokens per model call by whether the provider served them from its prompt cache")
+        .tag("cache", cache)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String getName() {
+    return PromptCacheAdvisor.class.getSimpleName();
+  }
+
+  @Override
+  public int getOrder() {
+    return order;
+  }
+}
@@ -1,38 +1,156 @@
 package ru.hh.aiinterviewer.llm;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import lombok.Builder;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
-import ru.hh.aiinterviewer.domain.model.Session;
+import org.springframework.ai.chat.messages.SystemMessage;
+import ru.hh.aiinterviewer.domain.model.ConversationSummary;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
 import ru.hh.aiinterviewer.domain.model.SessionMessage;
-import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+import ru.hh.aiinterviewer.domain.repository.ConversationSummaryRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.service.ConversationSummarizer;
+import ru.hh.aiinterviewer.service.TokenAccounting;
 
-@Builder
+/**
+ * Chat memory backed by the {@code messages} table.
+ * <p>
+ * Reads only the last {@code maxMessages} messages of the session (plus stored system messages) with one query
+ * and appends new messages with plain INSERTs, never touching the {@code Session} aggregate.
+ * <p>
+ * With a {@link ConversationSummarizer}, messages already folded into the session's rolling summary are replaced
+ * by that summary (as a leading system message). When the remaining verbatim messages exceed {@code maxTokens} or
+ * {@code maxMessages}, a compaction is requested; it runs in the background and affects later turns only.
+ * <p>
+ * Stored assistant messages carry the provider usage of the call that produced them, taken from {@link TokenAccounting}.
+ */
 public class SessionChatMemory implements ChatMemory {
 
-    private SessionRepository sessionRepository;
+    private static final String HISTORY_METADATA = "fromHistory";
+    private static final String SUMMARY_PREFIX = "Краткое содержание начала интервью (ранние сообщения опущены):\n";
 
-    private int maxMessages;
+    private final SessionMessageRepository sessionMessageRepository;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ConversationSummarizer conversationSummarizer;
+    private final TokenAccounting tokenAccounting;
+    private final int maxMessages;
+    private final int maxTokens;
+
+    private final DistributionSummary windowSize;
+    private final Counter readQueries;
+    private final Counter messagesWritten;
+
+    @Builder
+    private SessionChatMemory(SessionMessageRepository sessionMessageRepository,
+                              ConversationSummaryRepository conversationSummaryRepository,
+                              ConversationSummarizer conversationSummarizer, TokenAccounting tokenAccounting,
+                              int maxMessages, int maxTokens, MeterRegistry meterRegistry) {
+        this.sessionMessageRepository = sessionMessageRepository;
+        this.conversationSummaryRepository = conversationSummaryRepository;
+        this.conversationSummarizer = conversationSummarizer;
+        this.tokenAccounting = tokenAccounting;
+        this.maxMessages = maxMessages;
+        this.maxTokens = maxTokens;
+        this.windowSize = DistributionSummary.builder("chat.memory.window.size")
+                .description("Number of history messages passed to the model per request")
+                .register(meterRegistry);
+        this.readQueries = Counter.builder("chat.memory.db.queries")
+                .description("Database round-trips made by the chat memory")
+                .tag("operation", "get")
+                .register(meterRegistry);
+        // saveAll is not batched, every message is written by a statement of its own
+        this.messagesWritten = Counter.builder("chat.memory.messages.written")
+                .description("Messages stored by the chat memory")
+                .register(meterRegistry);
+    }
 
     @Override
     public void add(String conversationId, List<Message> messages) {
-        Session session = sessionRepository.findById(UUID.fromString(conversationId)).orElseThrow();
-        for (Message message : messages) {
-            session.addMessage(SessionMessage.from(message));
+        if (messages.isEmpty()) {
+            return;
         }
-        sessionRepository.save(session);
+        UUID sessionId = UUID.fromString(conversationId);
+        sessionMessageRepository.saveAll(messages.stream()
+                .map(message -> withUsage(SessionMessage.from(sessionId, message)))
+                .toList());
+        messagesWritten.increment(messages.size());
     }
 
-
     @Override
     public List<Message> get(String conversationId) {
-        Session session = sessionRepository.findById(UUID.fromString(conversationId)).orElseThrow();
-        return session.getMessages().stream()
-                .map(SessionMessage::toMessage)
-                .toList();
+        UUID sessionId = UUID.fromString(conversationId);
+        if (conversationSummarizer == null || !conversationSummarizer.isEnabled()) {
+            List<SessionMessage> window = sessionMessageRepository.findWindow(sessionId, maxMessages);
+            readQueries.increment();
+            windowSize.record(window.size());
+            return window.stream()
+                    .map(SessionChatMemory::toMessage)
+                    .toList();
+        }
+
+        ConversationSummary summary = conversationSummaryRepository.findById(sessionId).orElse(null);
+        // One extra message tells that the unsummarized part no longer fits the window
+        List<SessionMessage> window = new ArrayList<>(sessionMessageRepository.findWindowAfter(
+                sessionId, ConversationSummarizer.coveredUntil(summary), maxMessages + 1));
+        readQueries.increment(2);
+        boolean overflow = window.stream().filter(message -> message.getRole() != MessageRole.SYSTEM).count() > maxMessages;
+        if (overflow) {
+            window.remove(indexOfOldestNonSystem(window));
+        }
+        int tokens = window.stream()
+                .mapToInt(SessionMessage::getTokenCount)
+                .sum();
+        if (overflow || tokens > maxTokens) {
+            conversationSummarizer.request(sessionId);
+        }
+        windowSize.record(window.size());
+
+        List<Message> messages = new ArrayList<>(window.size() + 1);
+        if (summary != null) {
+            messages.add(historySystemMessage(SUMMARY_PREFIX + summary.getSummary()));
+        }
+        window.forEach(message -> messages.add(toMessage(message)));
+        return messages;
+    }
 
+    /**
+     * System messages coming from the history, as opposed to the system prompt of the request itself.
+     */
+    public static boolean isFromHistory(Message message) {
+        return Boolean.TRUE.equals(message.getMetadata().get(HISTORY_METADATA));
+    }
+
+    private SessionMessage withUsage(SessionMessage message) {
+        if (tokenAccounting == null || message.getRole() != MessageRole.ASSISTANT) {
+            return message;
+        }
+        return tokenAccounting.takeMessageUsage(message.getSessionId())
+                .map(message::withUsage)
+                .orElse(message);
+    }
+
+    private static Message toMessage(SessionMessage message) {
+        return message.getRole() == MessageRole.SYSTEM ? historySystemMessage(message.getContent()) : message.toMessage();
+    }
+
+    private static Message historySystemMessage(String text) {
+        return SystemMessage.builder().text(text).metadata(Map.of(HISTORY_METADATA, true)).build();
+    }
+
+    private static int indexOfOldestNonSystem(List<SessionMessage> window) {
+        for (int i = 0; i < window.size(); i++) {
+            if (window.get(i).getRole() != MessageRole.SYSTEM) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
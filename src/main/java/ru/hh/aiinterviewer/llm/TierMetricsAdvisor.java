@@ -0,0 +1,103 @@
+package ru.hh.aiinterviewer.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+/**
+ * Records the latency and the billed tokens of every model call of one {@link Interaction}, tagged with the model
+ * that served it, so that the tiers configured under {@code app.models} can be compared on live traffic.
+ * <p>
+ * Sits right before the model, after the upstream limiter: queueing for a permit is not the model's latency.
+ * Streamed calls are timed to the last chunk and only report tokens when the stream requests the usage chunk.
+ */
+public class TierMetricsAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private final Interaction interaction;
+  private final MeterRegistry meterRegistry;
+
+  public TierMetricsAdvisor(Interaction interaction, MeterRegistry meterRegistry) {
+    this.interaction = interaction;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    long start = System.nanoTime();
+    ChatClientResponse response = chain.nextCall(request);
+    record(request, response.chatResponse(), System.nanoTime() - start);
+    return response;
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    return Flux.defer(() -> {
+      long start = System.nanoTime();
+      AtomicReference<ChatResponse> last = new AtomicReference<>();
+      return chain.nextStream(request)
+          .doOnNext(response -> {
+            if (response.chatResponse() != null) {
+              last.set(response.chatResponse());
+            }
+          })
+          .doOnComplete(() -> record(request, last.get(), System.nanoTime() - start));
+    });
+  }
+
+  private void record(ChatClientRequest request, ChatResponse response, long nanos) {
+    String model = model(request, response);
+    Timer.builder("llm.calls")
+        .description("Model call latency by interaction type and the model that served it")
+        .tag("interaction", interaction.tag())
+        .tag("model", model)
+        .register(meterRegistry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+    TokenUsage.of(response).ifPresent(usage -> {
+      tokens(model, "prompt").increment(usage.prompt());
+      tokens(model, "completion").increment(usage.completion());
+      tokens(model, "cached").increment(usage.cached());
+    });
+  }
+
+  // The provider reports the model version it used; the requested name is the fallback
+  private static String model(ChatClientRequest request, ChatResponse response) {
+    if (response != null && response.getMetadata() != null && response.getMetadata().getModel() != null
+        && !response.getMetadata().getModel().isBlank()) {
+      return response.getMetadata().getModel();
+    }
+    if (request.prompt().getOptions() != null && request.prompt().getOptions().getModel() != null) {
+      return request.prompt().getOptions().getModel();
+    }
+    return "default";
+  }
+
+  private Counter tokens(String model, String type) {
+    return Counter.builder("llm.tier.tokens")
+        .description("Tokens billed by interaction type and model")
+        .tag("interaction", interaction.tag())
+        .tag("model", model)
+        .tag("type", type)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String getName() {
+    return TierMetricsAdvisor.class.getSimpleName() + "-" + interaction.tag();
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE - 500;
+  }
+}
@@ -0,0 +1,69 @@
+package ru.hh.aiinterviewer.llm;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts tokens locally with the BPE encoding of an OpenAI model, without a round-trip to the provider.
+ * <p>
+ * Encodings are loaded once per JVM and shared: they are immutable and thread-safe. Models the tokenizer does not
+ * know (newer gpt-4.1 / gpt-5 families, OpenAI-compatible providers) use {@code o200k_base}, the encoding of all
+ * current OpenAI chat models. Counting never builds the token list.
+ */
+public final class TokenCounter {
+
+  // Every token covers at least one UTF-8 byte, and a char is at most three of them
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+  private static final Map<String, TokenCounter> BY_MODEL = new ConcurrentHashMap<>();
+  private static final TokenCounter DEFAULT = new TokenCounter(REGISTRY.getEncoding(EncodingType.O200K_BASE));
+
+  private final Encoding encoding;
+
+  private TokenCounter(Encoding encoding) {
+    this.encoding = encoding;
+  }
+
+  public static TokenCounter getDefault() {
+    return DEFAULT;
+  }
+
+  public static TokenCounter forModel(String model) {
+    if (model == null || model.isBlank()) {
+      return DEFAULT;
+    }
+    return BY_MODEL.computeIfAbsent(model, m -> REGISTRY.getEncodingForModel(m)
+        .filter(encoding -> !encoding.getName().equals(DEFAULT.encoding.getName()))
+        .map(TokenCounter::new)
+        .orElse(DEFAULT));
+  }
+
+  public int count(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    // Special tokens in user text are counted as plain text, the way the API treats them
+    return encoding.countTokensOrdinary(text);
+  }
+
+  /**
+   * Cuts the text to at most {@code maxTokens} tokens, on a token boundary.
+   */
+  public String truncate(String text, int maxTokens) {
+    if (text == null || (long) text.length() * MAX_BYTES_PER_CHAR <= maxTokens) {
+      return text;
+    }
+    EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+    return result.isTruncated() ? text.substring(0, result.getLastProcessedCharacterIndex() + 1) : text;
+  }
+
+  public String getEncodingName() {
+    return encoding.getName();
+  }
+}
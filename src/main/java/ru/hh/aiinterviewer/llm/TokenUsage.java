@@ -0,0 +1,32 @@
+package ru.hh.aiinterviewer.llm;
+
+import java.util.Optional;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+/**
+ * Tokens billed for one model call, as reported by the provider. {@code cached} is the part of the prompt served
+ * from the provider's prompt cache.
+ */
+public record TokenUsage(int prompt, int completion, int cached) {
+
+  public static Optional<TokenUsage> of(ChatResponse response) {
+    if (response == null || response.getMetadata() == null) {
+      return Optional.empty();
+    }
+    Usage usage = response.getMetadata().getUsage();
+    // Stream chunks other than the trailing one carry no usage
+    if (usage == null || usage.getPromptTokens() == null || usage.getPromptTokens() == 0) {
+      return Optional.empty();
+    }
+    int cached = 0;
+    if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage
+        && nativeUsage.promptTokensDetails() != null
+        && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+      cached = nativeUsage.promptTokensDetails().cachedTokens();
+    }
+    int completion = usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+    return Optional.of(new TokenUsage(usage.getPromptTokens(), completion, cached));
+  }
+}
@@ -0,0 +1,54 @@
+package ru.hh.aiinterviewer.llm;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import ru.hh.aiinterviewer.service.Upstream;
+import ru.hh.aiinterviewer.service.UpstreamLimiters;
+
+/**
+ * Holds an {@link Upstream#LLM} permit for the duration of the model call (or of the whole token stream).
+ * Ordered right before the model call so that memory reads and writes do not consume permits.
+ */
+public class UpstreamLimitAdvisor implements CallAdvisor, StreamAdvisor {
+
+  private final UpstreamLimiters upstreamLimiters;
+
+  public UpstreamLimitAdvisor(UpstreamLimiters upstreamLimiters) {
+    this.upstreamLimiters = upstreamLimiters;
+  }
+
+  @Override
+  public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+    return upstreamLimiters.call(Upstream.LLM, () -> chain.nextCall(request));
+  }
+
+  @Override
+  public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+    // Waiting for a permit blocks, so it must not happen on the caller's (possibly event loop) thread
+    return Flux.using(
+            () -> {
+              upstreamLimiters.acquire(Upstream.LLM);
+              return Upstream.LLM;
+            },
+            upstream -> chain.nextStream(request),
+            upstreamLimiters::release)
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  @Override
+  public String getName() {
+    return UpstreamLimitAdvisor.class.getSimpleName();
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE - 1000;
+  }
+}
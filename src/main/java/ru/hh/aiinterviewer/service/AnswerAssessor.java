@@ -0,0 +1,232 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.AnswerAssessment;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
+import ru.hh.aiinterviewer.domain.model.PlanQuestion;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.AnswerAssessmentRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.Prompts;
+import ru.hh.aiinterviewer.llm.TokenUsage;
+
+/**
+ * Scores candidate answers in the background while the interview goes on, so that the final feedback is assembled
+ * from ready assessments (see {@link FeedbackAssembler}) instead of re-reading the whole transcript.
+ * <p>
+ * An answer is scored once its turn is stored, against the interviewer message it answered and the plan item of
+ * the current main question. Scoring uses {@code app.assessment-model} with structured output and runs on the
+ * {@code assessmentExecutor} pool of {@code app.assessment-concurrency} workers; a failed assessment is only
+ * logged, the feedback then falls back to the full transcript.
+ */
+@Component
+public class AnswerAssessor {
+
+  private static final Logger log = LoggerFactory.getLogger(AnswerAssessor.class);
+  // The answered question, the answer and the reply to it, plus slack for a summary system message
+  private static final int WINDOW = 4;
+
+  private final ApplicationProperties applicationProperties;
+  private final ChatClient answerAssessmentChatClient;
+  private final SessionMessageRepository sessionMessageRepository;
+  private final AnswerAssessmentRepository answerAssessmentRepository;
+  private final ExecutorService assessmentExecutor;
+  private final TokenAccounting tokenAccounting;
+  private final Map<UUID, Set<CompletableFuture<Void>>> pending = new ConcurrentHashMap<>();
+  private final Counter assessed;
+  private final Counter failed;
+  private final Timer duration;
+
+  public AnswerAssessor(ApplicationProperties applicationProperties, ChatClient answerAssessmentChatClient,
+                        SessionMessageRepository sessionMessageRepository,
+                        AnswerAssessmentRepository answerAssessmentRepository, ExecutorService assessmentExecutor,
+                        TokenAccounting tokenAccounting, MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.answerAssessmentChatClient = answerAssessmentChatClient;
+    this.sessionMessageRepository = sessionMessageRepository;
+    this.answerAssessmentRepository = answerAssessmentRepository;
+    this.assessmentExecutor = assessmentExecutor;
+    this.tokenAccounting = tokenAccounting;
+    this.assessed = assessments(meterRegistry, "success");
+    this.failed = assessments(meterRegistry, "failure");
+    this.duration = Timer.builder("answer.assessment.duration")
+        .description("Time to score one answer, including the model call")
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return applicationProperties.isAssessmentEnabled();
+  }
+
+  /**
+   * Schedules scoring of an answer to main question {@code questionNumber} that has just been stored.
+   */
+  public void request(Session session, int questionNumber, String answer) {
+    if (!isEnabled() || questionNumber <= 0 || answer == null || answer.isBlank()) {
+      return;
+    }
+    UUID sessionId = session.getId();
+    PlanQuestion planned = session.getPlanQuestions() == null ? null : session.getPlanQuestions().stream()
+        .filter(question -> question.number() == questionNumber)
+        .findFirst()
+        .orElse(null);
+    CompletableFuture<Void> task = new CompletableFuture<>();
+    // Added under the map's lock: done() drops the set of a session once it is empty
+    pending.compute(sessionId, (id, tasks) -> {
+      Set<CompletableFuture<Void>> updated = tasks == null ? ConcurrentHashMap.newKeySet() : tasks;
+      updated.add(task);
+      return updated;
+    });
+    try {
+      assessmentExecutor.execute(() -> {
+        try {
+          duration.record(() -> assess(sessionId, questionNumber, planned, answer));
+        } finally {
+          done(sessionId, task);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      done(sessionId, task);
+    }
+  }
+
+  /**
+   * Waits for the assessments of the session still being scored.
+   *
+   * @return false if some of them did not finish in time
+   */
+  public boolean awaitPending(UUID sessionId, long timeoutMs) {
+    Set<CompletableFuture<Void>> tasks = pending.get(sessionId);
+    if (tasks == null || tasks.isEmpty()) {
+      return true;
+    }
+    try {
+      CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).get(timeoutMs, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException e) {
+      return false;
+    }
+  }
+
+  void assess(UUID sessionId, int questionNumber, PlanQuestion planned, String answer) {
+    try {
+      List<SessionMessage> window = sessionMessageRepository.findWindow(sessionId, WINDOW);
+      String question = answeredQuestion(window, answer);
+      score(sessionId, questionNumber, question != null ? question : text(planned), answer,
+          Prompts.getAnswerAssessmentPrompt(question, text(planned), answer));
+    } catch (RuntimeException e) {
+      failed.increment();
+      log.warn("Answer assessment failed for session {}, question {}", sessionId, questionNumber, e);
+    }
+  }
+
+  /**
+   * Scores the whole exchange on main question {@code questionNumber} in one call, for answers that were not scored
+   * one by one. Runs on the caller's thread.
+   *
+   * @param question the interviewer message that asked the question
+   * @param answers  the candidate messages of the exchange
+   */
+  public Optional<AnswerAssessment> assessSegment(UUID sessionId, int questionNumber, PlanQuestion planned,
+                                                  String question, String answers, String transcript) {
+    try {
+      return duration.record(() -> score(sessionId, questionNumber, question, answers,
+          Prompts.getSegmentAssessmentPrompt(text(planned), transcript)));
+    } catch (RuntimeException e) {
+      failed.increment();
+      log.warn("Segment assessment failed for session {}, question {}", sessionId, questionNumber, e);
+      return Optional.empty();
+    }
+  }
+
+  private Optional<AnswerAssessment> score(UUID sessionId, int questionNumber, String question, String answer,
+                                           String prompt) {
+    ResponseEntity<ChatResponse, Assessment> response = answerAssessmentChatClient.prompt()
+        .user(prompt)
+        .call()
+        .responseEntity(Assessment.class);
+    TokenUsage.of(response.response()).ifPresent(usage -> tokenAccounting.record(sessionId, usage, false));
+    Assessment assessment = response.entity();
+    if (assessment == null) {
+      failed.increment();
+      return Optional.empty();
+    }
+    AnswerAssessment scored = AnswerAssessment.builder()
+        .sessionId(sessionId)
+        .questionNumber(questionNumber)
+        .question(question)
+        .answer(answer)
+        .score(Math.clamp(assessment.score(), 0, 10))
+        .summary(assessment.summary())
+        .strengths(assessment.strengths())
+        .gaps(assessment.gaps())
+        .build();
+    answerAssessmentRepository.save(scored);
+    assessed.increment();
+    return Optional.of(scored);
+  }
+
+  private static String text(PlanQuestion planned) {
+    return planned == null ? null : planned.text();
+  }
+
+  /**
+   * The interviewer message right before the answer: the main question or a clarifying one.
+   */
+  private static String answeredQuestion(List<SessionMessage> window, String answer) {
+    for (int i = window.size() - 1; i > 0; i--) {
+      SessionMessage message = window.get(i);
+      if (message.getRole() == MessageRole.USER && answer.equals(message.getContent())) {
+        SessionMessage previous = window.get(i - 1);
+        return previous.getRole() == MessageRole.ASSISTANT ? previous.getContent() : null;
+      }
+    }
+    return null;
+  }
+
+  private void done(UUID sessionId, CompletableFuture<Void> task) {
+    task.complete(null);
+    pending.computeIfPresent(sessionId, (id, tasks) -> {
+      tasks.remove(task);
+      return tasks.isEmpty() ? null : tasks;
+    });
+  }
+
+  private static Counter assessments(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("answer.assessments")
+        .description("Candidate answers scored in the background")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Structured output of the assessment model.
+   */
+  public record Assessment(int score, String summary, String strengths, String gaps) {
+  }
+}
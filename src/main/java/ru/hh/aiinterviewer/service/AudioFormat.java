@@ -0,0 +1,55 @@
+package ru.hh.aiinterviewer.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+
+/**
+ * Audio containers accepted for transcription. Everything except WAV is passed to the model as is,
+ * the model picks the decoder by the file extension.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AudioFormat {
+
+  WAV("wav"),
+  OGG("ogg"),
+  WEBM("webm"),
+  M4A("m4a"),
+  FLAC("flac");
+
+  /**
+   * Number of leading bytes {@link #sniff(byte[])} needs.
+   */
+  static final int SNIFF_SIZE = 12;
+
+  private final String extension;
+
+  static AudioFormat sniff(byte[] prefix) {
+    if (startsWith(prefix, 0, "RIFF")) {
+      return WAV;
+    }
+    if (startsWith(prefix, 0, "OggS")) {
+      return OGG;
+    }
+    if (startsWith(prefix, 0, "fLaC")) {
+      return FLAC;
+    }
+    if (startsWith(prefix, 4, "ftyp")) {
+      return M4A;
+    }
+    if ((prefix[0] & 0xFF) == 0x1A && (prefix[1] & 0xFF) == 0x45 && (prefix[2] & 0xFF) == 0xDF && (prefix[3] & 0xFF) == 0xA3) {
+      return WEBM;
+    }
+    throw new UnsupportedAudioFormatException("Unsupported audio format, expected WAV, OGG/Opus, WebM, M4A/AAC or FLAC");
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, String magic) {
+    for (int i = 0; i < magic.length(); i++) {
+      if (bytes[offset + i] != magic.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,188 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+
+/**
+ * Shrinks WAV uploads before transcription: leading and trailing silence is trimmed by frame energy, channels are
+ * averaged to mono and the signal is downsampled to {@code app.audio-target-sample-rate} as 16-bit PCM. The speech
+ * model works at 16 kHz mono anyway, so this only cuts upload size and billed audio duration.
+ * <p>
+ * Samples are decoded block by block into a reused {@code float[]}, in two passes over the spooled data (find the
+ * speech range, then render it), so memory stays bounded for long recordings. Compressed containers are passed
+ * through untouched: decoding them would need native codecs.
+ */
+@Component
+public class AudioPreprocessor {
+
+  private static final Logger log = LoggerFactory.getLogger(AudioPreprocessor.class);
+
+  private static final int BLOCK_FRAMES = 8192;
+  private static final int VAD_FRAME_MS = 20;
+
+  private final ApplicationProperties applicationProperties;
+  private final DistributionSummary bytesSaved;
+  private final Timer duration;
+
+  public AudioPreprocessor(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.bytesSaved = DistributionSummary.builder("audio.preprocess.bytes.saved")
+        .description("Upload bytes removed by trimming, downmixing and resampling before transcription")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    this.duration = Timer.builder("audio.preprocess.duration")
+        .description("Time spent preprocessing an audio upload")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns a new spooled recording, or {@code audio} itself when there is nothing to gain. Both must be closed.
+   */
+  public SpooledAudio preprocess(SpooledAudio audio) throws IOException {
+    PcmLayout pcm = audio.pcm();
+    if (!applicationProperties.isAudioPreprocessingEnabled() || pcm == null || !isSupported(pcm)) {
+      return audio;
+    }
+    long start = System.nanoTime();
+    int targetRate = Math.min(pcm.sampleRate(), applicationProperties.getAudioTargetSampleRate());
+    long[] speech = speechRange(audio, pcm);
+    boolean trimmed = speech[1] - speech[0] < pcm.frames();
+    boolean converted = pcm.channels() != 1 || pcm.encoding() != PcmLayout.PCM || pcm.bitsPerSample() != 16
+        || targetRate != pcm.sampleRate();
+
+    SpooledAudio result = trimmed || converted ? render(audio, pcm, speech, targetRate) : audio;
+    long elapsed = System.nanoTime() - start;
+    long saved = audio.size() - result.size();
+    duration.record(elapsed, TimeUnit.NANOSECONDS);
+    bytesSaved.record(Math.max(saved, 0));
+    log.debug("Audio preprocessed in {} ms: {} -> {} bytes, {} Hz x{} -> {} Hz mono, kept {} of {} frames",
+        TimeUnit.NANOSECONDS.toMillis(elapsed), audio.size(), result.size(), pcm.sampleRate(), pcm.channels(),
+        targetRate, speech[1] - speech[0], pcm.frames());
+    return result;
+  }
+
+  private static boolean isSupported(PcmLayout pcm) {
+    int bits = pcm.bitsPerSample();
+    return pcm.encoding() == PcmLayout.PCM ? bits >= 8 && bits <= 32 : bits == 32 || bits == 64;
+  }
+
+  /**
+   * First and last frame (exclusive) of the span between the first and the last VAD frame louder than the
+   * threshold, widened by the padding. A recording without any such frame is kept whole.
+   */
+  private long[] speechRange(SpooledAudio audio, PcmLayout pcm) throws IOException {
+    int frameLength = Math.max(1, pcm.sampleRate() * VAD_FRAME_MS / 1000);
+    double threshold = Math.pow(10, applicationProperties.getAudioVadThresholdDbfs() / 20);
+    double minEnergy = threshold * threshold * frameLength;
+    long[] range = {-1, -1};
+    double[] energy = {0};
+    long[] position = {0};
+    decodeMono(audio, pcm, 0, pcm.frames(), (samples, count) -> {
+      for (int i = 0; i < count; i++) {
+        energy[0] += samples[i] * samples[i];
+        if (++position[0] % frameLength == 0) {
+          if (energy[0] >= minEnergy) {
+            long frame = position[0] / frameLength - 1;
+            if (range[0] < 0) {
+              range[0] = frame;
+            }
+            range[1] = frame;
+          }
+          energy[0] = 0;
+        }
+      }
+    });
+    if (range[0] < 0) {
+      return new long[]{0, pcm.frames()};
+    }
+    long padding = (long) pcm.sampleRate() * applicationProperties.getAudioVadPaddingMs() / 1000;
+    return new long[]{
+        Math.max(0, range[0] * frameLength - padding),
+        Math.min(pcm.frames(), (range[1] + 1) * frameLength + padding)};
+  }
+
+  private SpooledAudio render(SpooledAudio audio, PcmLayout pcm, long[] range, int targetRate) throws IOException {
+    long inputCount = range[1] - range[0];
+    SincResampler resampler = targetRate == pcm.sampleRate() ? null : new SincResampler(pcm.sampleRate(), targetRate, inputCount);
+    long outputCount = resampler == null ? inputCount : resampler.outputCount();
+    float[] resampled = new float[resampler == null ? BLOCK_FRAMES : resampler.maxOutput(BLOCK_FRAMES)];
+    ByteBuffer block = ByteBuffer.allocate(resampled.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+    try (SpoolBuffer buffer = new SpoolBuffer(applicationProperties.getAudioSpoolMemoryThresholdBytes())) {
+      PcmLayout layout = new PcmLayout(PcmLayout.PCM, 1, targetRate, 16, PcmLayout.WAV_HEADER_SIZE, outputCount * 2);
+      byte[] header = layout.wavHeader();
+      buffer.write(header, 0, header.length, AudioFormat.WAV);
+      SampleConsumer writer = (samples, count) -> {
+        block.clear();
+        for (int i = 0; i < count; i++) {
+          float sample = Math.max(-1f, Math.min(1f, samples[i]));
+          block.putShort((short) Math.round(sample * Short.MAX_VALUE));
+        }
+        buffer.write(block.array(), 0, block.position(), AudioFormat.WAV);
+      };
+      decodeMono(audio, pcm, range[0], range[1], resampler == null ? writer
+          : (samples, count) -> writer.accept(resampled, resampler.process(samples, count, resampled)));
+      if (resampler != null) {
+        writer.accept(resampled, resampler.finish(resampled));
+      }
+      return buffer.finish(AudioFormat.WAV, layout);
+    }
+  }
+
+  static void decodeMono(SpooledAudio audio, PcmLayout pcm, long fromFrame, long toFrame,
+                                 SampleConsumer consumer) throws IOException {
+    int frameSize = pcm.frameSize();
+    int sampleSize = pcm.bitsPerSample() / 8;
+    int channels = pcm.channels();
+    byte[] bytes = new byte[BLOCK_FRAMES * frameSize];
+    ByteBuffer block = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    float[] mono = new float[BLOCK_FRAMES];
+    try (InputStream in = audio.resource().getInputStream()) {
+      in.skipNBytes(pcm.dataStart() + fromFrame * frameSize);
+      long remaining = toFrame - fromFrame;
+      while (remaining > 0) {
+        int frames = in.readNBytes(bytes, 0, (int) Math.min(BLOCK_FRAMES, remaining) * frameSize) / frameSize;
+        if (frames == 0) {
+          break;
+        }
+        for (int frame = 0, offset = 0; frame < frames; frame++) {
+          float sum = 0;
+          for (int channel = 0; channel < channels; channel++, offset += sampleSize) {
+            sum += sample(block, offset, pcm);
+          }
+          mono[frame] = sum / channels;
+        }
+        consumer.accept(mono, frames);
+        remaining -= frames;
+      }
+    }
+  }
+
+  private static float sample(ByteBuffer block, int offset, PcmLayout pcm) {
+    if (pcm.encoding() == PcmLayout.IEEE_FLOAT) {
+      return pcm.bitsPerSample() == 32 ? block.getFloat(offset) : (float) block.getDouble(offset);
+    }
+    return switch (pcm.bitsPerSample()) {
+      case 8 -> ((block.get(offset) & 0xFF) - 128) / 128f;
+      case 16 -> block.getShort(offset) / 32768f;
+      case 24 -> ((block.get(offset) & 0xFF) | (block.get(offset + 1) & 0xFF) << 8 | block.get(offset + 2) << 16) / 8388608f;
+      default -> block.getInt(offset) / 2147483648f;
+    };
+  }
+
+  @FunctionalInterface
+  interface SampleConsumer {
+
+    void accept(float[] samples, int count) throws IOException;
+  }
+}
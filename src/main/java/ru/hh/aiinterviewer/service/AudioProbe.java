@@ -0,0 +1,279 @@
+package ru.hh.aiinterviewer.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+
+/**
+ * Reads the duration of compressed audio from container headers, without decoding any samples:
+ * <ul>
+ *   <li>FLAC: total samples and sample rate from STREAMINFO;</li>
+ *   <li>OGG: granule position of the last page (Opus always counts at 48 kHz, Vorbis at its own rate);</li>
+ *   <li>M4A: timescale and duration of {@code moov/mvhd}, wherever the {@code moov} box is;</li>
+ *   <li>WebM: {@code Segment/Info/Duration}. Browsers' MediaRecorder doesn't write it, then the duration
+ *   is unknown and only the size limit applies.</li>
+ * </ul>
+ */
+final class AudioProbe {
+
+  private static final int OGG_TAIL_SIZE = 64 * 1024;
+  private static final int OGG_PAGE_HEADER_SIZE = 27;
+  private static final int OPUS_SAMPLE_RATE = 48_000;
+  private static final long WEBM_SCAN_LIMIT = 1024 * 1024;
+  private static final int WEBM_SEGMENT = 0x18538067;
+  private static final int WEBM_INFO = 0x1549A966;
+  private static final int WEBM_CLUSTER = 0x1F43B675;
+  private static final int WEBM_TIMECODE_SCALE = 0x2AD7B1;
+  private static final int WEBM_DURATION = 0x4489;
+
+  private AudioProbe() {
+  }
+
+  /**
+   * @return duration in seconds, or {@code null} if the container doesn't record it
+   */
+  static Double durationSeconds(SpooledAudio audio, int minSampleRate, int maxSampleRate) throws IOException {
+    return switch (audio.format()) {
+      case FLAC -> flac(audio, minSampleRate, maxSampleRate);
+      case OGG -> ogg(audio);
+      case M4A -> m4a(audio);
+      case WEBM -> webm(audio);
+      case WAV -> throw new IllegalArgumentException("WAV is validated while spooling");
+    };
+  }
+
+  private static Double flac(SpooledAudio audio, int minSampleRate, int maxSampleRate) throws IOException {
+    byte[] header = readFully(audio, 0, 42);
+    // The first metadata block must be STREAMINFO (type 0)
+    if ((header[4] & 0x7F) != 0) {
+      throw new UnsupportedAudioFormatException("FLAC STREAMINFO not found");
+    }
+    int sampleRate = ((header[18] & 0xFF) << 12) | ((header[19] & 0xFF) << 4) | ((header[20] & 0xFF) >> 4);
+    long totalSamples = ((long) (header[21] & 0x0F) << 32) | (be32(header, 22) & 0xFFFFFFFFL);
+    if (sampleRate < minSampleRate || sampleRate > maxSampleRate) {
+      throw new UnsupportedAudioFormatException("Unsupported sample rate");
+    }
+    return totalSamples == 0 ? null : (double) totalSamples / sampleRate;
+  }
+
+  private static Double ogg(SpooledAudio audio) throws IOException {
+    // First page: header, segment table (up to 255 entries), then the codec identification header
+    byte[] first = new byte[OGG_PAGE_HEADER_SIZE + 255 + 19];
+    int read = audio.read(0, first, first.length);
+    int payload = OGG_PAGE_HEADER_SIZE + (first[26] & 0xFF);
+    if (payload + 19 > read) {
+      throw new UnsupportedAudioFormatException("Truncated ogg header");
+    }
+    long rate;
+    long preSkip = 0;
+    if (startsWith(first, payload, "OpusHead")) {
+      rate = OPUS_SAMPLE_RATE;
+      preSkip = le16(first, payload + 10);
+    } else if (first[payload] == 1 && startsWith(first, payload + 1, "vorbis")) {
+      rate = le32(first, payload + 12) & 0xFFFFFFFFL;
+    } else {
+      throw new UnsupportedAudioFormatException("Unsupported OGG codec, expected Opus or Vorbis");
+    }
+
+    long tailStart = Math.max(0, audio.size() - OGG_TAIL_SIZE);
+    byte[] tail = new byte[(int) (audio.size() - tailStart)];
+    audio.read(tailStart, tail, tail.length);
+    for (int i = tail.length - OGG_PAGE_HEADER_SIZE; i >= 0; i--) {
+      if (startsWith(tail, i, "OggS")) {
+        long granule = le64(tail, i + 6);
+        // -1 marks a page where no packet ends, look further back
+        if (granule != -1) {
+          return rate == 0 ? null : (double) Math.max(0, granule - preSkip) / rate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Double m4a(SpooledAudio audio) throws IOException {
+    long moov = findBox(audio, 0, audio.size(), "moov");
+    if (moov < 0) {
+      throw new UnsupportedAudioFormatException("M4A moov box not found");
+    }
+    long moovEnd = moov + boxSize(audio, moov);
+    long mvhd = findBox(audio, moov + 8, moovEnd, "mvhd");
+    if (mvhd < 0) {
+      throw new UnsupportedAudioFormatException("M4A mvhd box not found");
+    }
+    byte[] box = readFully(audio, mvhd, 40);
+    long timescale;
+    long duration;
+    if (box[8] == 1) {
+      timescale = be32(box, 28) & 0xFFFFFFFFL;
+      duration = ((be32(box, 32) & 0xFFFFFFFFL) << 32) | (be32(box, 36) & 0xFFFFFFFFL);
+    } else {
+      timescale = be32(box, 20) & 0xFFFFFFFFL;
+      duration = be32(box, 24) & 0xFFFFFFFFL;
+    }
+    return timescale == 0 ? null : (double) duration / timescale;
+  }
+
+  private static long findBox(SpooledAudio audio, long from, long to, String type) throws IOException {
+    byte[] header = new byte[8];
+    long position = from;
+    while (position + 8 <= to) {
+      if (audio.read(position, header, 8) < 8) {
+        return -1;
+      }
+      if (startsWith(header, 4, type)) {
+        return position;
+      }
+      long size = boxSize(audio, position);
+      if (size < 8) {
+        return -1;
+      }
+      position += size;
+    }
+    return -1;
+  }
+
+  private static long boxSize(SpooledAudio audio, long position) throws IOException {
+    byte[] header = readFully(audio, position, 8);
+    long size = be32(header, 0) & 0xFFFFFFFFL;
+    if (size == 1) {
+      byte[] large = readFully(audio, position + 8, 8);
+      return ((be32(large, 0) & 0xFFFFFFFFL) << 32) | (be32(large, 4) & 0xFFFFFFFFL);
+    }
+    // 0 means the box extends to the end of the file
+    return size == 0 ? audio.size() - position : size;
+  }
+
+  private static Double webm(SpooledAudio audio) throws IOException {
+    byte[] data = new byte[(int) Math.min(audio.size(), WEBM_SCAN_LIMIT)];
+    audio.read(0, data, data.length);
+    Ebml ebml = new Ebml(data);
+
+    // EBML header, then the Segment
+    ebml.next();
+    ebml.skip();
+    if (!ebml.next() || ebml.id != WEBM_SEGMENT) {
+      throw new UnsupportedAudioFormatException("WebM segment not found");
+    }
+    while (ebml.next() && ebml.id != WEBM_CLUSTER) {
+      if (ebml.id != WEBM_INFO) {
+        ebml.skip();
+        continue;
+      }
+      long infoEnd = ebml.end();
+      long timecodeScale = 1_000_000;
+      Double duration = null;
+      while (ebml.position < infoEnd && ebml.next()) {
+        if (ebml.id == WEBM_TIMECODE_SCALE) {
+          timecodeScale = ebml.readUnsigned();
+        } else if (ebml.id == WEBM_DURATION) {
+          duration = ebml.readFloat();
+        } else {
+          ebml.skip();
+        }
+      }
+      return duration == null ? null : duration * timecodeScale / 1e9;
+    }
+    return null;
+  }
+
+  /**
+   * Minimal EBML element reader over a prefix of the file.
+   */
+  private static final class Ebml {
+
+    private final byte[] data;
+    private int position;
+    private int id;
+    private long size;
+
+    private Ebml(byte[] data) {
+      this.data = data;
+    }
+
+    boolean next() {
+      if (position >= data.length) {
+        return false;
+      }
+      int idLength = Integer.numberOfLeadingZeros(data[position] & 0xFF) - 23;
+      if (idLength > 4 || position + idLength > data.length) {
+        return false;
+      }
+      id = 0;
+      for (int i = 0; i < idLength; i++) {
+        id = (id << 8) | (data[position++] & 0xFF);
+      }
+      if (position >= data.length) {
+        return false;
+      }
+      int sizeLength = Integer.numberOfLeadingZeros(data[position] & 0xFF) - 23;
+      if (sizeLength > 8 || position + sizeLength > data.length) {
+        return false;
+      }
+      long value = data[position++] & (0xFF >> sizeLength);
+      boolean unknown = value == (0xFF >> sizeLength);
+      for (int i = 1; i < sizeLength; i++) {
+        int b = data[position++] & 0xFF;
+        unknown &= b == 0xFF;
+        value = (value << 8) | b;
+      }
+      // Live recordings write Segment and Cluster with "unknown" size
+      size = unknown ? Long.MAX_VALUE : value;
+      return true;
+    }
+
+    long end() {
+      return size == Long.MAX_VALUE ? data.length : position + size;
+    }
+
+    void skip() {
+      position = (int) Math.min(end(), data.length);
+    }
+
+    long readUnsigned() {
+      long value = 0;
+      for (int i = 0; i < size && position < data.length; i++) {
+        value = (value << 8) | (data[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    Double readFloat() {
+      long bits = readUnsigned();
+      if (size == 4) {
+        return (double) Float.intBitsToFloat((int) bits);
+      }
+      return size == 8 ? Double.longBitsToDouble(bits) : null;
+    }
+  }
+
+  private static byte[] readFully(SpooledAudio audio, long position, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    if (audio.read(position, bytes, length) < length) {
+      throw new UnsupportedAudioFormatException("Truncated " + audio.format().getExtension() + " header");
+    }
+    return bytes;
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, String magic) {
+    if (offset + magic.length() > bytes.length) {
+      return false;
+    }
+    return new String(bytes, offset, magic.length(), StandardCharsets.US_ASCII).equals(magic);
+  }
+
+  private static int le16(byte[] b, int off) {
+    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8);
+  }
+
+  private static int le32(byte[] b, int off) {
+    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+  }
+
+  private static long le64(byte[] b, int off) {
+    return (le32(b, off) & 0xFFFFFFFFL) | ((long) le32(b, off + 4) << 32);
+  }
+
+  private static int be32(byte[] b, int off) {
+    return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+  }
+}
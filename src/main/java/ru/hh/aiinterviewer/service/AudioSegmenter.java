@@ -0,0 +1,84 @@
+package ru.hh.aiinterviewer.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Splits a long WAV recording into segments of roughly equal length, cutting at the quietest 20 ms frame near
+ * each nominal boundary so that cuts land in pauses between words. Adjacent segments overlap slightly in case a
+ * cut still falls into a word; the duplicated words are removed when the transcripts are stitched.
+ */
+final class AudioSegmenter {
+
+  private static final int FRAME_MS = 20;
+
+  private AudioSegmenter() {
+  }
+
+  /**
+   * Frame ranges {@code [from, to)} of the segments, in order.
+   */
+  static List<long[]> segments(SpooledAudio audio, PcmLayout pcm, int segmentMs, int searchMs, int overlapMs)
+      throws IOException {
+    int frameLength = Math.max(1, pcm.sampleRate() * FRAME_MS / 1000);
+    float[] energy = new float[(int) ((pcm.frames() + frameLength - 1) / frameLength)];
+    long[] position = {0};
+    AudioPreprocessor.decodeMono(audio, pcm, 0, pcm.frames(), (samples, count) -> {
+      for (int i = 0; i < count; i++, position[0]++) {
+        energy[(int) (position[0] / frameLength)] += samples[i] * samples[i];
+      }
+    });
+
+    int segmentFrames = Math.max(1, segmentMs / FRAME_MS);
+    int searchFrames = searchMs / FRAME_MS;
+    long overlap = (long) pcm.sampleRate() * overlapMs / 1000;
+    List<long[]> segments = new ArrayList<>();
+    int start = 0;
+    // the last segment absorbs a remainder shorter than half a segment
+    while (energy.length - start > segmentFrames + segmentFrames / 2) {
+      int cut = quietest(energy, start + segmentFrames, searchFrames);
+      segments.add(new long[]{start, cut});
+      start = cut;
+    }
+    segments.add(new long[]{start, energy.length});
+
+    List<long[]> ranges = new ArrayList<>(segments.size());
+    for (long[] segment : segments) {
+      ranges.add(new long[]{
+          Math.max(0, segment[0] * frameLength - overlap),
+          Math.min(pcm.frames(), segment[1] * frameLength + overlap)});
+    }
+    return ranges;
+  }
+
+  /**
+   * A standalone WAV file with the frames of one segment.
+   */
+  static Resource wav(SpooledAudio audio, PcmLayout pcm, long fromFrame, long toFrame) throws IOException {
+    long dataBytes = (toFrame - fromFrame) * pcm.frameSize();
+    PcmLayout layout = new PcmLayout(pcm.encoding(), pcm.channels(), pcm.sampleRate(), pcm.bitsPerSample(),
+        PcmLayout.WAV_HEADER_SIZE, dataBytes);
+    byte[] bytes = new byte[(int) (PcmLayout.WAV_HEADER_SIZE + dataBytes)];
+    System.arraycopy(layout.wavHeader(), 0, bytes, 0, PcmLayout.WAV_HEADER_SIZE);
+    audio.read(pcm.dataStart() + fromFrame * pcm.frameSize(), bytes, PcmLayout.WAV_HEADER_SIZE, (int) dataBytes);
+    return new ByteArrayResource(bytes) {
+      @Override
+      public String getFilename() {
+        return "audio.wav";
+      }
+    };
+  }
+
+  private static int quietest(float[] energy, int target, int searchFrames) {
+    int best = target;
+    for (int frame = Math.max(1, target - searchFrames); frame <= Math.min(energy.length - 1, target + searchFrames); frame++) {
+      if (energy[frame] < energy[best] || energy[frame] == energy[best] && Math.abs(frame - target) < Math.abs(best - target)) {
+        best = frame;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,89 @@
+package ru.hh.aiinterviewer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.FileTooLargeException;
+import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+
+/**
+ * Reads an audio upload in fixed-size blocks, sniffing the container from the first bytes (a WAV header is
+ * validated on the fly) and enforcing the size limit. Bodies up to {@code app.audio-spool-memory-threshold-bytes}
+ * stay in memory, larger ones spill to a temp file, so heap usage per upload is bounded by the threshold rather
+ * than by the recording length. The duration limit is checked from the container headers once the body is in.
+ */
+@Component
+public class AudioSpooler {
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  private final ApplicationProperties applicationProperties;
+
+  public AudioSpooler(ApplicationProperties applicationProperties) {
+    this.applicationProperties = applicationProperties;
+  }
+
+  public SpooledAudio spool(InputStream in) throws IOException {
+    long maxSize = applicationProperties.getMaxAudioSizeBytes();
+    long memoryThreshold = Math.max(applicationProperties.getAudioSpoolMemoryThresholdBytes(), AudioFormat.SNIFF_SIZE);
+
+    byte[] prefix = new byte[AudioFormat.SNIFF_SIZE];
+    int prefixLength = 0;
+    AudioFormat format = null;
+    WavHeaderValidator wav = null;
+
+    SpooledAudio audio;
+    try (SpoolBuffer buffer = new SpoolBuffer(memoryThreshold)) {
+      byte[] block = new byte[BLOCK_SIZE];
+      int read;
+      while ((read = in.read(block)) != -1) {
+        if (buffer.size() + read > maxSize) {
+          throw new FileTooLargeException("Audio file too large");
+        }
+        if (format == null) {
+          int copied = Math.min(prefix.length - prefixLength, read);
+          System.arraycopy(block, 0, prefix, prefixLength, copied);
+          prefixLength += copied;
+          if (prefixLength == prefix.length) {
+            format = AudioFormat.sniff(prefix);
+            if (format == AudioFormat.WAV) {
+              wav = newWavValidator();
+              wav.update(prefix, 0, prefix.length);
+              wav.update(block, copied, read - copied);
+            }
+          }
+        } else if (wav != null) {
+          wav.update(block, 0, read);
+        }
+        buffer.write(block, 0, read, format);
+      }
+      if (format == null) {
+        throw new UnsupportedAudioFormatException("Audio too small or invalid");
+      }
+      if (wav != null) {
+        wav.finish();
+      }
+      audio = buffer.finish(format, wav != null ? wav.layout() : null);
+    }
+    try {
+      checkDuration(wav != null ? wav.durationSeconds() : AudioProbe.durationSeconds(audio,
+          applicationProperties.getMinAudioSampleRate(), applicationProperties.getMaxAudioSampleRate()));
+    } catch (IOException | RuntimeException e) {
+      audio.close();
+      throw e;
+    }
+    return audio;
+  }
+
+  private WavHeaderValidator newWavValidator() {
+    return new WavHeaderValidator(applicationProperties.getMinAudioSampleRate(), applicationProperties.getMaxAudioSampleRate());
+  }
+
+  private void checkDuration(Double durationSeconds) {
+    long maxDuration = applicationProperties.getMaxAudioDurationSeconds();
+    if (durationSeconds != null && durationSeconds > maxDuration) {
+      throw new FileTooLargeException("Audio is longer than " + maxDuration + " seconds");
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.ConversationSummary;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.ConversationSummaryRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.Prompts;
+import ru.hh.aiinterviewer.llm.TokenUsage;
+
+/**
+ * Folds older interview turns into a persisted rolling summary, so that the interviewer prompt stays bounded
+ * however long the interview gets. Compaction is requested by the chat memory when the verbatim part of the history
+ * exceeds its token or message budget and runs in the background with a cheaper model; the turn that triggered it
+ * is served from the current summary and window.
+ * <p>
+ * The last {@code app.chat-summary-keep-messages} messages always stay verbatim. At most one compaction per session
+ * runs at a time, later requests for the same session are dropped until it finishes.
+ */
+@Component
+public class ConversationSummarizer {
+
+  private static final Logger log = LoggerFactory.getLogger(ConversationSummarizer.class);
+  private static final OffsetDateTime BEGINNING = OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+
+  private final ApplicationProperties applicationProperties;
+  private final ChatClient conversationSummaryChatClient;
+  private final SessionMessageRepository sessionMessageRepository;
+  private final ConversationSummaryRepository conversationSummaryRepository;
+  private final ExecutorService summarizationExecutor;
+  private final TokenAccounting tokenAccounting;
+  private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+  private final Counter compactions;
+  private final Counter failures;
+  private final Counter compactedMessages;
+  private final Timer duration;
+
+  public ConversationSummarizer(ApplicationProperties applicationProperties, ChatClient conversationSummaryChatClient,
+                                SessionMessageRepository sessionMessageRepository,
+                                ConversationSummaryRepository conversationSummaryRepository,
+                                ExecutorService summarizationExecutor, TokenAccounting tokenAccounting,
+                                MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.conversationSummaryChatClient = conversationSummaryChatClient;
+    this.sessionMessageRepository = sessionMessageRepository;
+    this.conversationSummaryRepository = conversationSummaryRepository;
+    this.summarizationExecutor = summarizationExecutor;
+    this.tokenAccounting = tokenAccounting;
+    this.compactions = Counter.builder("chat.summary.compactions")
+        .description("Rolling summary updates")
+        .tag("result", "success")
+        .register(meterRegistry);
+    this.failures = Counter.builder("chat.summary.compactions")
+        .description("Rolling summary updates")
+        .tag("result", "failure")
+        .register(meterRegistry);
+    this.compactedMessages = Counter.builder("chat.summary.messages")
+        .description("Messages folded into rolling summaries")
+        .register(meterRegistry);
+    this.duration = Timer.builder("chat.summary.duration")
+        .description("Time to update a rolling summary, including the model call")
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return applicationProperties.isChatSummaryEnabled();
+  }
+
+  public static OffsetDateTime coveredUntil(ConversationSummary summary) {
+    return summary == null ? BEGINNING : summary.getCoveredUntil();
+  }
+
+  /**
+   * Schedules a compaction of the session history unless one is already running.
+   */
+  public void request(UUID sessionId) {
+    if (!isEnabled() || !inFlight.add(sessionId)) {
+      return;
+    }
+    try {
+      summarizationExecutor.execute(() -> {
+        try {
+          duration.record(() -> compact(sessionId));
+        } finally {
+          inFlight.remove(sessionId);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(sessionId);
+    }
+  }
+
+  void compact(UUID sessionId) {
+    try {
+      ConversationSummary summary = conversationSummaryRepository.findById(sessionId).orElse(null);
+      List<SessionMessage> messages = sessionMessageRepository
+          .findBySessionIdAndCreatedAtAfterOrderByCreatedAtAsc(sessionId, coveredUntil(summary)).stream()
+          .filter(message -> message.getRole() != MessageRole.SYSTEM)
+          .toList();
+
+      int cut = messages.size() - applicationProperties.getChatSummaryKeepMessages();
+      // Messages are skipped by timestamp, so the cut must not separate two messages with the same one
+      while (cut > 0 && messages.get(cut - 1).getCreatedAt().equals(messages.get(cut).getCreatedAt())) {
+        cut--;
+      }
+      if (cut <= 0) {
+        return;
+      }
+      List<SessionMessage> folded = messages.subList(0, cut);
+
+      ChatResponse response = conversationSummaryChatClient.prompt()
+          .user(Prompts.getConversationSummaryPrompt(summary == null ? null : summary.getSummary(), transcript(folded)))
+          .call()
+          .chatResponse();
+      TokenUsage.of(response).ifPresent(usage -> tokenAccounting.record(sessionId, usage, false));
+      String updated = response == null || response.getResult() == null
+          ? null
+          : response.getResult().getOutput().getText();
+      if (updated == null || updated.isBlank()) {
+        failures.increment();
+        return;
+      }
+      conversationSummaryRepository.save(ConversationSummary.builder()
+          .sessionId(sessionId)
+          .summary(updated)
+          .coveredUntil(folded.getLast().getCreatedAt())
+          .coveredMessages((summary == null ? 0 : summary.getCoveredMessages()) + folded.size())
+          .build());
+      compactions.increment();
+      compactedMessages.increment(folded.size());
+    } catch (RuntimeException e) {
+      failures.increment();
+      log.warn("Conversation summary update failed for session {}", sessionId, e);
+    }
+  }
+
+  static String transcript(List<SessionMessage> messages) {
+    return messages.stream()
+        .map(message -> (message.getRole() == MessageRole.USER ? "Кандидат: " : "Интервьюер: ") + message.getContent())
+        .collect(Collectors.joining("\n\n"));
+  }
+}
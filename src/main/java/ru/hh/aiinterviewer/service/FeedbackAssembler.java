@@ -0,0 +1,261 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.AnswerAssessment;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
+import ru.hh.aiinterviewer.domain.model.MessageTrigger;
+import ru.hh.aiinterviewer.domain.model.PlanQuestion;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.AnswerAssessmentRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.PlanQuestions;
+import ru.hh.aiinterviewer.llm.Prompts;
+
+/**
+ * Writes the final feedback from the answers {@link AnswerAssessor} has scored during the interview: one short call
+ * over the plan criteria and the assessments, without the interview history.
+ * <p>
+ * Waits up to {@code app.assessment-await-ms} for assessments still being scored. With
+ * {@code app.feedback-map-reduce-enabled} the transcript is then split by main question («Вопрос X/N») and the
+ * questions left without an assessment (scoring disabled, failed or late) are scored segment by segment on
+ * {@code feedbackExecutor}, {@code app.feedback-segment-concurrency} at a time; the feedback call is the reduce step.
+ * When there is still nothing to assemble from, returns nothing and the caller asks the interviewer over the whole
+ * history as before.
+ */
+@Component
+public class FeedbackAssembler {
+
+  private final ApplicationProperties applicationProperties;
+  private final ChatClient feedbackChatClient;
+  private final AnswerAssessor answerAssessor;
+  private final AnswerAssessmentRepository answerAssessmentRepository;
+  private final SessionMessageRepository sessionMessageRepository;
+  private final ExecutorService feedbackExecutor;
+  private final Counter assembled;
+  private final Counter fallbacks;
+  private final Timer awaitDuration;
+  private final Timer mapDuration;
+  private final Timer reduceDuration;
+
+  public FeedbackAssembler(ApplicationProperties applicationProperties, ChatClient feedbackChatClient,
+                           AnswerAssessor answerAssessor, AnswerAssessmentRepository answerAssessmentRepository,
+                           SessionMessageRepository sessionMessageRepository, ExecutorService feedbackExecutor,
+                           MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.feedbackChatClient = feedbackChatClient;
+    this.answerAssessor = answerAssessor;
+    this.answerAssessmentRepository = answerAssessmentRepository;
+    this.sessionMessageRepository = sessionMessageRepository;
+    this.feedbackExecutor = feedbackExecutor;
+    this.assembled = requests(meterRegistry, "assembled");
+    this.fallbacks = requests(meterRegistry, "fallback");
+    this.awaitDuration = phase(meterRegistry, "await");
+    this.mapDuration = phase(meterRegistry, "map");
+    this.reduceDuration = phase(meterRegistry, "reduce");
+  }
+
+  /**
+   * @param firstLine the service phrase the feedback starts with, {@link MessageTrigger#FEEDBACK} or
+   *                  {@link MessageTrigger#COMPLETE}
+   */
+  public Optional<String> assemble(Session session, MessageTrigger firstLine) {
+    return prompt(session, firstLine).map(prompt -> reduceDuration.record(() -> feedbackChatClient.prompt()
+        .user(prompt)
+        .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
+        .call()
+        .content()));
+  }
+
+  /**
+   * Waiting for assessments and the map phase take seconds, so they run once the result is subscribed, on a bounded
+   * elastic thread, and the caller can return its stream at once. Empty when there is nothing to assemble from.
+   */
+  public Mono<Flux<String>> assembleStream(Session session, MessageTrigger firstLine) {
+    return Mono.fromCallable(() -> prompt(session, firstLine).map(prompt -> Flux.defer(() -> {
+          Timer.Sample reduce = Timer.start();
+          return feedbackChatClient.prompt()
+              .user(prompt)
+              .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
+              .stream()
+              .content()
+              .doOnComplete(() -> reduce.stop(reduceDuration));
+        })).orElse(null))
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private Optional<String> prompt(Session session, MessageTrigger firstLine) {
+    boolean mapReduce = applicationProperties.isFeedbackMapReduceEnabled();
+    if (!answerAssessor.isEnabled() && !mapReduce) {
+      return Optional.empty();
+    }
+    boolean scored = awaitDuration.record(
+        () -> answerAssessor.awaitPending(session.getId(), applicationProperties.getAssessmentAwaitMs()));
+    if (!scored && !mapReduce) {
+      fallbacks.increment();
+      return Optional.empty();
+    }
+    List<AnswerAssessment> assessments =
+        new ArrayList<>(answerAssessmentRepository.findBySessionIdOrderByCreatedAtAsc(session.getId()));
+    if (mapReduce) {
+      assessments.addAll(map(session, assessments));
+    }
+    if (assessments.isEmpty()) {
+      fallbacks.increment();
+      return Optional.empty();
+    }
+    assessments.sort(Comparator.comparingInt(AnswerAssessment::getQuestionNumber));
+    assembled.increment();
+    return Optional.of(Prompts.getFeedbackAggregationPrompt(
+        firstLine.getValue(),
+        PlanQuestions.overview(session.getInterviewPlan()),
+        describe(assessments, session.getPlanQuestions()),
+        session.getCommunicationStylePreset()));
+  }
+
+  /**
+   * Scores the segments of the questions that have no assessment yet, in parallel.
+   */
+  private List<AnswerAssessment> map(Session session, List<AnswerAssessment> assessments) {
+    Set<Integer> covered = assessments.stream().map(AnswerAssessment::getQuestionNumber).collect(Collectors.toSet());
+    List<Segment> missing = segments(sessionMessageRepository.findBySessionIdOrderByCreatedAtAsc(session.getId()))
+        .stream()
+        .filter(segment -> !covered.contains(segment.questionNumber()))
+        .toList();
+    if (missing.isEmpty()) {
+      return List.of();
+    }
+    return mapDuration.record(() -> {
+      List<CompletableFuture<Optional<AnswerAssessment>>> scoring = missing.stream()
+          .map(segment -> score(session, segment))
+          .toList();
+      return scoring.stream()
+          .map(CompletableFuture::join)
+          .flatMap(Optional::stream)
+          .toList();
+    });
+  }
+
+  private CompletableFuture<Optional<AnswerAssessment>> score(Session session, Segment segment) {
+    PlanQuestion planned = session.getPlanQuestions() == null ? null : session.getPlanQuestions().stream()
+        .filter(question -> question.number() == segment.questionNumber())
+        .findFirst()
+        .orElse(null);
+    try {
+      return CompletableFuture.supplyAsync(() -> answerAssessor.assessSegment(session.getId(),
+          segment.questionNumber(), planned, segment.question(), segment.answers(),
+          ConversationSummarizer.transcript(segment.messages())), feedbackExecutor);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+  }
+
+  /**
+   * Splits the interview part of the transcript by main question: a segment starts with the interviewer message
+   * that asks a new «Вопрос X/N» and takes the turns up to the next one. Turns before the first question and after
+   * a feedback or finish command are left out, as are questions the candidate did not answer.
+   */
+  static List<Segment> segments(List<SessionMessage> messages) {
+    List<Segment> segments = new ArrayList<>();
+    int number = 0;
+    List<SessionMessage> turns = new ArrayList<>();
+    for (SessionMessage message : messages) {
+      if (message.getRole() == MessageRole.USER && (MessageTrigger.FEEDBACK.isTrigger(message.getContent())
+          || MessageTrigger.FINISH.isTrigger(message.getContent()))) {
+        break;
+      }
+      if (message.getRole() == MessageRole.SYSTEM) {
+        continue;
+      }
+      OptionalInt asked = message.getRole() == MessageRole.ASSISTANT
+          ? PlanQuestions.askedQuestion(message.getContent())
+          : OptionalInt.empty();
+      if (asked.isPresent() && asked.getAsInt() != number) {
+        addAnswered(segments, number, turns);
+        number = asked.getAsInt();
+        turns = new ArrayList<>();
+      }
+      if (number > 0) {
+        turns.add(message);
+      }
+    }
+    addAnswered(segments, number, turns);
+    return segments;
+  }
+
+  private static void addAnswered(List<Segment> segments, int number, List<SessionMessage> turns) {
+    if (number > 0 && turns.stream().anyMatch(turn -> turn.getRole() == MessageRole.USER)) {
+      segments.add(new Segment(number, List.copyOf(turns)));
+    }
+  }
+
+  private static String describe(List<AnswerAssessment> assessments, List<PlanQuestion> planQuestions) {
+    Map<Integer, String> topics = planQuestions == null ? Map.of() : planQuestions.stream()
+        .filter(question -> question.topic() != null)
+        .collect(Collectors.toMap(PlanQuestion::number, PlanQuestion::topic, (first, second) -> first));
+    return assessments.stream()
+        .map(assessment -> "Вопрос " + assessment.getQuestionNumber()
+            + (topics.containsKey(assessment.getQuestionNumber())
+                ? " (Тема: " + topics.get(assessment.getQuestionNumber()) + ")"
+                : "")
+            + ", оценка " + assessment.getScore() + "/10: " + assessment.getSummary()
+            + (isBlank(assessment.getStrengths()) ? "" : "\n  Сильные стороны: " + assessment.getStrengths())
+            + (isBlank(assessment.getGaps()) ? "" : "\n  Пробелы: " + assessment.getGaps()))
+        .collect(Collectors.joining("\n"));
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("feedback.requests")
+        .description("Final feedback requests by whether it was assembled from answer assessments")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static Timer phase(MeterRegistry meterRegistry, String phase) {
+    return Timer.builder("feedback.phase.duration")
+        .description("Time spent in each phase of assembling the final feedback")
+        .tag("phase", phase)
+        .register(meterRegistry);
+  }
+
+  /**
+   * The turns about one main question, starting with the interviewer message that asked it.
+   */
+  record Segment(int questionNumber, List<SessionMessage> messages) {
+
+    String question() {
+      return messages.getFirst().getContent();
+    }
+
+    String answers() {
+      return messages.stream()
+          .filter(message -> message.getRole() == MessageRole.USER)
+          .map(SessionMessage::getContent)
+          .collect(Collectors.joining("\n\n"));
+    }
+  }
+}
@@ -1,14 +1,14 @@
 package ru.hh.aiinterviewer.service;
 
-import java.util.Comparator;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.hh.aiinterviewer.api.dto.SessionMessageDto;
 import ru.hh.aiinterviewer.api.dto.SessionResponseDto;
 import ru.hh.aiinterviewer.api.dto.SessionStatusResponseDto;
+import ru.hh.aiinterviewer.api.dto.TokenUsageDto;
 import ru.hh.aiinterviewer.domain.model.Session;
-import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
 import ru.hh.aiinterviewer.domain.repository.SessionRepository;
 import ru.hh.aiinterviewer.exception.NotFoundException;
 
@@ -17,6 +17,7 @@ import ru.hh.aiinterviewer.exception.NotFoundException;
 public class InterviewQueryService {
 
   private final SessionRepository sessionRepository;
+  private final SessionMessageRepository sessionMessageRepository;
 
   public SessionStatusResponseDto getStatus(UUID sessionId) {
     Session session = sessionRepository.findById(sessionId)
@@ -44,16 +45,29 @@ public class InterviewQueryService {
         .communicationStylePreset(session.getCommunicationStylePreset())
         .communicationStyleFreeform(session.getCommunicationStyleFreeform())
         .planPreferences(session.getPlanPreferences())
+        .currentQuestion(session.getCurrentQuestion())
+        .totalQuestions(session.getPlanQuestions() == null || session.getPlanQuestions().isEmpty()
+            ? null
+            : session.getPlanQuestions().size())
         .startedAt(session.getStartedAt())
         .endedAt(session.getEndedAt())
-        .messages(session.getMessages().stream()
-            .sorted(Comparator.comparing(SessionMessage::getCreatedAt))
+        .tokenUsage(TokenUsageDto.builder()
+            .promptTokens(orZero(session.getPromptTokens()))
+            .completionTokens(orZero(session.getCompletionTokens()))
+            .cachedTokens(orZero(session.getCachedTokens()))
+            .build())
+        .messages(sessionMessageRepository.findBySessionIdOrderByCreatedAtAsc(session.getId()).stream()
             .map(m -> SessionMessageDto.builder()
                 .role(m.getRole().getValue())
                 .content(m.getContent())
                 .createdAt(m.getCreatedAt())
+                .interrupted(m.isInterrupted())
                 .build())
             .toList())
         .build();
   }
+
+  private static long orZero(Long value) {
+    return value == null ? 0 : value;
+  }
 }
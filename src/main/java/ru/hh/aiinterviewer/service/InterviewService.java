@@ -1,136 +1,294 @@
 package ru.hh.aiinterviewer.service;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import ru.hh.aiinterviewer.api.dto.CreateSessionRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageResponseDto;
 import ru.hh.aiinterviewer.domain.model.MessageTrigger;
 import ru.hh.aiinterviewer.domain.model.MessageType;
 import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
 import ru.hh.aiinterviewer.domain.model.SessionMode;
 import ru.hh.aiinterviewer.domain.model.SessionStatus;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
 import ru.hh.aiinterviewer.domain.repository.SessionRepository;
 import ru.hh.aiinterviewer.exception.NotFoundException;
 import ru.hh.aiinterviewer.exception.InvalidStatusTransitionException;
 import ru.hh.aiinterviewer.exception.SessionCompletedException;
+import ru.hh.aiinterviewer.exception.StreamNotResumableException;
 import ru.hh.aiinterviewer.exception.VacancyNotParsableException;
+import ru.hh.aiinterviewer.llm.PlanQuestions;
 import ru.hh.aiinterviewer.llm.Prompts;
 
 @Service
 @RequiredArgsConstructor
 public class InterviewService {
 
+  private static final Logger log = LoggerFactory.getLogger(InterviewService.class);
+
   private static final int MAX_ITERATIONS = 100;
   private static final String EXCEEDED_LIMIT_MESSAGE = MessageTrigger.COMPLETE.getValue() + ". Превышен технический лимит по кол-ву сообщений :(";
 
   private final VacancyService vacancyService;
   private final SessionRepository sessionRepository;
+  private final SessionMessageRepository sessionMessageRepository;
   private final ChatClient interviewerChatClient;
   private final ChatClient prepareInterviewPlanChatClient;
   private final TranscriptionService transcriptionService;
+  private final StreamCancellationMetrics streamCancellationMetrics;
+  private final StreamReplayRegistry streamReplayRegistry;
+  private final TokenCoalescer tokenCoalescer;
+  private final PlanCache planCache;
+  private final PlanPool planPool;
+  private final PlanStreams planStreams;
+  private final ExecutorService planningExecutor;
+  private final OpeningTurnSpeculator openingTurnSpeculator;
+  private final TokenAccounting tokenAccounting;
+  private final AnswerAssessor answerAssessor;
+  private final FeedbackAssembler feedbackAssembler;
+  private final PlanReviser planReviser;
 
   public String extractVacancyTextFromFile(MultipartFile file) {
     return vacancyService.extractTextFromFile(file);
   }
 
-  @Transactional
+  /**
+   * Runs without a surrounding transaction: vacancy fetching and plan generation take seconds
+   * and must not pin a pooled connection. The session is persisted in a short write at the end.
+   */
   public UUID createSession(CreateSessionRequestDto request) {
-    String vacancy;
+    String vacancy = vacancySource(request).get();
+    String interviewPlan = getPlan(request, vacancy, prompt -> prepareInterviewPlanChatClient
+        .prompt()
+        .user(prompt)
+        .call()
+        .content());
+
+    Session session = saveSession(request, SessionStatus.PLANNED, interviewPlan);
+    openingTurnSpeculator.speculate(session);
+
+    return session.getId();
+  }
+
+  /**
+   * Stores the session in {@link SessionStatus#PLANNING} status and returns right away. Vacancy fetching and plan
+   * generation continue on the planning executor; the plan is streamed to {@link PlanStreams} as the model produces
+   * it, and the session moves to {@link SessionStatus#PLANNED} (or {@link SessionStatus#FAILED}) once it is done.
+   * Request validation still happens here, so a malformed request is rejected before the session exists.
+   */
+  public UUID createSessionAsync(CreateSessionRequestDto request) {
+    Supplier<String> vacancy = vacancySource(request);
+    Session session = saveSession(request, SessionStatus.PLANNING, null);
+    Sinks.Many<String> plan = planStreams.open(session.getId());
+    try {
+      planningExecutor.execute(() -> preparePlan(session, request, vacancy, plan));
+    } catch (RejectedExecutionException e) {
+      onPlanFailed(session, plan, e);
+      throw e;
+    }
+    return session.getId();
+  }
+
+  /**
+   * Plan tokens of a session in {@code PLANNING} status, or the whole stored plan once it is ready.
+   */
+  public Flux<ServerSentEvent<String>> streamPlan(UUID sessionId, String lastEventId) {
+    long offset = PlanStreams.parseOffset(lastEventId);
+    Optional<Flux<String>> running = planStreams.find(sessionId);
+    if (running.isPresent()) {
+      return PlanStreams.events(running.get().transform(tokenCoalescer::coalesce), offset);
+    }
+    Session session = sessionRepository.findById(sessionId)
+        .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+    if (session.getStatus() == SessionStatus.PLANNING) {
+      // The generation runs on another instance or was lost with a restart
+      throw new StreamNotResumableException("Plan is not being generated by this instance, poll the session status");
+    }
+    requirePlan(session);
+    return PlanStreams.events(Mono.justOrEmpty(session.getInterviewPlan()).flux(), offset);
+  }
+
+  private Supplier<String> vacancySource(CreateSessionRequestDto request) {
     if (request.getMode() == SessionMode.ROLE) {
       if (request.getRoleName() == null || request.getRoleName().isBlank()) {
         throw new IllegalArgumentException("roleName must be provided when mode=role");
       }
-      vacancy = request.getRoleName();
+      String roleName = request.getRoleName();
+      return () -> roleName;
+    }
+    // mode=vacancy: one of vacancyUrl or vacancyText should be provided
+    if (request.getVacancyText() != null && !request.getVacancyText().isBlank()) {
+      String vacancyText = request.getVacancyText();
+      return () -> vacancyText;
+    } else if (request.getVacancyUrl() != null && !request.getVacancyUrl().isBlank()) {
+      String vacancyUrl = request.getVacancyUrl();
+      return () -> vacancyService.getVacancyByUrl(vacancyUrl);
     } else {
-      // mode=vacancy: one of vacancyUrl or vacancyText should be provided
-      if (request.getVacancyText() != null && !request.getVacancyText().isBlank()) {
-        vacancy = request.getVacancyText();
-      } else if (request.getVacancyUrl() != null && !request.getVacancyUrl().isBlank()) {
-        vacancy = vacancyService.getVacancyByUrl(request.getVacancyUrl());
-      } else {
-        throw new VacancyNotParsableException("One of vacancyUrl or vacancyText must be provided");
-      }
+      throw new VacancyNotParsableException("One of vacancyUrl or vacancyText must be provided");
     }
+  }
 
-    String interviewPlan = prepareInterviewPlanChatClient
-        .prompt()
-        .user(Prompts.getPrepareInterviewPlanPrompt(vacancy, request.getNumQuestions(), request.getPlanPreferences()))
-        .call()
-        .content();
+  private String getPlan(CreateSessionRequestDto request, String vacancy, UnaryOperator<String> generator) {
+    String prepareInterviewPlanPrompt = Prompts.getPrepareInterviewPlanPrompt(vacancy, request.getNumQuestions(), request.getPlanPreferences());
+    // A pooled plan is a fresh generation made ahead of time, so it also serves freshPlan requests. It is handed out
+    // once and therefore taken before the cache and never cached
+    Optional<String> pooled = planPool.take(request);
+    if (pooled.isPresent()) {
+      return pooled.get();
+    }
+    Supplier<String> generatePlan = () -> generator.apply(prepareInterviewPlanPrompt);
+    return Boolean.TRUE.equals(request.getFreshPlan())
+        ? generatePlan.get()
+        : planCache.get(vacancy, request.getNumQuestions(), request.getPlanPreferences(), generatePlan);
+  }
 
-    Session session = createSession(request, interviewPlan);
+  private void preparePlan(Session session, CreateSessionRequestDto request, Supplier<String> vacancy, Sinks.Many<String> plan) {
+    try {
+      AtomicBoolean streamed = new AtomicBoolean();
+      String interviewPlan = getPlan(request, vacancy.get(), prompt -> prepareInterviewPlanChatClient
+          .prompt()
+          .user(prompt)
+          .stream()
+          .content()
+          .doOnNext(token -> {
+            streamed.set(true);
+            plan.tryEmitNext(token);
+          })
+          .collect(Collectors.joining())
+          .block());
+      // Cached, pooled and shared plans arrive in one piece
+      if (!streamed.get()) {
+        plan.tryEmitNext(interviewPlan);
+      }
+      session.updatePlan(interviewPlan);
+      session.setStatus(SessionStatus.PLANNED);
+      sessionRepository.save(session);
+      openingTurnSpeculator.speculate(session);
+      planStreams.close(session.getId(), plan, null);
+    } catch (RuntimeException e) {
+      log.warn("Plan generation failed for session {}", session.getId(), e);
+      onPlanFailed(session, plan, e);
+    }
+  }
 
-    return session.getId();
+  private void onPlanFailed(Session session, Sinks.Many<String> plan, RuntimeException error) {
+    try {
+      session.setStatus(SessionStatus.FAILED);
+      sessionRepository.save(session);
+    } catch (RuntimeException e) {
+      log.warn("Failed to mark session {} as failed", session.getId(), e);
+    }
+    planStreams.close(session.getId(), plan, error);
   }
 
-  private Session createSession(CreateSessionRequestDto request, String interviewPlan) {
-    Session session = sessionRepository.save(Session.builder()
+  private Session saveSession(CreateSessionRequestDto request, SessionStatus status, String interviewPlan) {
+    return sessionRepository.save(Session.builder()
         .vacancyUrl(request.getVacancyUrl())
         .mode(request.getMode())
         .roleName(request.getRoleName())
-        .status(SessionStatus.PLANNED)
+        .status(status)
         .numQuestions(request.getNumQuestions())
         .interviewPlan(interviewPlan)
+        .planQuestions(PlanQuestions.parse(interviewPlan))
         .planPreferences(request.getPlanPreferences())
         .interviewFormat(request.getInterviewFormat())
         .communicationStylePreset(request.getCommunicationStylePreset())
         .communicationStyleFreeform(request.getCommunicationStyleFreeform())
         .build());
-    sessionRepository.flush();
-    return session;
   }
 
-  @Transactional
+  /**
+   * Messages are accepted only once the plan exists.
+   */
+  private static void requirePlan(Session session) {
+    if (session.getStatus() == SessionStatus.PLANNING) {
+      throw new InvalidStatusTransitionException("Interview plan is not ready yet");
+    }
+    if (session.getStatus() == SessionStatus.FAILED) {
+      throw new InvalidStatusTransitionException("Interview plan generation failed, create a new session");
+    }
+  }
+
+  /**
+   * A turn is split into a short read (session + message count), the model call without any open
+   * transaction, and a short write of the session. Concurrent turns that change the same session
+   * are detected by the optimistic {@link Session#getVersion() version} check on save.
+   */
   public MessageResponseDto processMessage(UUID sessionId, MessageRequestDto userMessage) {
+    return processMessage(sessionId, () -> getUserText(userMessage));
+  }
+
+  public MessageResponseDto processAudioMessage(UUID sessionId, InputStream audio) {
+    return processMessage(sessionId, () -> transcriptionService.transcribe(audio));
+  }
+
+  private MessageResponseDto processMessage(UUID sessionId, Supplier<String> userInput) {
     Session session = sessionRepository.findById(sessionId)
         .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
 
     if (session.isCompleted()) {
       throw new SessionCompletedException("Session is already completed");
     }
+    requirePlan(session);
 
     String assistantAnswer;
 
-    if (session.getMessages().size() >= MAX_ITERATIONS) {
+    long messageCount = sessionMessageRepository.countBySessionId(sessionId);
+    if (messageCount >= MAX_ITERATIONS) {
       session.completeInterview();
       String feedback = performChatInteraction(session, EXCEEDED_LIMIT_MESSAGE);
       sessionRepository.save(session);
       return buildFeedbackMessageResponse(session, feedback);
     }
 
-    String userTextMessage = switch (MessageType.fromValue(userMessage.getType())) {
-      case TEXT -> userMessage.getMessage();
-      case AUDIO -> transcriptionService.transcribe(userMessage.getAudioBase64());
-    };
+    // Read only after the cheap checks, so a rejected turn doesn't pay for transcription
+    String userTextMessage = userInput.get();
 
     // State machine
     if (session.getStatus() == SessionStatus.PLANNED) {
       if (MessageTrigger.START.isTrigger(userTextMessage)) {
+        Optional<String> openingTurn = openingTurnSpeculator.take(session, userTextMessage, messageCount);
         session.startInterview();
-        assistantAnswer = performChatInteraction(session, userTextMessage);
+        assistantAnswer = openingTurn.isPresent()
+            ? storeTurn(session, userTextMessage, openingTurn.get())
+            : performChatInteraction(session, userTextMessage);
+        trackProgress(session, assistantAnswer);
         sessionRepository.save(session);
         return buildNextMessageResponse(session, assistantAnswer);
       } else if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage) || MessageTrigger.FINISH.isTrigger(userTextMessage)) {
         throw new InvalidStatusTransitionException("Command is not allowed in planned status");
       } else {
-        // Plan correction mode: keep PLANNED, regenerate plan
-        String correctedPlan = prepareInterviewPlanChatClient
-            .prompt()
-            .system(Prompts.getRevisePlanPrompt(session.getInterviewPlan(), userTextMessage, session.getNumQuestions(), session.getPlanPreferences()))
-            .call()
-            .content();
-        session.setInterviewPlan(correctedPlan);
+        // Plan correction mode: keep PLANNED, revise plan
+        String correctedPlan = planReviser.revise(session, userTextMessage);
+        session.updatePlan(correctedPlan);
         assistantAnswer = correctedPlan;
         sessionRepository.save(session);
+        openingTurnSpeculator.speculate(session);
         return buildNextMessageResponse(session, assistantAnswer);
       }
     } else if (session.getStatus() == SessionStatus.ONGOING) {
@@ -139,27 +297,36 @@ public class InterviewService {
       }
       if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage)) {
         session.setStatus(SessionStatus.FEEDBACK);
-        assistantAnswer = interviewerChatClient.prompt()
-            .system(Prompts.getFeedbackPrompt(session.getInterviewPlan(), session.getCommunicationStylePreset()))
-            .user(userTextMessage)
-            .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
-            .call()
-            .content();
+        Optional<String> feedback = feedbackAssembler.assemble(session, MessageTrigger.FEEDBACK);
+        assistantAnswer = feedback.isPresent()
+            ? storeTurn(session, userTextMessage, feedback.get())
+            : interviewerChatClient.prompt()
+                .system(Prompts.getFeedbackPrompt(session.getInterviewPlan(), session.getCommunicationStylePreset()))
+                .user(userTextMessage)
+                .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
+                .call()
+                .content();
         sessionRepository.save(session);
         return buildNextMessageResponse(session, assistantAnswer);
       }
       if (MessageTrigger.FINISH.isTrigger(userTextMessage)) {
         session.completeInterview();
-        assistantAnswer = performChatInteraction(session, MessageTrigger.COMPLETE.getValue());
+        Optional<String> feedback = feedbackAssembler.assemble(session, MessageTrigger.COMPLETE);
+        assistantAnswer = feedback.isPresent()
+            ? storeTurn(session, MessageTrigger.COMPLETE.getValue(), feedback.get())
+            : performChatInteraction(session, MessageTrigger.COMPLETE.getValue());
         sessionRepository.save(session);
         return buildFeedbackMessageResponse(session, assistantAnswer);
       }
+      int answeredQuestion = session.getCurrentQuestion();
       assistantAnswer = performChatInteraction(session, userTextMessage);
       if (MessageTrigger.COMPLETE.isTrigger(assistantAnswer)) {
         session.completeInterview();
         sessionRepository.save(session);
         return buildFeedbackMessageResponse(session, assistantAnswer);
       }
+      answerAssessor.request(session, answeredQuestion, userTextMessage);
+      trackProgress(session, assistantAnswer);
     } else if (session.getStatus() == SessionStatus.FEEDBACK) {
       if (MessageTrigger.START.isTrigger(userTextMessage)) {
         throw new InvalidStatusTransitionException("Command is not allowed in feedback status");
@@ -182,51 +349,74 @@ public class InterviewService {
     return buildNextMessageResponse(session, assistantAnswer);
   }
 
-  public SseEmitter processMessageStream(UUID sessionId, MessageRequestDto userMessage) {
+  public Flux<ServerSentEvent<String>> resumeMessageStream(UUID sessionId, String lastEventId) {
+    return streamReplayRegistry.resume(sessionId, lastEventId);
+  }
+
+  public Flux<ServerSentEvent<String>> processMessageStream(UUID sessionId, MessageRequestDto userMessage) {
+    return processMessageStream(sessionId, () -> getUserText(userMessage));
+  }
+
+  public Flux<ServerSentEvent<String>> processAudioMessageStream(UUID sessionId, InputStream audio) {
+    return processMessageStream(sessionId, () -> transcriptionService.transcribe(audio));
+  }
+
+  private Flux<ServerSentEvent<String>> processMessageStream(UUID sessionId, Supplier<String> userInput) {
     Session session = sessionRepository.findById(sessionId)
         .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
 
     if (session.isCompleted()) {
       throw new SessionCompletedException("Session is already completed");
     }
+    requirePlan(session);
 
-    if (session.getMessages().size() >= MAX_ITERATIONS) {
+    long messageCount = sessionMessageRepository.countBySessionId(sessionId);
+    if (messageCount >= MAX_ITERATIONS) {
       session.completeInterview();
-      sessionRepository.save(session);
-      return performChatInteractionStreaming(session, EXCEEDED_LIMIT_MESSAGE);
+      return performChatInteractionStreaming(sessionRepository.save(session), EXCEEDED_LIMIT_MESSAGE);
     }
 
-    String userTextMessage = switch (MessageType.fromValue(userMessage.getType())) {
-      case TEXT -> userMessage.getMessage();
-      case AUDIO -> transcriptionService.transcribe(userMessage.getAudioBase64());
-    };
+    String userTextMessage = userInput.get();
 
     if (session.getStatus() == SessionStatus.PLANNED) {
       if (MessageTrigger.START.isTrigger(userTextMessage)) {
+        Optional<String> openingTurn = openingTurnSpeculator.take(session, userTextMessage, messageCount);
         session.startInterview();
+        if (openingTurn.isPresent()) {
+          trackProgress(session, openingTurn.get());
+          Session started = sessionRepository.save(session);
+          return streamReplayRegistry.open(started.getId(), Flux.just(storeTurn(started, userTextMessage, openingTurn.get())));
+        }
       } else if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage) || MessageTrigger.FINISH.isTrigger(userTextMessage)) {
         throw new InvalidStatusTransitionException("Command is not allowed in planned status");
       } else {
-        String correctedPlan = prepareInterviewPlanChatClient
-            .prompt()
-            .system(Prompts.getRevisePlanPrompt(session.getInterviewPlan(), userTextMessage, session.getNumQuestions(), session.getPlanPreferences()))
-            .call()
-            .content();
-        session.setInterviewPlan(correctedPlan);
+        String correctedPlan = planReviser.revise(session, userTextMessage);
+        session.updatePlan(correctedPlan);
+        // The interviewer answers the correction below, so the session gets history a speculation didn't see
+        openingTurnSpeculator.discard(session.getId());
       }
-      sessionRepository.save(session);
-      return performChatInteractionStreaming(session, userTextMessage);
+      return performChatInteractionStreaming(sessionRepository.save(session), userTextMessage);
     } else if (session.getStatus() == SessionStatus.ONGOING) {
       if (MessageTrigger.START.isTrigger(userTextMessage)) {
         throw new InvalidStatusTransitionException("Command is not allowed in ongoing status");
       }
-      if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage)) {
-        session.setStatus(SessionStatus.FEEDBACK);
-      } else if (MessageTrigger.FINISH.isTrigger(userTextMessage)) {
-        session.completeInterview();
+      if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage) || MessageTrigger.FINISH.isTrigger(userTextMessage)) {
+        MessageTrigger firstLine;
+        if (MessageTrigger.FEEDBACK.isTrigger(userTextMessage)) {
+          session.setStatus(SessionStatus.FEEDBACK);
+          firstLine = MessageTrigger.FEEDBACK;
+        } else {
+          session.completeInterview();
+          firstLine = MessageTrigger.COMPLETE;
+        }
+        Session saved = sessionRepository.save(session);
+        Flux<String> tokens = feedbackAssembler.assembleStream(saved, firstLine)
+            .map(feedback -> assembledFeedbackTokens(saved, userTextMessage, feedback))
+            .switchIfEmpty(Mono.fromSupplier(() -> interviewerTokens(saved, userTextMessage, 0)))
+            .flatMapMany(Function.identity());
+        return streamReplayRegistry.open(saved.getId(), tokens);
       }
-      sessionRepository.save(session);
-      return performChatInteractionStreaming(session, userTextMessage);
+      return performChatInteractionStreaming(sessionRepository.save(session), userTextMessage, session.getCurrentQuestion());
     } else if (session.getStatus() == SessionStatus.FEEDBACK) {
       if (MessageTrigger.START.isTrigger(userTextMessage)) {
         throw new InvalidStatusTransitionException("Command is not allowed in feedback status");
@@ -234,8 +424,7 @@ public class InterviewService {
       if (MessageTrigger.FINISH.isTrigger(userTextMessage)) {
         session.completeInterview();
       }
-      sessionRepository.save(session);
-      return performChatInteractionStreaming(session, userTextMessage);
+      return performChatInteractionStreaming(sessionRepository.save(session), userTextMessage);
     } else if (session.getStatus() == SessionStatus.COMPLETED) {
       throw new SessionCompletedException("Session is already completed");
     } else {
@@ -245,58 +434,133 @@ public class InterviewService {
 
   private String performChatInteraction(Session session, String userMessage) {
     return interviewerChatClient.prompt()
-        .system(Prompts.getInterviewerPrompt(
-            session.getInterviewPlan(),
-            session.getCommunicationStylePreset(),
-            session.getInterviewFormat() == null ? null : session.getInterviewFormat().getValue()
-        ))
+        .system(Prompts.getInterviewerPrompt(session))
         .user(userMessage)
         .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
         .call()
         .content();
   }
 
-  private SseEmitter performChatInteractionStreaming(Session session, String userMessage) {
-    final StringBuilder answerBuilder = new StringBuilder();
-    SseEmitter sseEmitter = new SseEmitter(0L);
+  /**
+   * Streams the answer to the client without holding a request thread: Spring MVC subscribes to the returned flux and
+   * writes chunks as they arrive. Model deltas are merged into fewer frames by {@link TokenCoalescer}.
+   * <p>
+   * Chunks go through {@link StreamReplayRegistry}, so a client that reconnects with {@code Last-Event-ID} continues
+   * from the buffer. If nobody reconnects within the grace period, the model stream is cancelled, which closes the
+   * connection and stops generation. The memory advisor only stores completed answers, so the part generated so far
+   * is persisted here as an interrupted assistant message.
+   */
+  private Flux<ServerSentEvent<String>> performChatInteractionStreaming(Session session, String userMessage) {
+    return performChatInteractionStreaming(session, userMessage, 0);
+  }
+
+  /**
+   * @param answeredQuestion the main question {@code userMessage} answers, scored once the turn is stored; 0 if the
+   *                         message is not an answer
+   */
+  private Flux<ServerSentEvent<String>> performChatInteractionStreaming(Session session, String userMessage,
+                                                                        int answeredQuestion) {
+    return streamReplayRegistry.open(session.getId(), interviewerTokens(session, userMessage, answeredQuestion));
+  }
+
+  private Flux<String> interviewerTokens(Session session, String userMessage, int answeredQuestion) {
+    StreamedAnswer answer = new StreamedAnswer();
 
-    interviewerChatClient.prompt()
-        .system(Prompts.getInterviewerPrompt(
-            session.getInterviewPlan(),
-            session.getCommunicationStylePreset(),
-            session.getInterviewFormat() == null ? null : session.getInterviewFormat().getValue()
-        ))
+    return interviewerChatClient.prompt()
+        .system(Prompts.getInterviewerPrompt(session))
         .user(userMessage)
         .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, session.getId().toString()))
         .stream()
         .chatResponse()
-        .subscribe(
-            (ChatResponse response) -> processToken(response, answerBuilder, sseEmitter),
-            sseEmitter::completeWithError,
-            () -> {
-              onAnswerComplete(session, answerBuilder.toString());
-              sseEmitter.complete();
-            }
-        );
-
-    return sseEmitter;
+        .mapNotNull(InterviewService::getText)
+        .doOnNext(answer::append)
+        .doOnCancel(() -> Schedulers.boundedElastic().schedule(() -> onAnswerCancelled(session, answer)))
+        .concatWith(Mono.<String>fromRunnable(() -> onAnswerComplete(session, userMessage, answeredQuestion, answer))
+            .subscribeOn(Schedulers.boundedElastic()))
+        .transform(tokenCoalescer::coalesce);
+  }
+
+  /**
+   * Feedback assembled from answer assessments. It is generated without the history advisor, so the turn is
+   * stored here once the stream completes, or with the part generated so far marked interrupted if it is cancelled.
+   */
+  private Flux<String> assembledFeedbackTokens(Session session, String userMessage, Flux<String> feedback) {
+    StreamedAnswer answer = new StreamedAnswer();
+
+    return feedback
+        .doOnNext(answer::append)
+        .doOnCancel(() -> Schedulers.boundedElastic().schedule(() -> {
+          streamCancellationMetrics.onCancelled(answer.chunks());
+          sessionMessageRepository.save(SessionMessage.from(session.getId(), new UserMessage(userMessage)));
+          if (answer.chunks() > 0) {
+            sessionMessageRepository.save(SessionMessage.newInterruptedAssistantMessage(session.getId(), answer.text()));
+          }
+        }))
+        .concatWith(Mono.<String>fromRunnable(() -> {
+          streamCancellationMetrics.onCompleted(answer.chunks());
+          storeTurn(session, userMessage, answer.text());
+        }).subscribeOn(Schedulers.boundedElastic()))
+        .transform(tokenCoalescer::coalesce);
   }
 
-  @SneakyThrows
-  private void processToken(ChatResponse response, StringBuilder answerBuilder, SseEmitter emitter) {
-    var token = response.getResult().getOutput();
-    String text = token.getText();
-    if (text != null) {
-      answerBuilder.append(text);
-      emitter.send(text);
+  /**
+   * Persists a turn answered without the history advisor (a speculated opening turn, assembled feedback) the way
+   * the advisor would have stored a live one.
+   */
+  private String storeTurn(Session session, String userMessage, String answer) {
+    SessionMessage assistantMessage = SessionMessage.newAssistantMessage(session.getId(), answer);
+    tokenAccounting.takeMessageUsage(session.getId()).ifPresent(assistantMessage::withUsage);
+    sessionMessageRepository.saveAll(List.of(
+        SessionMessage.from(session.getId(), new UserMessage(userMessage)),
+        assistantMessage));
+    return answer;
+  }
+
+  /**
+   * Moves the session to the main question the interviewer has just asked, so that later turns get the plan with
+   * the asked questions folded.
+   */
+  private static boolean trackProgress(Session session, String assistantAnswer) {
+    if (session.getStatus() != SessionStatus.ONGOING) {
+      return false;
+    }
+    OptionalInt asked = PlanQuestions.askedQuestion(assistantAnswer);
+    return asked.isPresent() && session.advanceTo(asked.getAsInt());
+  }
+
+  private String getUserText(MessageRequestDto userMessage) {
+    return switch (MessageType.fromValue(userMessage.getType())) {
+      case TEXT -> userMessage.getMessage();
+      case AUDIO -> transcriptionService.transcribe(userMessage.getAudioBase64());
+    };
+  }
+
+  private static String getText(ChatResponse response) {
+    // The trailing usage chunk of a stream carries no generation
+    if (response.getResult() == null || response.getResult().getOutput() == null) {
+      return null;
     }
+    return response.getResult().getOutput().getText();
   }
 
-  @SneakyThrows
-  private void onAnswerComplete(Session session, String answer) {
-    if (MessageTrigger.COMPLETE.isTrigger(answer)) {
+  private void onAnswerComplete(Session session, String userMessage, int answeredQuestion, StreamedAnswer answer) {
+    streamCancellationMetrics.onCompleted(answer.chunks());
+    if (!session.isCompleted() && MessageTrigger.COMPLETE.isTrigger(answer.text())) {
       session.completeInterview();
       sessionRepository.save(session);
+      return;
+    }
+    answerAssessor.request(session, answeredQuestion, userMessage);
+    if (trackProgress(session, answer.text())) {
+      sessionRepository.save(session);
+    }
+  }
+
+  private void onAnswerCancelled(Session session, StreamedAnswer answer) {
+    streamCancellationMetrics.onCancelled(answer.chunks());
+    // Nothing reached the client, the turn is left with the user message only
+    if (answer.chunks() > 0) {
+      sessionMessageRepository.save(SessionMessage.newInterruptedAssistantMessage(session.getId(), answer.text()));
     }
   }
 
@@ -315,4 +579,24 @@ public class InterviewService {
         .interviewComplete(true)
         .build();
   }
+
+  private static final class StreamedAnswer {
+
+    private final StringBuilder text = new StringBuilder();
+    private int chunks;
+
+    // Signals of a single flux are serialized, the lock only publishes the state to the thread that persists it
+    synchronized void append(String chunk) {
+      text.append(chunk);
+      chunks++;
+    }
+
+    synchronized String text() {
+      return text.toString();
+    }
+
+    synchronized int chunks() {
+      return chunks;
+    }
+  }
 }
@@ -0,0 +1,200 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.MessageTrigger;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.Prompts;
+import ru.hh.aiinterviewer.utils.LruCache;
+
+/**
+ * Generates the opening interview turn while the candidate is still reading the plan, so that the start command
+ * is answered without a model call. The request is the same one the interviewer would send on start: the
+ * interviewer prompt for the final plan, an empty history and the start command.
+ * <p>
+ * A speculation is valid only for the plan it was generated from and while the session has no messages (a
+ * streamed plan correction is answered by the interviewer and becomes history). Otherwise it is discarded and a
+ * generation still running is cancelled; speculations that were never claimed are evicted by count and age. A start
+ * command waits for a running generation up to {@code app.opening-speculation-await-ms}, then cancels it and asks
+ * the model itself. {@code opening.speculation.waste.ratio} is
+ * the share of generations that did not answer a start command.
+ */
+@Component
+public class OpeningTurnSpeculator {
+
+  private static final Logger log = LoggerFactory.getLogger(OpeningTurnSpeculator.class);
+
+  private final ApplicationProperties applicationProperties;
+  private final ChatClient openingTurnChatClient;
+  private final SessionMessageRepository sessionMessageRepository;
+  private final ExecutorService planningExecutor;
+  private final LruCache<UUID, Speculation> speculations;
+  private final Counter generations;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter revised;
+  private final Counter stale;
+  private final Counter timedOut;
+
+  public OpeningTurnSpeculator(ApplicationProperties applicationProperties, ChatClient openingTurnChatClient,
+                               SessionMessageRepository sessionMessageRepository, ExecutorService planningExecutor,
+                               MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.openingTurnChatClient = openingTurnChatClient;
+    this.sessionMessageRepository = sessionMessageRepository;
+    this.planningExecutor = planningExecutor;
+    this.speculations = new LruCache<>(applicationProperties.getOpeningSpeculationMaxEntries(),
+        applicationProperties.getOpeningSpeculationTtlMs(), (sessionId, speculation) -> 1);
+    this.generations = Counter.builder("opening.speculation.generations")
+        .description("Opening turns generated ahead of the start command")
+        .register(meterRegistry);
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+    this.revised = discarded(meterRegistry, "revised");
+    this.stale = discarded(meterRegistry, "stale");
+    this.timedOut = discarded(meterRegistry, "timeout");
+    Gauge.builder("opening.speculation.hit.ratio", this, s -> ratio(s.hits.count(), s.hits.count() + s.misses.count()))
+        .description("Share of start commands answered from a speculated opening turn")
+        .register(meterRegistry);
+    Gauge.builder("opening.speculation.waste.ratio", this,
+            s -> ratio(s.generations.count() - s.hits.count(), s.generations.count()))
+        .description("Share of speculated opening turns that were not used, including ones still waiting for start")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Starts generating the opening turn for the current plan, replacing a speculation made for a previous one.
+   */
+  public void speculate(Session session) {
+    if (!applicationProperties.isOpeningSpeculationEnabled()) {
+      return;
+    }
+    discard(session.getId());
+    String systemPrompt = Prompts.getInterviewerPrompt(session);
+    try {
+      Future<String> answer = planningExecutor.submit(() -> generate(session.getId(), systemPrompt));
+      speculations.put(session.getId(), new Speculation(session.getInterviewPlan(), answer));
+    } catch (RejectedExecutionException e) {
+      log.debug("Opening turn speculation rejected for session {}", session.getId());
+    }
+  }
+
+  /**
+   * Drops the speculation of a session whose plan or history is about to change.
+   */
+  public void discard(UUID sessionId) {
+    Speculation speculation = speculations.remove(sessionId);
+    if (speculation != null) {
+      speculation.answer().cancel(true);
+      revised.increment();
+    }
+  }
+
+  /**
+   * Claims the opening turn for a start command, waiting for it if the generation is still running.
+   */
+  public Optional<String> take(Session session, String userMessage, long messageCount) {
+    if (!applicationProperties.isOpeningSpeculationEnabled()) {
+      return Optional.empty();
+    }
+    Speculation speculation = speculations.remove(session.getId());
+    if (speculation == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    // Any other input than the bare command (or a changed plan or history) is a different model request
+    if (messageCount > 0
+        || !Objects.equals(speculation.plan(), session.getInterviewPlan())
+        || MessageTrigger.of(userMessage).filter(MessageTrigger.START::equals).isEmpty()) {
+      speculation.answer().cancel(true);
+      stale.increment();
+      misses.increment();
+      return Optional.empty();
+    }
+    String answer = await(speculation.answer());
+    if (answer == null || answer.isBlank()) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(answer);
+  }
+
+  private String generate(UUID sessionId, String systemPrompt) {
+    try {
+      if (sessionMessageRepository.countBySessionId(sessionId) > 0) {
+        return null;
+      }
+      generations.increment();
+      return openingTurnChatClient.prompt()
+          .system(systemPrompt)
+          .user(MessageTrigger.START.getValue())
+          .advisors(advisorSpec -> advisorSpec.param(ChatMemory.CONVERSATION_ID, sessionId.toString()))
+          .call()
+          .content();
+    } catch (RuntimeException e) {
+      if (!Thread.currentThread().isInterrupted()) {
+        log.warn("Opening turn speculation failed for session {}", sessionId, e);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * A live call is as good as a speculated one, so a hanging generation is cancelled rather than waited for.
+   */
+  private String await(Future<String> answer) {
+    try {
+      return answer.get(applicationProperties.getOpeningSpeculationAwaitMs(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      answer.cancel(true);
+      timedOut.increment();
+      return null;
+    } catch (InterruptedException e) {
+      answer.cancel(true);
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | CancellationException e) {
+      return null;
+    }
+  }
+
+  private static double ratio(double part, double total) {
+    return total == 0 ? 0 : part / total;
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("opening.speculation.requests")
+        .description("Start commands by whether a speculated opening turn answered them")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static Counter discarded(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder("opening.speculation.discarded")
+        .description("Speculated opening turns dropped before use")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+  private record Speculation(String plan, Future<String> answer) {
+  }
+}
@@ -0,0 +1,36 @@
+package ru.hh.aiinterviewer.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Sample layout of a validated WAV upload: where the interleaved samples start and how they are encoded.
+ */
+record PcmLayout(int encoding, int channels, int sampleRate, int bitsPerSample, long dataStart, long dataBytes) {
+
+  static final int PCM = 1;
+  static final int IEEE_FLOAT = 3;
+  static final int WAV_HEADER_SIZE = 44;
+
+  int frameSize() {
+    return channels * bitsPerSample / 8;
+  }
+
+  long frames() {
+    return dataBytes / frameSize();
+  }
+
+  /**
+   * A canonical 44-byte header for {@code dataBytes} of samples in this layout.
+   */
+  byte[] wavHeader() {
+    return ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        .put(new byte[]{'R', 'I', 'F', 'F'}).putInt((int) (WAV_HEADER_SIZE - 8 + dataBytes))
+        .put(new byte[]{'W', 'A', 'V', 'E'})
+        .put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+        .putShort((short) encoding).putShort((short) channels).putInt(sampleRate).putInt(sampleRate * frameSize())
+        .putShort((short) frameSize()).putShort((short) bitsPerSample)
+        .put(new byte[]{'d', 'a', 't', 'a'}).putInt((int) dataBytes)
+        .array();
+  }
+}
@@ -0,0 +1,98 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.InterviewPlanCacheEntry;
+import ru.hh.aiinterviewer.domain.repository.InterviewPlanCacheRepository;
+import ru.hh.aiinterviewer.llm.Prompts;
+import ru.hh.aiinterviewer.utils.LruCache;
+import ru.hh.aiinterviewer.utils.TieredCache;
+
+/**
+ * Interview plans for popular roles and vacancies, reused between sessions instead of regenerating them (10+ s and
+ * a full plan completion each). The key is a hash of the chat model and of the plan prompt rendered from the
+ * normalized vacancy text, question count and preferences, so a prompt change invalidates old plans by itself.
+ * <p>
+ * A {@link TieredCache} over a bounded LRU in memory and the {@code interview_plan_cache} table; both expire entries
+ * after {@code app.plan-cache-ttl-ms}. Concurrent misses for one key share a generation.
+ */
+@Component
+public class PlanCache {
+
+  private final ApplicationProperties applicationProperties;
+  private final String model;
+  private final TieredCache<String> cache;
+
+  public PlanCache(ApplicationProperties applicationProperties, InterviewPlanCacheRepository repository,
+                   MeterRegistry meterRegistry,
+                   @Value("${app.models.plan.model:${spring.ai.openai.chat.options.model:}}") String model) {
+    this.applicationProperties = applicationProperties;
+    this.model = model;
+    this.cache = TieredCache.<String>builder()
+        .metric("plan.cache")
+        .description("Interview plan")
+        .memory(new LruCache<>(applicationProperties.getPlanCacheMaxEntries(), applicationProperties.getPlanCacheTtlMs(),
+            (key, plan) -> 1))
+        .store(new Store(repository))
+        .storeEnabled(applicationProperties::isPlanCacheDbEnabled)
+        .ttlMs(applicationProperties::getPlanCacheTtlMs)
+        .cacheable(plan -> !plan.isBlank())
+        .meterRegistry(meterRegistry)
+        .build();
+  }
+
+  public String get(String vacancy, Integer numQuestions, String planPreferences, Supplier<String> generator) {
+    if (!applicationProperties.isPlanCacheEnabled()) {
+      return generator.get();
+    }
+    return cache.get(key(vacancy, numQuestions, planPreferences), generator);
+  }
+
+  String key(String vacancy, Integer numQuestions, String planPreferences) {
+    String prompt = Prompts.getPrepareInterviewPlanPrompt(normalize(vacancy), numQuestions,
+        planPreferences == null || planPreferences.isBlank() ? null : normalize(planPreferences));
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((model + '|' + prompt).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Case, Unicode compatibility forms and whitespace differences between copies of the same vacancy don't matter.
+   */
+  private static String normalize(String text) {
+    return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+  }
+
+  private record Store(InterviewPlanCacheRepository repository) implements TieredCache.Store<String> {
+
+    @Override
+    public Optional<TieredCache.Stored<String>> find(String key) {
+      return repository.findById(key).map(entry -> new TieredCache.Stored<>(entry.getPlan(), entry.getCreatedAt()));
+    }
+
+    @Override
+    public void save(String key, String plan) {
+      repository.save(InterviewPlanCacheEntry.builder().key(key).plan(plan).build());
+    }
+
+    @Override
+    public int deleteCreatedBefore(OffsetDateTime before) {
+      return repository.deleteCreatedBefore(before);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.api.dto.CreateSessionRequestDto;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.Role;
+import ru.hh.aiinterviewer.domain.model.SessionMode;
+import ru.hh.aiinterviewer.domain.repository.RoleRepository;
+import ru.hh.aiinterviewer.llm.Prompts;
+
+/**
+ * Keeps {@code app.plan-pool-depth} freshly generated plans for each of the {@code app.plan-pool-top-roles} most
+ * popular roles and each configured question count, so that a ROLE-mode session without plan preferences gets its
+ * plan instantly. Each pooled plan is handed out once, which keeps the variety of separate generations.
+ * <p>
+ * Taking a plan schedules its replacement; a periodic pass tops up every slot and follows popularity changes.
+ * Generations run on a small executor and are limited by a per-minute budget on top of the LLM permits.
+ */
+@Component
+public class PlanPool {
+
+  private static final Logger log = LoggerFactory.getLogger(PlanPool.class);
+
+  private record Slot(String role, int numQuestions) {
+  }
+
+  private final ApplicationProperties applicationProperties;
+  private final RoleRepository roleRepository;
+  private final ChatClient prepareInterviewPlanChatClient;
+  private final Map<Slot, Queue<String>> plans = new ConcurrentHashMap<>();
+  private final Map<Slot, AtomicInteger> pending = new ConcurrentHashMap<>();
+  private final Map<String, String> roleNames = new ConcurrentHashMap<>();
+  private final ExecutorService executor;
+  private final RateBudget budget;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter generated;
+  private final Counter failed;
+  private final Counter throttled;
+
+  public PlanPool(ApplicationProperties applicationProperties, RoleRepository roleRepository,
+                  ChatClient prepareInterviewPlanChatClient, MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.roleRepository = roleRepository;
+    this.prepareInterviewPlanChatClient = prepareInterviewPlanChatClient;
+    this.executor = Executors.newFixedThreadPool(applicationProperties.getPlanPoolConcurrency(),
+        Thread.ofVirtual().name("plan-pool-", 0).factory());
+    this.budget = new RateBudget(applicationProperties.getPlanPoolMaxGenerationsPerMinute());
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+    this.generated = generations(meterRegistry, "success");
+    this.failed = generations(meterRegistry, "failure");
+    this.throttled = generations(meterRegistry, "throttled");
+    Gauge.builder("plan.pool.depth", plans, p -> p.values().stream().mapToInt(Queue::size).sum())
+        .description("Ready-made plans waiting in the pool")
+        .register(meterRegistry);
+    Gauge.builder("plan.pool.hit.ratio", this, PlanPool::hitRatio)
+        .description("Share of eligible ROLE-mode sessions that got a pooled plan")
+        .register(meterRegistry);
+  }
+
+  /**
+   * A pooled plan for a ROLE-mode request without plan preferences, if one is ready.
+   */
+  public Optional<String> take(CreateSessionRequestDto request) {
+    if (!applicationProperties.isPlanPoolEnabled() || request.getMode() != SessionMode.ROLE
+        || request.getRoleName() == null || request.getNumQuestions() == null
+        || request.getPlanPreferences() != null && !request.getPlanPreferences().isBlank()
+        || !applicationProperties.getPlanPoolQuestionCounts().contains(request.getNumQuestions())) {
+      return Optional.empty();
+    }
+    Slot slot = new Slot(normalize(request.getRoleName()), request.getNumQuestions());
+    Queue<String> queue = plans.get(slot);
+    String plan = queue == null ? null : queue.poll();
+    if (plan == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    fill(slot);
+    return Optional.of(plan);
+  }
+
+  @Scheduled(fixedDelayString = "${app.plan-pool-refill-interval-ms:60000}",
+      initialDelayString = "${app.plan-pool-refill-interval-ms:60000}")
+  public void refill() {
+    if (!applicationProperties.isPlanPoolEnabled()) {
+      return;
+    }
+    Set<Slot> slots = new HashSet<>();
+    for (Role role : roleRepository.findAllByOrderByPopularityDesc(PageRequest.of(0, applicationProperties.getPlanPoolTopRoles()))) {
+      String normalized = normalize(role.getName());
+      roleNames.put(normalized, role.getName());
+      for (int numQuestions : applicationProperties.getPlanPoolQuestionCounts()) {
+        slots.add(new Slot(normalized, numQuestions));
+      }
+    }
+    // roles that dropped out of the top are not refilled, their remaining plans are dropped
+    plans.keySet().retainAll(slots);
+    pending.keySet().retainAll(slots);
+    roleNames.keySet().retainAll(slots.stream().map(Slot::role).toList());
+    for (Slot slot : slots) {
+      plans.computeIfAbsent(slot, s -> new ConcurrentLinkedQueue<>());
+      fill(slot);
+    }
+  }
+
+  private void fill(Slot slot) {
+    Queue<String> queue = plans.get(slot);
+    if (queue == null) {
+      return;
+    }
+    AtomicInteger inFlight = pending.computeIfAbsent(slot, s -> new AtomicInteger());
+    while (queue.size() + inFlight.get() < applicationProperties.getPlanPoolDepth()) {
+      if (!budget.tryAcquire()) {
+        throttled.increment();
+        return;
+      }
+      inFlight.incrementAndGet();
+      executor.execute(() -> generate(slot, queue, inFlight));
+    }
+  }
+
+  private void generate(Slot slot, Queue<String> queue, AtomicInteger inFlight) {
+    try {
+      String roleName = roleNames.getOrDefault(slot.role(), slot.role());
+      String plan = prepareInterviewPlanChatClient
+          .prompt()
+          .user(Prompts.getPrepareInterviewPlanPrompt(roleName, slot.numQuestions(), null))
+          .call()
+          .content();
+      if (plan != null && !plan.isBlank()) {
+        queue.add(plan);
+        generated.increment();
+      }
+    } catch (RuntimeException e) {
+      failed.increment();
+      log.warn("Plan pre-generation failed for role {}", slot.role(), e);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static String normalize(String roleName) {
+    return roleName.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+  }
+
+  private double hitRatio() {
+    double total = hits.count() + misses.count();
+    return total == 0 ? 0 : hits.count() / total;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("plan.pool.requests")
+        .description("ROLE-mode sessions eligible for a pooled plan")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static Counter generations(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("plan.pool.generations")
+        .description("Background plan generations; throttled ones were skipped for lack of budget")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Token bucket refilled continuously at {@code perMinute} tokens per minute, holding at most a minute's worth.
+   */
+  private static final class RateBudget {
+
+    private final double perNano;
+    private final double capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long updatedAt = System.nanoTime();
+
+    private RateBudget(int perMinute) {
+      this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+      this.capacity = perMinute;
+      this.tokens = perMinute;
+    }
+
+    boolean tryAcquire() {
+      lock.lock();
+      try {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - updatedAt) * perNano);
+        updatedAt = now;
+        if (tokens < 1) {
+          return false;
+        }
+        tokens--;
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
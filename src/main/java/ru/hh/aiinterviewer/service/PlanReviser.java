@@ -0,0 +1,84 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.llm.PlanPatch;
+import ru.hh.aiinterviewer.llm.PlanQuestions;
+import ru.hh.aiinterviewer.llm.Prompts;
+
+/**
+ * Applies plan corrections made in the planned status.
+ * <p>
+ * With {@code app.plan-patch-enabled} the model is asked for a {@link PlanPatch} of the question list only, and the
+ * server applies it to the stored plan: a correction costs a few output tokens instead of the whole plan. When the
+ * model asks for a full revision or the patch does not apply, the plan is regenerated with the revise prompt.
+ */
+@Component
+public class PlanReviser {
+
+  private static final Logger log = LoggerFactory.getLogger(PlanReviser.class);
+
+  private final ApplicationProperties applicationProperties;
+  private final ChatClient revisePlanChatClient;
+  private final Counter patched;
+  private final Counter regenerated;
+
+  public PlanReviser(ApplicationProperties applicationProperties, ChatClient revisePlanChatClient,
+                     MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    this.revisePlanChatClient = revisePlanChatClient;
+    this.patched = revisions(meterRegistry, "patch");
+    this.regenerated = revisions(meterRegistry, "full");
+  }
+
+  /**
+   * @return the corrected plan
+   */
+  public String revise(Session session, String corrections) {
+    Optional<String> patchedPlan = applicationProperties.isPlanPatchEnabled()
+        ? patch(session, corrections)
+        : Optional.empty();
+    if (patchedPlan.isPresent()) {
+      patched.increment();
+      return patchedPlan.get();
+    }
+    regenerated.increment();
+    return revisePlanChatClient
+        .prompt()
+        .system(Prompts.getRevisePlanPrompt(session.getInterviewPlan(), corrections, session.getNumQuestions(), session.getPlanPreferences()))
+        .call()
+        .content();
+  }
+
+  private Optional<String> patch(Session session, String corrections) {
+    // Without a parsable question list there is nothing to patch
+    if (session.getPlanQuestions() == null || session.getPlanQuestions().isEmpty()) {
+      return Optional.empty();
+    }
+    try {
+      PlanPatch patch = revisePlanChatClient
+          .prompt()
+          .user(Prompts.getPatchPlanPrompt(session.getInterviewPlan(), corrections, session.getNumQuestions(), session.getPlanPreferences()))
+          .call()
+          .entity(PlanPatch.class);
+      return PlanQuestions.apply(session.getInterviewPlan(), patch);
+    } catch (RuntimeException e) {
+      log.warn("Plan patch failed for session {}, regenerating the plan", session.getId(), e);
+      return Optional.empty();
+    }
+  }
+
+  private static Counter revisions(MeterRegistry meterRegistry, String mode) {
+    return Counter.builder("plan.revisions")
+        .description("Plan corrections by whether the plan was patched or regenerated")
+        .tag("mode", mode)
+        .register(meterRegistry);
+  }
+}
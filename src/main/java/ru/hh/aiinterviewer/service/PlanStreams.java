@@ -0,0 +1,70 @@
+package ru.hh.aiinterviewer.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Plans being generated in the background for sessions in {@code PLANNING} status. Every subscriber gets the plan
+ * from the beginning (a plan is a few kilobytes, so the whole text is retained until generation ends).
+ * <p>
+ * Event ids are character offsets into the plan: a client reconnecting with {@code Last-Event-ID} gets only the text
+ * after that offset, no matter how the chunks were split for the previous connection.
+ */
+@Component
+public class PlanStreams {
+
+  private final Map<UUID, Sinks.Many<String>> streams = new ConcurrentHashMap<>();
+
+  Sinks.Many<String> open(UUID sessionId) {
+    Sinks.Many<String> sink = Sinks.many().replay().all();
+    streams.put(sessionId, sink);
+    return sink;
+  }
+
+  /**
+   * Called after the final session state is persisted, so a client that finds no stream here can read the session.
+   */
+  void close(UUID sessionId, Sinks.Many<String> sink, Throwable error) {
+    streams.remove(sessionId, sink);
+    if (error == null) {
+      sink.tryEmitComplete();
+    } else {
+      sink.tryEmitError(error);
+    }
+  }
+
+  Optional<Flux<String>> find(UUID sessionId) {
+    return Optional.ofNullable(streams.get(sessionId)).map(Sinks.Many::asFlux);
+  }
+
+  static Flux<ServerSentEvent<String>> events(Flux<String> chunks, long afterOffset) {
+    return Flux.defer(() -> {
+      long[] offset = {0};
+      return chunks.handle((chunk, sink) -> {
+        long start = offset[0];
+        offset[0] += chunk.length();
+        if (offset[0] > afterOffset) {
+          String text = start >= afterOffset ? chunk : chunk.substring((int) (afterOffset - start));
+          sink.next(ServerSentEvent.builder(text).id(Long.toString(offset[0])).build());
+        }
+      });
+    });
+  }
+
+  static long parseOffset(String lastEventId) {
+    if (lastEventId == null || lastEventId.isBlank()) {
+      return 0;
+    }
+    try {
+      return Math.max(0, Long.parseLong(lastEventId.trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed Last-Event-ID: " + lastEventId);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package ru.hh.aiinterviewer.service;
+
+import java.util.Arrays;
+
+/**
+ * Streaming windowed-sinc downsampler for mono float samples. The low-pass cutoff follows the output Nyquist
+ * frequency so that downsampling does not alias; kernels are precomputed for a fixed number of fractional
+ * phases and input positions are tracked in integer arithmetic, so the output length is exact.
+ */
+final class SincResampler {
+
+  private static final int HALF_TAPS = 16;
+  private static final int TAPS = 2 * HALF_TAPS;
+  private static final int PHASES = 256;
+  private static final double ROLLOFF = 0.95;
+
+  private final int inRate;
+  private final int outRate;
+  private final long outputCount;
+  private final float[] kernels;
+  private float[] buffer = new float[4096];
+  /** Absolute input index of {@code buffer[0]}; negative indices are the zero lead-in. */
+  private long bufferStart = 1 - HALF_TAPS;
+  private int buffered = HALF_TAPS - 1;
+  private long next;
+
+  SincResampler(int inRate, int outRate, long inputCount) {
+    this.inRate = inRate;
+    this.outRate = outRate;
+    this.outputCount = outputCount(inputCount, inRate, outRate);
+    this.kernels = kernels(Math.min(1.0, (double) outRate / inRate) * ROLLOFF);
+  }
+
+  static long outputCount(long inputCount, int inRate, int outRate) {
+    return (inputCount * outRate + inRate - 1) / inRate;
+  }
+
+  long outputCount() {
+    return outputCount;
+  }
+
+  /**
+   * Upper bound of samples produced by one {@link #process} call with {@code inputCount} samples, or by
+   * {@link #finish}.
+   */
+  int maxOutput(int inputCount) {
+    return (int) ((long) (inputCount + TAPS) * outRate / inRate) + 2;
+  }
+
+  int process(float[] input, int count, float[] output) {
+    append(input, count);
+    return emit(output);
+  }
+
+  /**
+   * Flushes the samples that were waiting for look-ahead past the end of the input.
+   */
+  int finish(float[] output) {
+    append(new float[HALF_TAPS + 1], HALF_TAPS + 1);
+    return emit(output);
+  }
+
+  private void append(float[] input, int count) {
+    // Drop history that no remaining output sample can reach
+    long keepFrom = Math.min(position(next) - HALF_TAPS + 1, bufferStart + buffered);
+    int drop = (int) Math.max(0, keepFrom - bufferStart);
+    if (drop > 0) {
+      System.arraycopy(buffer, drop, buffer, 0, buffered - drop);
+      buffered -= drop;
+      bufferStart += drop;
+    }
+    if (buffered + count > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, buffered + count));
+    }
+    System.arraycopy(input, 0, buffer, buffered, count);
+    buffered += count;
+  }
+
+  private int emit(float[] output) {
+    int produced = 0;
+    long bufferEnd = bufferStart + buffered;
+    while (next < outputCount) {
+      long numerator = next * inRate;
+      long base = numerator / outRate;
+      if (base + HALF_TAPS >= bufferEnd) {
+        break;
+      }
+      int phase = (int) ((numerator % outRate * PHASES + outRate / 2) / outRate);
+      int kernel = phase * TAPS;
+      int from = (int) (base - HALF_TAPS + 1 - bufferStart);
+      float sum = 0;
+      for (int tap = 0; tap < TAPS; tap++) {
+        sum += buffer[from + tap] * kernels[kernel + tap];
+      }
+      output[produced++] = sum;
+      next++;
+    }
+    return produced;
+  }
+
+  private long position(long outputIndex) {
+    return outputIndex * inRate / outRate;
+  }
+
+  /**
+   * One row of taps per phase, plus a final row for a fraction of exactly 1. Rows are normalized to unit gain.
+   */
+  private static float[] kernels(double cutoff) {
+    float[] kernels = new float[(PHASES + 1) * TAPS];
+    for (int phase = 0; phase <= PHASES; phase++) {
+      double fraction = (double) phase / PHASES;
+      double sum = 0;
+      double[] row = new double[TAPS];
+      for (int tap = 0; tap < TAPS; tap++) {
+        double t = tap - HALF_TAPS + 1 - fraction;
+        double x = Math.PI * cutoff * t;
+        double sinc = x == 0 ? 1 : Math.sin(x) / x;
+        double window = 0.42 + 0.5 * Math.cos(Math.PI * t / HALF_TAPS) + 0.08 * Math.cos(2 * Math.PI * t / HALF_TAPS);
+        row[tap] = Math.abs(t) >= HALF_TAPS ? 0 : sinc * window;
+        sum += row[tap];
+      }
+      for (int tap = 0; tap < TAPS; tap++) {
+        kernels[phase * TAPS + tap] = (float) (row[tap] / sum);
+      }
+    }
+    return kernels;
+  }
+}
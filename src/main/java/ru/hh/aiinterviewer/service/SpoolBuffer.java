@@ -0,0 +1,76 @@
+package ru.hh.aiinterviewer.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Accumulates audio bytes in memory up to a threshold and in a temp file beyond it, hashing them on the way.
+ * Closing a buffer that has not been turned into {@link SpooledAudio} discards it.
+ */
+final class SpoolBuffer implements AutoCloseable {
+
+  private final long memoryThreshold;
+  private final MessageDigest digest = newDigest();
+  private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+  private OutputStream out = memory;
+  private Path file;
+  private long size;
+  private boolean finished;
+
+  SpoolBuffer(long memoryThreshold) {
+    this.memoryThreshold = memoryThreshold;
+  }
+
+  long size() {
+    return size;
+  }
+
+  /**
+   * The container must be known once the buffer spills, the temp file is named after it.
+   */
+  void write(byte[] bytes, int offset, int length, AudioFormat format) throws IOException {
+    size += length;
+    digest.update(bytes, offset, length);
+    if (file == null && size > memoryThreshold) {
+      file = Files.createTempFile("audio-", "." + format.getExtension());
+      out = Files.newOutputStream(file);
+      memory.writeTo(out);
+      memory = null;
+    }
+    out.write(bytes, offset, length);
+  }
+
+  SpooledAudio finish(AudioFormat format, PcmLayout pcm) throws IOException {
+    out.close();
+    finished = true;
+    String sha256 = HexFormat.of().formatHex(digest.digest());
+    return file == null
+        ? SpooledAudio.inMemory(format, pcm, sha256, memory.toByteArray())
+        : SpooledAudio.onDisk(format, pcm, sha256, file, size);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (finished) {
+      return;
+    }
+    out.close();
+    if (file != null) {
+      Files.deleteIfExists(file);
+    }
+  }
+}
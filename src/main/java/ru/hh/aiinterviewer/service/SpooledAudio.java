@@ -0,0 +1,122 @@
+package ru.hh.aiinterviewer.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Uploaded audio that has been validated and buffered either in memory (small recordings) or in a temporary
+ * file. Closing it deletes the file.
+ */
+public final class SpooledAudio implements AutoCloseable {
+
+  private final AudioFormat format;
+  private final PcmLayout pcm;
+  private final String sha256;
+  private final byte[] bytes;
+  private final Path file;
+  private final long size;
+
+  private SpooledAudio(AudioFormat format, PcmLayout pcm, String sha256, byte[] bytes, Path file, long size) {
+    this.format = format;
+    this.pcm = pcm;
+    this.sha256 = sha256;
+    this.bytes = bytes;
+    this.file = file;
+    this.size = size;
+  }
+
+  static SpooledAudio inMemory(AudioFormat format, PcmLayout pcm, String sha256, byte[] bytes) {
+    return new SpooledAudio(format, pcm, sha256, bytes, null, bytes.length);
+  }
+
+  static SpooledAudio onDisk(AudioFormat format, PcmLayout pcm, String sha256, Path file, long size) {
+    return new SpooledAudio(format, pcm, sha256, null, file, size);
+  }
+
+  public AudioFormat format() {
+    return format;
+  }
+
+  /**
+   * Sample layout for WAV uploads, {@code null} for compressed containers.
+   */
+  PcmLayout pcm() {
+    return pcm;
+  }
+
+  /**
+   * Hex SHA-256 of the file as uploaded.
+   */
+  public String sha256() {
+    return sha256;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isOnDisk() {
+    return file != null;
+  }
+
+  /**
+   * The transcription API derives the format from the file name, so the resource is named after the sniffed
+   * container (temp files get the same extension).
+   */
+  public Resource resource() {
+    if (file != null) {
+      return new FileSystemResource(file);
+    }
+    String filename = "audio." + format.getExtension();
+    return new ByteArrayResource(bytes) {
+      @Override
+      public String getFilename() {
+        return filename;
+      }
+    };
+  }
+
+  /**
+   * Reads up to {@code length} bytes at an absolute position, for header probes that need to seek.
+   */
+  int read(long position, byte[] target, int length) throws IOException {
+    return read(position, target, 0, length);
+  }
+
+  int read(long position, byte[] target, int offset, int length) throws IOException {
+    if (position >= size) {
+      return 0;
+    }
+    int count = (int) Math.min(length, size - position);
+    if (file == null) {
+      System.arraycopy(bytes, (int) position, target, offset, count);
+      return count;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.wrap(target, offset, count);
+      while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position() - offset) > 0) {
+        // keep reading until the requested range is filled
+      }
+      return buffer.position() - offset;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
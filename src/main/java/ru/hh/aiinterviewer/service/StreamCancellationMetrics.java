@@ -0,0 +1,40 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts answer streams cancelled by a client disconnect and estimates the completion tokens saved by
+ * cancelling the upstream generation. The estimate is the gap between the streamed chunk count and a moving
+ * average of fully completed answers (the model streams roughly one token per chunk).
+ */
+@Component
+public class StreamCancellationMetrics {
+
+  private static final double ALPHA = 0.1;
+  private static final double INITIAL_ANSWER_CHUNKS = 200;
+
+  private final Counter cancelledStreams;
+  private final Counter savedTokens;
+  private volatile double averageAnswerChunks = INITIAL_ANSWER_CHUNKS;
+
+  public StreamCancellationMetrics(MeterRegistry meterRegistry) {
+    this.cancelledStreams = Counter.builder("chat.stream.cancelled")
+        .description("Answer streams cancelled because the client went away")
+        .register(meterRegistry);
+    this.savedTokens = Counter.builder("chat.stream.tokens.saved")
+        .description("Estimated completion tokens not generated thanks to upstream cancellation")
+        .register(meterRegistry);
+  }
+
+  public void onCompleted(int chunks) {
+    // Racy read-modify-write is fine for an estimate
+    averageAnswerChunks += ALPHA * (chunks - averageAnswerChunks);
+  }
+
+  public void onCancelled(int streamedChunks) {
+    cancelledStreams.increment();
+    savedTokens.increment(Math.max(0, averageAnswerChunks - streamedChunks));
+  }
+}
@@ -0,0 +1,217 @@
+package ru.hh.aiinterviewer.service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.StreamNotResumableException;
+
+/**
+ * Keeps a bounded replay buffer per streamed turn so that a client reconnecting with {@code Last-Event-ID}
+ * continues from where it stopped instead of triggering a new generation.
+ * <p>
+ * Every chunk is sent with the event id {@code <turnId>:<seq>}. The model stream is detached from the client
+ * connection: after the last subscriber goes away, generation keeps filling the buffer for the resume grace
+ * period and is cancelled only if nobody reconnects. Buffers are evicted by chunk count, by number of retained
+ * turns and by age.
+ */
+@Component
+public class StreamReplayRegistry {
+
+  // The model thread emits chunks while cancellation emits from a timer or request thread, and the replay sink is
+  // not serialized: a concurrent emission is retried instead of being dropped
+  private static final Duration EMIT_RETRY = Duration.ofSeconds(5);
+
+  private final Map<UUID, ReplayableStream> streams = new ConcurrentHashMap<>();
+  private final int maxChunks;
+  private final int maxStreams;
+  private final long ttlNanos;
+  private final Duration resumeGrace;
+
+  public StreamReplayRegistry(ApplicationProperties applicationProperties) {
+    this.maxChunks = applicationProperties.getStreamReplayMaxChunks();
+    this.maxStreams = applicationProperties.getStreamReplayMaxStreams();
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(applicationProperties.getStreamReplayTtlMs());
+    this.resumeGrace = Duration.ofMillis(applicationProperties.getStreamResumeGraceMs());
+  }
+
+  /**
+   * Registers a new turn; the source is subscribed when the returned flux is.
+   */
+  public Flux<ServerSentEvent<String>> open(UUID sessionId, Flux<String> source) {
+    evict();
+    ReplayableStream stream = new ReplayableStream(UUID.randomUUID(), sessionId, source);
+    streams.put(stream.turnId, stream);
+    return stream.events(-1);
+  }
+
+  public Flux<ServerSentEvent<String>> resume(UUID sessionId, String lastEventId) {
+    evict();
+    int separator = lastEventId.lastIndexOf(':');
+    UUID turnId;
+    long lastSeq;
+    try {
+      turnId = UUID.fromString(lastEventId.substring(0, separator));
+      lastSeq = Long.parseLong(lastEventId.substring(separator + 1));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new StreamNotResumableException("Malformed Last-Event-ID: " + lastEventId);
+    }
+
+    ReplayableStream stream = streams.get(turnId);
+    if (stream == null || !stream.sessionId.equals(sessionId)) {
+      throw new StreamNotResumableException("Stream is no longer available, send the message again");
+    }
+    if (!stream.canReplayAfter(lastSeq)) {
+      throw new StreamNotResumableException("Stream position is no longer buffered, send the message again");
+    }
+    return stream.events(lastSeq);
+  }
+
+  int size() {
+    return streams.size();
+  }
+
+  private void evict() {
+    long now = System.nanoTime();
+    streams.values().removeIf(stream -> {
+      if (now - stream.createdAt > ttlNanos) {
+        stream.cancel();
+        return true;
+      }
+      return false;
+    });
+
+    int excess = streams.size() - maxStreams + 1;
+    if (excess > 0) {
+      // Only finished turns are evicted by count, running ones are bounded by the LLM concurrency limit
+      streams.values().stream()
+          .filter(ReplayableStream::isTerminated)
+          .sorted(Comparator.comparingLong(stream -> stream.createdAt))
+          .limit(excess)
+          .forEach(stream -> streams.remove(stream.turnId));
+    }
+  }
+
+  /**
+   * A handler per emission: the busy-looping deadline is fixed when the handler is created.
+   */
+  private static Sinks.EmitFailureHandler retrying() {
+    return Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY);
+  }
+
+  private record Chunk(long seq, String text) {
+  }
+
+  private final class ReplayableStream {
+
+    private final UUID turnId;
+    private final UUID sessionId;
+    private final long createdAt = System.nanoTime();
+    private final Flux<String> source;
+    private final Sinks.Many<Chunk> sink = Sinks.many().replay().limit(maxChunks);
+
+    private final Disposable.Swap upstream = Disposables.swap();
+    private volatile long emitted;
+    private volatile boolean terminated;
+    private boolean connected;
+    private Disposable pendingCancel;
+    private int subscribers;
+
+    private ReplayableStream(UUID turnId, UUID sessionId, Flux<String> source) {
+      this.turnId = turnId;
+      this.sessionId = sessionId;
+      this.source = source;
+    }
+
+    Flux<ServerSentEvent<String>> events(long afterSeq) {
+      Flux<ServerSentEvent<String>> events = sink.asFlux()
+          .filter(chunk -> chunk.seq() > afterSeq)
+          .map(chunk -> ServerSentEvent.builder(chunk.text()).id(turnId + ":" + chunk.seq()).build())
+          .doOnSubscribe(subscription -> onSubscribe())
+          .doFinally(signal -> onUnsubscribe());
+      // Connect only once the subscriber is registered in the sink, so the first chunks can't outrun the buffer
+      return Flux.from(subscriber -> {
+        events.subscribe(subscriber);
+        connect();
+      });
+    }
+
+    boolean canReplayAfter(long lastSeq) {
+      return lastSeq + 1 >= emitted - maxChunks;
+    }
+
+    boolean isTerminated() {
+      return terminated;
+    }
+
+    void cancel() {
+      synchronized (this) {
+        if (terminated) {
+          return;
+        }
+        terminated = true;
+      }
+      upstream.dispose();
+      // Emitted outside the lock: it may have to wait for a chunk being written to a subscriber that unsubscribes
+      sink.emitError(new StreamNotResumableException("Stream was cancelled"), retrying());
+    }
+
+    private synchronized void onSubscribe() {
+      subscribers++;
+      if (pendingCancel != null) {
+        pendingCancel.dispose();
+        pendingCancel = null;
+      }
+    }
+
+    private void connect() {
+      synchronized (this) {
+        if (connected) {
+          return;
+        }
+        connected = true;
+      }
+      // Subscribed outside the lock: the source may emit synchronously and chunks are written to the client
+      upstream.update(source.index().subscribe(
+          chunk -> {
+            emitted = chunk.getT1() + 1;
+            sink.emitNext(new Chunk(chunk.getT1(), chunk.getT2()), retrying());
+          },
+          error -> {
+            terminated = true;
+            sink.emitError(error, retrying());
+          },
+          () -> {
+            terminated = true;
+            sink.emitComplete(retrying());
+          }));
+    }
+
+    private synchronized void onUnsubscribe() {
+      subscribers--;
+      if (subscribers == 0 && !terminated) {
+        pendingCancel = Schedulers.parallel().schedule(this::cancelIfAbandoned, resumeGrace.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+
+    private void cancelIfAbandoned() {
+      synchronized (this) {
+        if (subscribers > 0) {
+          return;
+        }
+      }
+      cancel();
+      streams.remove(turnId);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+import ru.hh.aiinterviewer.llm.TokenUsage;
+import ru.hh.aiinterviewer.utils.LruCache;
+
+/**
+ * Accounts tokens billed by the provider to interview sessions.
+ * <p>
+ * Every model call made for a session (interviewer turns, speculated opening turns, summary compactions) is added
+ * to the session totals right away, used or not. The usage of the last interviewer call is also held until the
+ * assistant message it produced is stored, so that the message carries the usage of its own call.
+ */
+@Component
+public class TokenAccounting {
+
+  private static final Logger log = LoggerFactory.getLogger(TokenAccounting.class);
+  private static final int MAX_PENDING = 10_000;
+  // A message is stored right after its call completes, a leftover is a call whose answer was dropped
+  private static final long PENDING_TTL_MS = 10 * 60 * 1000;
+
+  private final SessionRepository sessionRepository;
+  private final LruCache<UUID, TokenUsage> pending = new LruCache<>(MAX_PENDING, PENDING_TTL_MS, (id, usage) -> 1);
+  private final Counter promptTokens;
+  private final Counter completionTokens;
+  private final Counter cachedTokens;
+
+  public TokenAccounting(SessionRepository sessionRepository, MeterRegistry meterRegistry) {
+    this.sessionRepository = sessionRepository;
+    this.promptTokens = tokens(meterRegistry, "prompt");
+    this.completionTokens = tokens(meterRegistry, "completion");
+    this.cachedTokens = tokens(meterRegistry, "cached");
+  }
+
+  /**
+   * Adds the usage of a call to the session totals.
+   *
+   * @param message whether the call produced an assistant message that is about to be stored
+   */
+  public void record(UUID sessionId, TokenUsage usage, boolean message) {
+    promptTokens.increment(usage.prompt());
+    completionTokens.increment(usage.completion());
+    cachedTokens.increment(usage.cached());
+    if (message) {
+      pending.put(sessionId, usage);
+    }
+    try {
+      sessionRepository.addTokenUsage(sessionId, usage.prompt(), usage.completion(), usage.cached());
+    } catch (RuntimeException e) {
+      // Accounting must never fail the interview turn
+      log.warn("Failed to add token usage to session {}", sessionId, e);
+    }
+  }
+
+  public void record(String conversationId, TokenUsage usage, boolean message) {
+    try {
+      record(UUID.fromString(conversationId), usage, message);
+    } catch (IllegalArgumentException e) {
+      log.debug("Token usage for a conversation that is not a session: {}", conversationId);
+    }
+  }
+
+  /**
+   * Usage of the call that produced the assistant message being stored now, if it was recorded.
+   */
+  public Optional<TokenUsage> takeMessageUsage(UUID sessionId) {
+    return Optional.ofNullable(pending.remove(sessionId));
+  }
+
+  private static Counter tokens(MeterRegistry meterRegistry, String type) {
+    return Counter.builder("llm.tokens")
+        .description("Tokens billed by the provider for session model calls")
+        .tag("type", type)
+        .register(meterRegistry);
+  }
+}
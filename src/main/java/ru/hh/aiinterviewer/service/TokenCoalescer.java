@@ -0,0 +1,162 @@
+package ru.hh.aiinterviewer.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+
+/**
+ * Merges model deltas into fewer SSE frames: every frame is a separate write and flush, which dominates CPU at
+ * high concurrency when the model sends a couple of characters per delta.
+ * <p>
+ * A delta is sent right away when nothing was sent for a whole window (so the first token and tokens after a pause
+ * are not delayed); otherwise it is held until the batch reaches {@code maxBytes} or the window elapses.
+ */
+@Component
+public class TokenCoalescer {
+
+  private final long windowNanos;
+  private final int maxBytes;
+  private final Scheduler timer = Schedulers.parallel();
+
+  public TokenCoalescer(ApplicationProperties applicationProperties) {
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(applicationProperties.getStreamCoalesceWindowMs());
+    this.maxBytes = applicationProperties.getStreamCoalesceMaxBytes();
+  }
+
+  public Flux<String> coalesce(Flux<String> tokens) {
+    if (windowNanos == 0) {
+      return tokens;
+    }
+    return Flux.create(sink -> {
+      Batch batch = new Batch(sink);
+      Disposable upstream = tokens.subscribe(batch::onNext, batch::onError, batch::onComplete);
+      sink.onDispose(() -> {
+        upstream.dispose();
+        batch.cancelTimer();
+      });
+    });
+  }
+
+  static int utf8Length(String text) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  private final class Batch {
+
+    private final FluxSink<String> sink;
+    // Frames are emitted under the lock so that the timer and the model thread can't reorder them;
+    // ReentrantLock rather than synchronized so a virtual thread writing to the socket doesn't pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingBytes;
+    private long lastFlushNanos = System.nanoTime() - windowNanos;
+    private Disposable scheduledFlush;
+
+    private Batch(FluxSink<String> sink) {
+      this.sink = sink;
+    }
+
+    void onNext(String text) {
+      lock.lock();
+      try {
+        if (pending.isEmpty() && System.nanoTime() - lastFlushNanos >= windowNanos) {
+          emit(text);
+          return;
+        }
+        pending.append(text);
+        pendingBytes += utf8Length(text);
+        if (pendingBytes >= maxBytes) {
+          flush();
+        } else if (scheduledFlush == null) {
+          scheduledFlush = timer.schedule(this::onWindowElapsed, windowNanos, TimeUnit.NANOSECONDS);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void onError(Throwable error) {
+      lock.lock();
+      try {
+        flush();
+        cancelScheduledFlush();
+        sink.error(error);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void onComplete() {
+      lock.lock();
+      try {
+        flush();
+        cancelScheduledFlush();
+        sink.complete();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void cancelTimer() {
+      lock.lock();
+      try {
+        cancelScheduledFlush();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onWindowElapsed() {
+      lock.lock();
+      try {
+        scheduledFlush = null;
+        flush();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // A size-triggered flush keeps the window timer running: rescheduling it per batch costs more than the
+    // occasional early flush of a younger batch when the timer fires
+    private void flush() {
+      if (!pending.isEmpty()) {
+        String text = pending.toString();
+        pending.setLength(0);
+        pendingBytes = 0;
+        emit(text);
+      }
+    }
+
+    private void cancelScheduledFlush() {
+      if (scheduledFlush != null) {
+        scheduledFlush.dispose();
+        scheduledFlush = null;
+      }
+    }
+
+    private void emit(String text) {
+      lastFlushNanos = System.nanoTime();
+      sink.next(text);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package ru.hh.aiinterviewer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Joins transcripts of overlapping audio segments. Words heard in both overlaps show up at the end of one
+ * transcript and at the start of the next; the longest such run (compared case- and punctuation-insensitively)
+ * is dropped from the later transcript.
+ */
+final class TranscriptStitcher {
+
+  private static final int MAX_OVERLAP_WORDS = 8;
+
+  private TranscriptStitcher() {
+  }
+
+  static String stitch(List<String> transcripts) {
+    List<String> words = new ArrayList<>();
+    for (String transcript : transcripts) {
+      List<String> next = Arrays.stream(transcript.trim().split("\\s+")).filter(w -> !w.isEmpty()).toList();
+      words.addAll(next.subList(overlap(words, next), next.size()));
+    }
+    return String.join(" ", words);
+  }
+
+  private static int overlap(List<String> previous, List<String> next) {
+    int max = Math.min(MAX_OVERLAP_WORDS, Math.min(previous.size(), next.size()));
+    for (int length = max; length > 0; length--) {
+      if (matches(previous.subList(previous.size() - length, previous.size()), next.subList(0, length))) {
+        return length;
+      }
+    }
+    return 0;
+  }
+
+  private static boolean matches(List<String> tail, List<String> head) {
+    for (int i = 0; i < tail.size(); i++) {
+      String a = normalize(tail.get(i));
+      if (a.isEmpty() || !a.equals(normalize(head.get(i)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String normalize(String word) {
+    return word.replaceAll("[\\p{P}\\p{S}]", "").toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,92 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.TranscriptionCacheEntry;
+import ru.hh.aiinterviewer.domain.repository.TranscriptionCacheRepository;
+import ru.hh.aiinterviewer.utils.LruCache;
+import ru.hh.aiinterviewer.utils.TieredCache;
+
+/**
+ * Transcripts by content hash, so that a client retrying an audio turn after a timeout does not pay for the same
+ * transcription again. A {@link TieredCache} over a size-bounded in-memory LRU and, if enabled, the
+ * {@code transcription_cache} table shared by all instances.
+ */
+@Component
+public class TranscriptionCache {
+
+  // String header and array overhead on top of two bytes per char, for the key and for the text
+  private static final long ENTRY_OVERHEAD_BYTES = 2 * 56;
+
+  public record Transcript(String text, double audioSeconds) {
+  }
+
+  private final ApplicationProperties applicationProperties;
+  private final TieredCache<Transcript> cache;
+  private final Counter savedSeconds;
+
+  public TranscriptionCache(ApplicationProperties applicationProperties, TranscriptionCacheRepository repository,
+                            MeterRegistry meterRegistry) {
+    this.applicationProperties = applicationProperties;
+    LruCache<String, Transcript> memory = new LruCache<>(applicationProperties.getTranscriptionCacheMaxBytes(),
+        applicationProperties.getTranscriptionCacheTtlMs(),
+        (key, transcript) -> ENTRY_OVERHEAD_BYTES + 2L * (key.length() + transcript.text().length()));
+    this.savedSeconds = Counter.builder("transcription.cache.saved.seconds")
+        .description("Audio seconds not sent to the transcription model thanks to cache hits")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    this.cache = TieredCache.<Transcript>builder()
+        .metric("transcription.cache")
+        .description("Transcription")
+        .memory(memory)
+        .store(new Store(repository))
+        .storeEnabled(applicationProperties::isTranscriptionCacheDbEnabled)
+        .ttlMs(applicationProperties::getTranscriptionCacheTtlMs)
+        .onHit(transcript -> savedSeconds.increment(transcript.audioSeconds()))
+        .meterRegistry(meterRegistry)
+        .build();
+    Gauge.builder("transcription.cache.hit.ratio", cache, TieredCache::hitRatio)
+        .description("Share of transcriptions served without an upstream call")
+        .register(meterRegistry);
+    Gauge.builder("transcription.cache.memory.bytes", memory, LruCache::weight)
+        .description("Approximate size of the in-memory transcript cache")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  public String get(String key, Supplier<Transcript> transcriber) {
+    if (!applicationProperties.isTranscriptionCacheEnabled()) {
+      return transcriber.get().text();
+    }
+    return cache.get(key, transcriber).text();
+  }
+
+  private record Store(TranscriptionCacheRepository repository) implements TieredCache.Store<Transcript> {
+
+    @Override
+    public Optional<TieredCache.Stored<Transcript>> find(String key) {
+      return repository.findById(key).map(entry -> new TieredCache.Stored<>(
+          new Transcript(entry.getText(), entry.getAudioSeconds()), entry.getCreatedAt()));
+    }
+
+    @Override
+    public void save(String key, Transcript transcript) {
+      repository.save(TranscriptionCacheEntry.builder()
+          .key(key)
+          .text(transcript.text())
+          .audioSeconds(transcript.audioSeconds())
+          .build());
+    }
+
+    @Override
+    public int deleteCreatedBefore(OffsetDateTime before) {
+      return repository.deleteCreatedBefore(before);
+    }
+  }
+}
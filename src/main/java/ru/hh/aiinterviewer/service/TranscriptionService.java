@@ -6,21 +6,39 @@ import org.springframework.ai.audio.transcription.AudioTranscriptionPrompt;
 import org.springframework.ai.audio.transcription.AudioTranscriptionResponse;
 import org.springframework.ai.openai.OpenAiAudioTranscriptionOptions;
 import org.springframework.ai.openai.OpenAiAudioTranscriptionModel;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
-import ru.hh.aiinterviewer.config.ApplicationProperties;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @Service
 @RequiredArgsConstructor
 public class TranscriptionService {
 
   private static final String MODEL = "gpt-4o-mini-transcribe";
+  private static final float TEMPERATURE = 0f;
+  private static final int PIPELINE_VERSION = 1;
 
   private final OpenAiAudioTranscriptionModel audioTranscriptionModel;
+  private final UpstreamLimiters upstreamLimiters;
+  private final AudioSpooler audioSpooler;
+  private final AudioPreprocessor audioPreprocessor;
   private final ApplicationProperties applicationProperties;
+  private final ExecutorService transcriptionExecutor;
+  private final TranscriptionCache transcriptionCache;
 
   public String transcribe(String audioBase64) {
     if (audioBase64 == null || audioBase64.isBlank()) {
@@ -28,104 +46,129 @@ public class TranscriptionService {
     }
 
     byte[] audioBytes = Base64.getDecoder().decode(audioBase64.getBytes(StandardCharsets.UTF_8));
-    validateWav(audioBytes);
-    String filename = "audio.wav";
-    Resource resource = new NamedByteArrayResource(audioBytes, filename);
-
-    OpenAiAudioTranscriptionOptions options = OpenAiAudioTranscriptionOptions.builder()
-        .model(MODEL)
-        .temperature(0f)
-        .build();
-
-    AudioTranscriptionPrompt prompt = new AudioTranscriptionPrompt(resource, options);
-    AudioTranscriptionResponse response = audioTranscriptionModel.call(prompt);
-
-    String text = response.getResult().getOutput();
-    if (text.isBlank()) {
-      throw new IllegalStateException("Failed to transcribe audio");
-    }
-    return text;
+    return transcribe(new ByteArrayInputStream(audioBytes));
   }
 
-  private void validateWav(byte[] bytes) {
-    if (bytes.length < 44) {
-      throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("WAV too small or invalid");
-    }
-    if (bytes.length > applicationProperties.getMaxAudioSizeBytes()) {
-      throw new ru.hh.aiinterviewer.exception.FileTooLargeException("Audio file too large");
-    }
-    // Check RIFF header and WAVE
-    if (!(bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == 'F')) {
-      throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Not a RIFF file");
-    }
-    if (!(bytes[8] == 'W' && bytes[9] == 'A' && bytes[10] == 'V' && bytes[11] == 'E')) {
-      throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Not a WAVE file");
+  /**
+   * Transcribes an upload without materializing it as a base64 string or a byte array up front: the body is
+   * validated while it is read and spooled to memory or a temp file. WAV, OGG/Opus, WebM, M4A/AAC and FLAC are
+   * accepted; WAV is trimmed and downsampled first, compressed formats are sent to the model as they are.
+   * Audio that has been transcribed before is answered from {@link TranscriptionCache}.
+   */
+  public String transcribe(InputStream audio) {
+    try (SpooledAudio spooled = audioSpooler.spool(audio)) {
+      return transcriptionCache.get(cacheKey(spooled), () -> transcribe(spooled));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read audio upload", e);
     }
+  }
 
-    boolean fmtFound = false;
-    boolean dataFound = false;
-    int channels = -1;
-    int sampleRate = -1;
-
-    int i = 12;
-    while (i + 8 <= bytes.length) {
-      String id = new String(bytes, i, 4, StandardCharsets.US_ASCII);
-      int chunkSize = le32(bytes, i + 4);
-      int dataStart = i + 8;
-      if (dataStart + chunkSize > bytes.length) {
-        break;
+  private TranscriptionCache.Transcript transcribe(SpooledAudio spooled) {
+    try (SpooledAudio prepared = audioPreprocessor.preprocess(spooled)) {
+      String text = isLong(prepared) ? transcribeSegments(prepared) : transcribe(prepared.resource());
+      if (text.isBlank()) {
+        throw new IllegalStateException("Failed to transcribe audio");
       }
-      if ("fmt ".equals(id)) {
-        fmtFound = true;
-        if (chunkSize >= 16) {
-          int audioFormat = le16(bytes, dataStart);
-          channels = le16(bytes, dataStart + 2);
-          sampleRate = le32(bytes, dataStart + 4);
-          int bitsPerSample = (chunkSize >= 16) ? le16(bytes, dataStart + 14) : -1;
-          if (audioFormat != 1 && audioFormat != 3) { // PCM or IEEE float
-            throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Unsupported WAV format");
-          }
-          if (channels < 1 || channels > 2) {
-            throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Unsupported channel count");
-          }
-          if (sampleRate < applicationProperties.getMinAudioSampleRate() || sampleRate > applicationProperties.getMaxAudioSampleRate()) {
-            throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Unsupported sample rate");
-          }
-          if (bitsPerSample != -1 && bitsPerSample % 8 != 0) {
-            throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("Unsupported bits per sample");
-          }
-        }
-      } else if ("data".equals(id)) {
-        dataFound = chunkSize > 0;
-      }
-      // Chunks are word-aligned; if odd, skip padding byte
-      i = dataStart + chunkSize + (chunkSize % 2);
+      return new TranscriptionCache.Transcript(text, durationSeconds(prepared));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read audio upload", e);
     }
+  }
 
-    if (!fmtFound || !dataFound) {
-      throw new ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException("WAV missing fmt or data chunk");
+  /**
+   * Anything that changes the transcript for the same bytes is part of the key: the model and its parameters, and
+   * the preprocessing and segmentation applied before the audio is sent.
+   */
+  private String cacheKey(SpooledAudio audio) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(keyInput(audio.sha256()).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
     }
   }
 
-  private int le16(byte[] b, int off) {
-    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8);
+  String keyInput(String sha256) {
+    return sha256 + "|" + MODEL + "|" + TEMPERATURE + "|" + pipeline();
   }
 
-  private int le32(byte[] b, int off) {
-    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+  /**
+   * Settings of the audio pipeline, prefixed with a version to bump when its code changes the audio it produces.
+   */
+  private String pipeline() {
+    ApplicationProperties props = applicationProperties;
+    String preprocessing = props.isAudioPreprocessingEnabled()
+        ? "pre:" + props.getAudioTargetSampleRate() + ':' + props.getAudioVadThresholdDbfs() + ':' + props.getAudioVadPaddingMs()
+        : "raw";
+    String chunking = props.isTranscriptionChunkingEnabled()
+        ? "chunks:" + props.getTranscriptionChunkMinSeconds() + ':' + props.getTranscriptionChunkSeconds() + ':'
+            + props.getTranscriptionChunkOverlapMs()
+        : "whole";
+    return PIPELINE_VERSION + "|" + preprocessing + "|" + chunking;
   }
 
-  private static class NamedByteArrayResource extends ByteArrayResource {
-    private final String filename;
-
-    public NamedByteArrayResource(byte[] byteArray, String filename) {
-      super(byteArray);
-      this.filename = filename;
+  private double durationSeconds(SpooledAudio audio) throws IOException {
+    PcmLayout pcm = audio.pcm();
+    if (pcm != null) {
+      return (double) pcm.frames() / pcm.sampleRate();
     }
+    Double duration = AudioProbe.durationSeconds(audio, applicationProperties.getMinAudioSampleRate(),
+        applicationProperties.getMaxAudioSampleRate());
+    return duration != null ? duration : 0;
+  }
+
+  private boolean isLong(SpooledAudio audio) {
+    PcmLayout pcm = audio.pcm();
+    return applicationProperties.isTranscriptionChunkingEnabled() && pcm != null
+        && pcm.frames() > (long) pcm.sampleRate() * applicationProperties.getTranscriptionChunkMinSeconds();
+  }
 
-    @Override
-    public String getFilename() {
-      return filename;
+  /**
+   * Latency of a single request grows with the audio length; segments are transcribed concurrently instead, so a
+   * long answer takes about as long as its slowest segment.
+   */
+  private String transcribeSegments(SpooledAudio audio) throws IOException {
+    PcmLayout pcm = audio.pcm();
+    int segmentMs = applicationProperties.getTranscriptionChunkSeconds() * 1000;
+    List<long[]> segments = AudioSegmenter.segments(audio, pcm, segmentMs, segmentMs / 6,
+        applicationProperties.getTranscriptionChunkOverlapMs());
+    List<Future<String>> futures = new ArrayList<>(segments.size());
+    try {
+      // segments are cut from the spool inside the task, so only the ones in flight are held in memory
+      for (long[] segment : segments) {
+        futures.add(transcriptionExecutor.submit(() -> transcribe(AudioSegmenter.wav(audio, pcm, segment[0], segment[1]))));
+      }
+      List<String> transcripts = new ArrayList<>(futures.size());
+      for (Future<String> future : futures) {
+        transcripts.add(future.get());
+      }
+      return TranscriptStitcher.stitch(transcripts);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Failed to transcribe audio", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while transcribing audio", e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
     }
   }
+
+  private String transcribe(Resource resource) {
+    OpenAiAudioTranscriptionOptions options = OpenAiAudioTranscriptionOptions.builder()
+        .model(MODEL)
+        .temperature(TEMPERATURE)
+        .build();
+
+    AudioTranscriptionPrompt prompt = new AudioTranscriptionPrompt(resource, options);
+    AudioTranscriptionResponse response = upstreamLimiters.call(Upstream.TRANSCRIPTION, () -> audioTranscriptionModel.call(prompt));
+
+    return response.getResult().getOutput();
+  }
 }
@@ -0,0 +1,18 @@
+package ru.hh.aiinterviewer.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * External dependencies whose blocking calls are limited independently of the request thread pool.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Upstream {
+
+  LLM("llm"),
+  TRANSCRIPTION("transcription"),
+  VACANCY("vacancy");
+
+  private final String value;
+}
@@ -0,0 +1,66 @@
+package ru.hh.aiinterviewer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
+
+/**
+ * Bounded concurrency per upstream. With virtual threads the request pool is effectively unbounded,
+ * so these limits are what actually protect the LLM, transcription and vacancy providers.
+ * <p>
+ * Uses {@link Semaphore} rather than monitors so that a virtual thread waiting for a permit unmounts
+ * instead of pinning its carrier thread.
+ */
+@Component
+public class UpstreamLimiters {
+
+  private final Map<Upstream, Semaphore> permits = new EnumMap<>(Upstream.class);
+  private final long acquireTimeoutMs;
+
+  public UpstreamLimiters(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+    this.acquireTimeoutMs = applicationProperties.getUpstreamAcquireTimeoutMs();
+    register(Upstream.LLM, applicationProperties.getLlmMaxConcurrency(), meterRegistry);
+    register(Upstream.TRANSCRIPTION, applicationProperties.getTranscriptionMaxConcurrency(), meterRegistry);
+    register(Upstream.VACANCY, applicationProperties.getVacancyMaxConcurrency(), meterRegistry);
+  }
+
+  public <T> T call(Upstream upstream, Supplier<T> action) {
+    acquire(upstream);
+    try {
+      return action.get();
+    } finally {
+      release(upstream);
+    }
+  }
+
+  public void acquire(Upstream upstream) {
+    try {
+      if (!permits.get(upstream).tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new UpstreamBusyException("Too many concurrent requests to " + upstream.getValue());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UpstreamBusyException("Interrupted while waiting for " + upstream.getValue());
+    }
+  }
+
+  public void release(Upstream upstream) {
+    permits.get(upstream).release();
+  }
+
+  private void register(Upstream upstream, int maxConcurrency, MeterRegistry meterRegistry) {
+    Semaphore semaphore = new Semaphore(maxConcurrency, true);
+    permits.put(upstream, semaphore);
+    Gauge.builder("upstream.in.flight", semaphore, s -> maxConcurrency - s.availablePermits())
+        .description("Blocking calls currently in flight per upstream")
+        .tag("upstream", upstream.getValue())
+        .register(meterRegistry);
+  }
+}
@@ -19,7 +19,9 @@ import ru.hh.aiinterviewer.config.ApplicationProperties;
 import ru.hh.aiinterviewer.exception.NotFoundException;
 import ru.hh.aiinterviewer.exception.FileTooLargeException;
 import ru.hh.aiinterviewer.exception.FileTypeNotSupportedException;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
 import ru.hh.aiinterviewer.exception.VacancyNotParsableException;
+import ru.hh.aiinterviewer.llm.TokenCounter;
 import ru.hh.aiinterviewer.service.dto.VacancyInfo;
 import ru.hh.aiinterviewer.utils.JsonUtils;
 
@@ -40,6 +42,7 @@ public class VacancyService {
             .build();
     private final RestClient genericClient = RestClient.create();
     private final ApplicationProperties applicationProperties;
+    private final UpstreamLimiters upstreamLimiters;
 
     public String getVacancy(String vacancyUrl) {
         return getVacancyByUrl(vacancyUrl);
@@ -56,10 +59,10 @@ public class VacancyService {
         String vacancyId = extractVacancyId(vacancyUrl);
         if (vacancyId != null) {
             try {
-                String response = restClient.get()
+                String response = upstreamLimiters.call(Upstream.VACANCY, () -> restClient.get()
                         .uri(URI.create(API_BASE_URL + "/vacancies/" + vacancyId))
                         .retrieve()
-                        .body(String.class);
+                        .body(String.class));
 
                 if (response == null) {
                     throw new NotFoundException("Vacancy not found: id=" + vacancyId);
@@ -84,10 +87,10 @@ public class VacancyService {
             throw new VacancyNotParsableException("Unsupported URL scheme: " + url);
         }
         try {
-            String html = genericClient.get()
+            String html = upstreamLimiters.call(Upstream.VACANCY, () -> genericClient.get()
                 .uri(URI.create(url))
                 .retrieve()
-                .body(String.class);
+                .body(String.class));
 
             if (html == null || html.isBlank()) {
                 throw new VacancyNotParsableException("Empty response from url: " + url);
@@ -99,6 +102,8 @@ public class VacancyService {
                 throw new VacancyNotParsableException("Cannot extract vacancy description from url: " + url);
             }
             return text;
+        } catch (UpstreamBusyException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             if (e instanceof HttpClientErrorException.NotFound) {
                 throw new VacancyNotParsableException("Vacancy not found for url: " + url);
@@ -131,11 +136,7 @@ public class VacancyService {
             .replaceAll("(?is)<style.*?>.*?</style>", " ");
         String text = withoutScripts.replaceAll("(?is)<[^>]+>", " ");
         text = sanitizeText(text);
-        // Keep a reasonable length
-        if (text.length() > 4000) {
-            text = text.substring(0, 4000);
-        }
-        return text;
+        return TokenCounter.getDefault().truncate(text, applicationProperties.getVacancyPageMaxTokens());
     }
 
     private String sanitizeText(String s) {
@@ -190,10 +191,7 @@ public class VacancyService {
             if (text == null || text.isBlank()) {
                 throw new VacancyNotParsableException("Empty content in file");
             }
-            if (text.length() > 10000) {
-                text = text.substring(0, 10000);
-            }
-            return text;
+            return TokenCounter.getDefault().truncate(text, applicationProperties.getVacancyFileMaxTokens());
         } catch (Exception e) {
             log.warn("Tika parse failed for file {}", file.getOriginalFilename(), e);
             throw new VacancyNotParsableException("Failed to parse file content");
@@ -0,0 +1,183 @@
+package ru.hh.aiinterviewer.service;
+
+import java.nio.charset.StandardCharsets;
+import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+
+/**
+ * Validates a RIFF/WAVE header as bytes arrive, so an upload with a wrong format is rejected on its first
+ * kilobytes instead of after the whole body has been received. Only the header bytes are buffered, chunk
+ * bodies are skipped by count and everything after the {@code data} chunk header is ignored.
+ */
+final class WavHeaderValidator {
+
+  private static final int MIN_WAV_SIZE = 44;
+  private static final int RIFF_HEADER_SIZE = 12;
+  private static final int CHUNK_HEADER_SIZE = 8;
+  private static final int FMT_SIZE = 16;
+
+  private enum State { RIFF_HEADER, CHUNK_HEADER, FMT, SKIP, DATA }
+
+  private final int minSampleRate;
+  private final int maxSampleRate;
+  private final byte[] header = new byte[FMT_SIZE];
+  private State state = State.RIFF_HEADER;
+  private int needed = RIFF_HEADER_SIZE;
+  private int buffered;
+  private long skip;
+  private long fmtRemainder;
+  private long totalBytes;
+  private boolean fmtFound;
+  private boolean dataFound;
+  private int byteRate;
+  private int audioFormat;
+  private int channels;
+  private int sampleRate;
+  private int bitsPerSample;
+  private long dataStart;
+  private long dataSize;
+
+  WavHeaderValidator(int minSampleRate, int maxSampleRate) {
+    this.minSampleRate = minSampleRate;
+    this.maxSampleRate = maxSampleRate;
+  }
+
+  void update(byte[] bytes, int offset, int length) {
+    long position = totalBytes - offset;
+    totalBytes += length;
+    int end = offset + length;
+    while (offset < end && state != State.DATA) {
+      if (state == State.SKIP) {
+        int skipped = (int) Math.min(skip, end - offset);
+        offset += skipped;
+        skip -= skipped;
+        if (skip == 0) {
+          expect(State.CHUNK_HEADER, CHUNK_HEADER_SIZE);
+        }
+        continue;
+      }
+      int copied = Math.min(needed - buffered, end - offset);
+      System.arraycopy(bytes, offset, header, buffered, copied);
+      buffered += copied;
+      offset += copied;
+      if (buffered == needed) {
+        onHeader(position + offset);
+      }
+    }
+  }
+
+  void finish() {
+    if (totalBytes < MIN_WAV_SIZE) {
+      throw new UnsupportedAudioFormatException("WAV too small or invalid");
+    }
+    if (!fmtFound || !dataFound) {
+      throw new UnsupportedAudioFormatException("WAV missing fmt or data chunk");
+    }
+  }
+
+  /**
+   * Duration from the byte rate and the amount of sample data; recorders that stream WAV often leave the data size
+   * unset, then everything after the data chunk header is counted.
+   */
+  Double durationSeconds() {
+    if (byteRate <= 0) {
+      return null;
+    }
+    return (double) dataBytes() / byteRate;
+  }
+
+  PcmLayout layout() {
+    return new PcmLayout(audioFormat, channels, sampleRate, bitsPerSample, dataStart, dataBytes());
+  }
+
+  private long dataBytes() {
+    long available = totalBytes - dataStart;
+    return dataSize > 0 && dataSize <= available ? dataSize : available;
+  }
+
+  private void onHeader(long position) {
+    switch (state) {
+      case RIFF_HEADER -> {
+        if (!isId(0, "RIFF")) {
+          throw new UnsupportedAudioFormatException("Not a RIFF file");
+        }
+        if (!isId(8, "WAVE")) {
+          throw new UnsupportedAudioFormatException("Not a WAVE file");
+        }
+        expect(State.CHUNK_HEADER, CHUNK_HEADER_SIZE);
+      }
+      case CHUNK_HEADER -> {
+        long chunkSize = le32(4) & 0xFFFFFFFFL;
+        // Chunks are word-aligned; if odd, skip padding byte
+        long padding = chunkSize % 2;
+        if (isId(0, "fmt ")) {
+          fmtFound = true;
+          if (chunkSize >= FMT_SIZE) {
+            fmtRemainder = chunkSize - FMT_SIZE + padding;
+            expect(State.FMT, FMT_SIZE);
+          } else {
+            skip(chunkSize + padding);
+          }
+        } else if (isId(0, "data")) {
+          dataFound = chunkSize > 0;
+          dataStart = position;
+          dataSize = chunkSize;
+          state = State.DATA;
+        } else {
+          skip(chunkSize + padding);
+        }
+      }
+      case FMT -> {
+        validateFormat();
+        skip(fmtRemainder);
+      }
+      default -> throw new IllegalStateException("Unexpected state " + state);
+    }
+  }
+
+  private void validateFormat() {
+    audioFormat = le16(0);
+    channels = le16(2);
+    sampleRate = le32(4);
+    byteRate = le32(8);
+    bitsPerSample = le16(14);
+    if (audioFormat != PcmLayout.PCM && audioFormat != PcmLayout.IEEE_FLOAT) {
+      throw new UnsupportedAudioFormatException("Unsupported WAV format");
+    }
+    if (channels < 1 || channels > 2) {
+      throw new UnsupportedAudioFormatException("Unsupported channel count");
+    }
+    if (sampleRate < minSampleRate || sampleRate > maxSampleRate) {
+      throw new UnsupportedAudioFormatException("Unsupported sample rate");
+    }
+    if (bitsPerSample == 0 || bitsPerSample % 8 != 0) {
+      throw new UnsupportedAudioFormatException("Unsupported bits per sample");
+    }
+  }
+
+  private void expect(State next, int size) {
+    state = next;
+    needed = size;
+    buffered = 0;
+  }
+
+  private void skip(long bytes) {
+    if (bytes == 0) {
+      expect(State.CHUNK_HEADER, CHUNK_HEADER_SIZE);
+    } else {
+      state = State.SKIP;
+      skip = bytes;
+    }
+  }
+
+  private boolean isId(int offset, String id) {
+    return new String(header, offset, 4, StandardCharsets.US_ASCII).equals(id);
+  }
+
+  private int le16(int off) {
+    return (header[off] & 0xFF) | ((header[off + 1] & 0xFF) << 8);
+  }
+
+  private int le32(int off) {
+    return (header[off] & 0xFF) | ((header[off + 1] & 0xFF) << 8) | ((header[off + 2] & 0xFF) << 16) | ((header[off + 3] & 0xFF) << 24);
+  }
+}
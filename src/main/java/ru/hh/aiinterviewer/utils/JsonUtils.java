@@ -1,5 +1,6 @@
 package ru.hh.aiinterviewer.utils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.experimental.UtilityClass;
 
@@ -15,4 +16,12 @@ public class JsonUtils {
       throw new RuntimeException(e);
     }
   }
+
+  public static <T> T fromJson(String json, TypeReference<T> type) {
+    try {
+      return OBJECT_MAPPER.readValue(json, type);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
@@ -0,0 +1,124 @@
+package ru.hh.aiinterviewer.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * In-memory LRU cache bounded by the total weight of its entries (e.g. their approximate size in bytes) rather
+ * than by their number, with an optional time to live. Entries heavier than the whole budget are not cached.
+ * <p>
+ * Guarded by a {@link ReentrantLock} so that virtual threads do not pin their carriers while waiting for it.
+ */
+public class LruCache<K, V> {
+
+  private final long maxWeight;
+  private final long ttlMs;
+  private final ToLongBiFunction<K, V> weigher;
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ReentrantLock lock = new ReentrantLock();
+  private long weight;
+
+  /**
+   * @param ttlMs entry lifetime, 0 for entries that only leave on eviction
+   */
+  public LruCache(long maxWeight, long ttlMs, ToLongBiFunction<K, V> weigher) {
+    this.maxWeight = maxWeight;
+    this.ttlMs = ttlMs;
+    this.weigher = weigher;
+  }
+
+  public V get(K key) {
+    lock.lock();
+    try {
+      Entry<V> entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (isExpired(entry, System.currentTimeMillis())) {
+        unlink(key);
+        return null;
+      }
+      return entry.value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void put(K key, V value) {
+    long entryWeight = weigher.applyAsLong(key, value);
+    lock.lock();
+    try {
+      unlink(key);
+      if (entryWeight > maxWeight) {
+        return;
+      }
+      entries.put(key, new Entry<>(value, entryWeight, System.currentTimeMillis()));
+      weight += entryWeight;
+      Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+      while (weight > maxWeight) {
+        weight -= eldest.next().getValue().weight;
+        eldest.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void invalidate(K key) {
+    lock.lock();
+    try {
+      unlink(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the entry and returns its value, so that only one caller can claim it.
+   */
+  public V remove(K key) {
+    lock.lock();
+    try {
+      Entry<V> entry = unlink(key);
+      return entry == null || isExpired(entry, System.currentTimeMillis()) ? null : entry.value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long weight() {
+    lock.lock();
+    try {
+      return weight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Entry<V> unlink(K key) {
+    Entry<V> removed = entries.remove(key);
+    if (removed != null) {
+      weight -= removed.weight;
+    }
+    return removed;
+  }
+
+  private boolean isExpired(Entry<V> entry, long now) {
+    return ttlMs > 0 && now - entry.createdAt >= ttlMs;
+  }
+
+  private record Entry<V>(V value, long weight, long createdAt) {
+  }
+}
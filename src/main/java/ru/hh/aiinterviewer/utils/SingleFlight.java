@@ -0,0 +1,62 @@
+package ru.hh.aiinterviewer.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader, callers arriving while
+ * it runs wait for and share its result (or its exception). Nothing is remembered once the load completes.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  public V execute(K key, Supplier<V> loader) {
+    return execute(key, loader, null);
+  }
+
+  /**
+   * @param onShared called when the result came from another caller's load
+   */
+  public V execute(K key, Supplier<V> loader, Runnable onShared) {
+    CompletableFuture<V> call = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+    if (existing != null) {
+      V value = await(existing);
+      if (onShared != null) {
+        onShared.run();
+      }
+      return value;
+    }
+    try {
+      V value = loader.get();
+      call.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      call.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  private static <V> V await(CompletableFuture<V> call) {
+    try {
+      return call.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a concurrent load", e);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package ru.hh.aiinterviewer.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Cache with two tiers: a bounded {@link LruCache} in memory, then a table shared by all instances. Stored rows
+ * older than the TTL are ignored on read and purged at most once per TTL/10, piggybacking on inserts. Concurrent
+ * misses for one key wait for one load ({@link SingleFlight}). Failed loads are never cached, and a database error
+ * only costs the database tier.
+ * <p>
+ * Lookups are counted in {@code <metric>.requests} by result and by the tier that answered.
+ */
+public class TieredCache<V> {
+
+  private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+  /**
+   * The database tier.
+   */
+  public interface Store<V> {
+
+    Optional<Stored<V>> find(String key);
+
+    void save(String key, V value);
+
+    int deleteCreatedBefore(OffsetDateTime before);
+  }
+
+  /**
+   * @param createdAt null when unknown, such rows never expire on read
+   */
+  public record Stored<V>(V value, OffsetDateTime createdAt) {
+  }
+
+  private final String metric;
+  private final LruCache<String, V> memory;
+  private final Store<V> store;
+  private final BooleanSupplier storeEnabled;
+  private final LongSupplier ttlMs;
+  private final Predicate<V> cacheable;
+  private final Consumer<V> onHit;
+  private final SingleFlight<String, V> singleFlight = new SingleFlight<>();
+  private final AtomicLong lastPurge = new AtomicLong();
+  private final Counter memoryHits;
+  private final Counter databaseHits;
+  private final Counter sharedHits;
+  private final Counter misses;
+
+  /**
+   * @param metric      prefix of the metric names, also used in log messages
+   * @param description what is cached, for the metric description
+   * @param cacheable   loaded values that may be cached; all non-null ones by default
+   * @param onHit       called with every value served without a load
+   */
+  @Builder
+  private TieredCache(String metric, String description, LruCache<String, V> memory, Store<V> store,
+                      BooleanSupplier storeEnabled, LongSupplier ttlMs, Predicate<V> cacheable, Consumer<V> onHit,
+                      MeterRegistry meterRegistry) {
+    this.metric = metric;
+    this.memory = memory;
+    this.store = store;
+    this.storeEnabled = storeEnabled;
+    this.ttlMs = ttlMs;
+    this.cacheable = cacheable != null ? cacheable : value -> true;
+    this.onHit = onHit != null ? onHit : value -> {
+    };
+    this.memoryHits = requests(meterRegistry, description, "hit", "memory");
+    this.databaseHits = requests(meterRegistry, description, "hit", "database");
+    this.sharedHits = requests(meterRegistry, description, "hit", "in_flight");
+    this.misses = requests(meterRegistry, description, "miss", "none");
+  }
+
+  public V get(String key, Supplier<V> loader) {
+    V cached = memory.get(key);
+    if (cached != null) {
+      return hit(memoryHits, cached);
+    }
+    boolean[] loaded = {false};
+    V value = singleFlight.execute(key, () -> {
+      loaded[0] = true;
+      return load(key, loader);
+    }, sharedHits::increment);
+    if (!loaded[0]) {
+      onHit.accept(value);
+    }
+    return value;
+  }
+
+  public double hitRatio() {
+    double hits = memoryHits.count() + databaseHits.count() + sharedHits.count();
+    double total = hits + misses.count();
+    return total == 0 ? 0 : hits / total;
+  }
+
+  private V load(String key, Supplier<V> loader) {
+    V stored = findStored(key);
+    if (stored != null) {
+      memory.put(key, stored);
+      return hit(databaseHits, stored);
+    }
+    misses.increment();
+    V value = loader.get();
+    if (value != null && cacheable.test(value)) {
+      memory.put(key, value);
+      store(key, value);
+    }
+    return value;
+  }
+
+  private V hit(Counter counter, V value) {
+    counter.increment();
+    onHit.accept(value);
+    return value;
+  }
+
+  private V findStored(String key) {
+    if (!storeEnabled.getAsBoolean()) {
+      return null;
+    }
+    try {
+      return store.find(key)
+          .filter(stored -> stored.createdAt() == null || stored.createdAt().isAfter(expiredBefore()))
+          .map(Stored::value)
+          .orElse(null);
+    } catch (DataAccessException e) {
+      log.warn("{} lookup failed", metric, e);
+      return null;
+    }
+  }
+
+  private void store(String key, V value) {
+    if (!storeEnabled.getAsBoolean()) {
+      return;
+    }
+    try {
+      store.save(key, value);
+      purgeExpired();
+    } catch (DataAccessException e) {
+      // most likely another instance stored the same key first
+      log.debug("{} entry not stored", metric, e);
+    }
+  }
+
+  private void purgeExpired() {
+    long ttl = ttlMs.getAsLong();
+    long now = System.currentTimeMillis();
+    long last = lastPurge.get();
+    if (ttl > 0 && now - last >= ttl / 10 && lastPurge.compareAndSet(last, now)) {
+      log.debug("Purged {} expired {} entries", store.deleteCreatedBefore(expiredBefore()), metric);
+    }
+  }
+
+  private OffsetDateTime expiredBefore() {
+    long ttl = ttlMs.getAsLong();
+    return ttl > 0 ? OffsetDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttl)) : OffsetDateTime.MIN;
+  }
+
+  private Counter requests(MeterRegistry meterRegistry, String description, String result, String tier) {
+    return Counter.builder(metric + ".requests")
+        .description(description + " cache lookups by outcome and the tier that answered")
+        .tag("result", result)
+        .tag("tier", tier)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,12 @@
+-- V10: Token counts per message (local tokenizer count and provider usage of the model call) and usage totals per session
+
+ALTER TABLE IF EXISTS messages
+    ADD COLUMN IF NOT EXISTS tokens INTEGER,
+    ADD COLUMN IF NOT EXISTS prompt_tokens INTEGER,
+    ADD COLUMN IF NOT EXISTS completion_tokens INTEGER,
+    ADD COLUMN IF NOT EXISTS cached_tokens INTEGER;
+
+ALTER TABLE IF EXISTS sessions
+    ADD COLUMN IF NOT EXISTS prompt_tokens BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS completion_tokens BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS cached_tokens BIGINT NOT NULL DEFAULT 0;
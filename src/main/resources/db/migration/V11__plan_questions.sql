@@ -0,0 +1,5 @@
+-- V11: Main questions of the interview plan as structured items and the interview progress over them
+
+ALTER TABLE IF EXISTS sessions
+    ADD COLUMN IF NOT EXISTS plan_questions TEXT,
+    ADD COLUMN IF NOT EXISTS current_question INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- V12: Candidate answers scored in the background during the interview, used to assemble the final feedback
+
+CREATE TABLE IF NOT EXISTS answer_assessments
+(
+    id              UUID PRIMARY KEY,
+    session_id      UUID      NOT NULL REFERENCES sessions (id),
+    question_number INT       NOT NULL,
+    question        TEXT,
+    answer          TEXT      NOT NULL,
+    score           INT       NOT NULL,
+    summary         TEXT,
+    strengths       TEXT,
+    gaps            TEXT,
+    created_at      TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS answer_assessments_session_idx ON answer_assessments (session_id, created_at);
@@ -0,0 +1,3 @@
+-- V4: Index for windowed chat memory reads (last N messages of a session)
+
+CREATE INDEX IF NOT EXISTS messages_session_id_created_at_idx ON messages (session_id, created_at DESC);
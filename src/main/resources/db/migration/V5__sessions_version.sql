@@ -0,0 +1,4 @@
+-- V5: Optimistic locking for sessions (turns no longer hold a transaction across the LLM call)
+
+ALTER TABLE IF EXISTS sessions
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+-- V6: Partial assistant answers persisted when the client disconnected mid-stream
+
+ALTER TABLE IF EXISTS messages
+    ADD COLUMN IF NOT EXISTS interrupted BOOLEAN NOT NULL DEFAULT FALSE;
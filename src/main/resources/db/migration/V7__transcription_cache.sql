@@ -0,0 +1,11 @@
+-- V7: Transcripts of previously seen audio, keyed by a hash of the audio bytes, model and options
+
+CREATE TABLE IF NOT EXISTS transcription_cache
+(
+    cache_key     VARCHAR(64) PRIMARY KEY,
+    text          TEXT        NOT NULL,
+    audio_seconds DOUBLE PRECISION NOT NULL DEFAULT 0,
+    created_at    TIMESTAMP   NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS transcription_cache_created_at_idx ON transcription_cache (created_at);
@@ -0,0 +1,10 @@
+-- V8: Generated interview plans reused across sessions with the same vacancy and plan parameters
+
+CREATE TABLE IF NOT EXISTS interview_plan_cache
+(
+    cache_key   VARCHAR(64) PRIMARY KEY,
+    plan        TEXT        NOT NULL,
+    created_at  TIMESTAMP   NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS interview_plan_cache_created_at_idx ON interview_plan_cache (created_at);
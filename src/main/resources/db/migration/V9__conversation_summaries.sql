@@ -0,0 +1,10 @@
+-- V9: Rolling summary of the interview turns that no longer fit the chat memory window
+
+CREATE TABLE IF NOT EXISTS conversation_summaries
+(
+    session_id       UUID PRIMARY KEY REFERENCES sessions (id),
+    summary          TEXT      NOT NULL,
+    covered_until    TIMESTAMP NOT NULL,
+    covered_messages INT       NOT NULL,
+    updated_at       TIMESTAMP NOT NULL DEFAULT NOW()
+);
@@ -9,6 +9,7 @@ import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.core.MethodParameter;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import ru.hh.aiinterviewer.api.dto.ApiError;
 import ru.hh.aiinterviewer.api.dto.ApiErrorCode;
 import ru.hh.aiinterviewer.exception.FileTooLargeException;
@@ -16,7 +17,9 @@ import ru.hh.aiinterviewer.exception.FileTypeNotSupportedException;
 import ru.hh.aiinterviewer.exception.InvalidStatusTransitionException;
 import ru.hh.aiinterviewer.exception.NotFoundException;
 import ru.hh.aiinterviewer.exception.SessionCompletedException;
+import ru.hh.aiinterviewer.exception.StreamNotResumableException;
 import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
 import ru.hh.aiinterviewer.exception.VacancyNotParsableException;
 
 public class GlobalExceptionHandlerTest {
@@ -41,6 +44,24 @@ public class GlobalExceptionHandlerTest {
     assertThat(body.getCode()).isEqualTo(ApiErrorCode.INVALID_STATUS_TRANSITION.getCode());
   }
 
+  @Test
+  void optimisticLock_mapsTo409() {
+    var resp = handler.handleConcurrentModification(new ObjectOptimisticLockingFailureException("Session", "id"));
+    assertThat(resp.getStatusCode().value()).isEqualTo(409);
+    ApiError body = resp.getBody();
+    assertThat(body).isNotNull();
+    assertThat(body.getCode()).isEqualTo(ApiErrorCode.CONCURRENT_MODIFICATION.getCode());
+  }
+
+  @Test
+  void streamNotResumable_mapsTo409() {
+    var resp = handler.handleStreamNotResumable(new StreamNotResumableException("gone"));
+    assertThat(resp.getStatusCode().value()).isEqualTo(409);
+    ApiError body = resp.getBody();
+    assertThat(body).isNotNull();
+    assertThat(body.getCode()).isEqualTo(ApiErrorCode.STREAM_NOT_RESUMABLE.getCode());
+  }
+
   @Test
   void sessionCompleted_mapsTo410() {
     var resp = handler.handleSessionCompleted(new SessionCompletedException("done"));
@@ -69,6 +90,15 @@ public class GlobalExceptionHandlerTest {
     assertThat(resp3.getStatusCode().value()).isEqualTo(400);
   }
 
+  @Test
+  void upstreamBusy_mapsTo503() {
+    var resp = handler.handleUpstreamBusy(new UpstreamBusyException("llm"));
+    assertThat(resp.getStatusCode().value()).isEqualTo(503);
+    ApiError body = resp.getBody();
+    assertThat(body).isNotNull();
+    assertThat(body.getCode()).isEqualTo(ApiErrorCode.UPSTREAM_BUSY.getCode());
+  }
+
   @Test
   void validation_mapsTo400WithInvalidInputCode() throws NoSuchMethodException {
     // Create a minimal MethodArgumentNotValidException
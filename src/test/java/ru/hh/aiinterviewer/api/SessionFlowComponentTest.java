@@ -22,6 +22,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -76,6 +77,9 @@ public class SessionFlowComponentTest {
   @MockBean(name = "prepareInterviewPlanChatClient", answer = Answers.RETURNS_DEEP_STUBS)
   private ChatClient prepareInterviewPlanChatClient;
 
+  @MockitoBean(name = "revisePlanChatClient", answers = Answers.RETURNS_DEEP_STUBS)
+  private ChatClient revisePlanChatClient;
+
   @Autowired
   private RoleRepository roleRepository;
 
@@ -89,6 +93,8 @@ public class SessionFlowComponentTest {
         .thenReturn(A_PLAN);
     org.mockito.Mockito.when(prepareInterviewPlanChatClient.prompt().system(anyString()).call().content())
         .thenReturn(A_PLAN);
+    org.mockito.Mockito.when(revisePlanChatClient.prompt().system(anyString()).call().content())
+        .thenReturn(A_PLAN);
   }
 
   @Test
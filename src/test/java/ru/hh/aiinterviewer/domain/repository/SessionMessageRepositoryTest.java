@@ -0,0 +1,55 @@
+package ru.hh.aiinterviewer.domain.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.model.SessionStatus;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class SessionMessageRepositoryTest {
+
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @Autowired
+  private SessionMessageRepository sessionMessageRepository;
+
+  @Test
+  void window_returns_last_messages_plus_system_in_chronological_order() {
+    UUID sessionId = sessionRepository.save(Session.builder().status(SessionStatus.ONGOING).build()).getId();
+    OffsetDateTime start = OffsetDateTime.now().minusHours(1);
+
+    sessionMessageRepository.save(message(sessionId, MessageRole.SYSTEM, "context", start));
+    for (int i = 1; i <= 10; i++) {
+      MessageRole role = i % 2 == 1 ? MessageRole.USER : MessageRole.ASSISTANT;
+      sessionMessageRepository.save(message(sessionId, role, "m" + i, start.plusSeconds(i)));
+    }
+    sessionMessageRepository.flush();
+
+    List<SessionMessage> window = sessionMessageRepository.findWindow(sessionId, 4);
+
+    assertThat(window).extracting(SessionMessage::getContent)
+        .containsExactly("context", "m7", "m8", "m9", "m10");
+    assertThat(sessionMessageRepository.countBySessionId(sessionId)).isEqualTo(11);
+  }
+
+  private SessionMessage message(UUID sessionId, MessageRole role, String content, OffsetDateTime createdAt) {
+    SessionMessage message = SessionMessage.builder()
+        .sessionId(sessionId)
+        .role(role)
+        .content(content)
+        .build();
+    message.setCreatedAt(createdAt);
+    return message;
+  }
+}
@@ -0,0 +1,199 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+
+public class BalancedChatModelTest {
+
+  private final List<Stub> stubs = new ArrayList<>();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @AfterEach
+  void stopStubs() {
+    stubs.forEach(stub -> stub.server.stop(0));
+  }
+
+  @Test
+  void failed_endpoint_is_skipped_and_then_ranked_last() throws IOException {
+    Stub down = stub("down", 503, 0);
+    Stub up = stub("up", 200, 0);
+    BalancedChatModel model = balancer(Duration.ZERO, endpoint(down, 4), endpoint(up, 4));
+
+    assertThat(model.call(new Prompt("Привет")).getResult().getOutput().getText()).isEqualTo("ответ от up");
+    assertThat(model.call(new Prompt("Привет")).getResult().getOutput().getText()).isEqualTo("ответ от up");
+
+    assertThat(down.hits).hasValue(1);
+    assertThat(up.hits).hasValue(2);
+    assertThat(meterRegistry.counter("llm.endpoint.calls", "endpoint", "down", "result", "failure").count()).isEqualTo(1);
+  }
+
+  @Test
+  void invalid_request_is_not_sent_to_another_endpoint() throws IOException {
+    Stub rejecting = stub("rejecting", 400, 0);
+    Stub up = stub("up", 200, 0);
+    BalancedChatModel model = balancer(Duration.ZERO, endpoint(rejecting, 4), endpoint(up, 4));
+
+    assertThatThrownBy(() -> model.call(new Prompt("Привет"))).hasMessageStartingWith("400");
+
+    assertThat(up.hits).hasValue(0);
+  }
+
+  @Test
+  void slow_first_token_is_hedged_to_the_next_endpoint() throws IOException {
+    Stub slow = stub("slow", 200, 3_000);
+    Stub fast = stub("fast", 200, 0);
+    BalancedChatModel model = balancer(Duration.ofMillis(200), endpoint(slow, 4), endpoint(fast, 4));
+
+    long start = System.nanoTime();
+    String answer = model.stream(new Prompt("Привет"))
+        .map(response -> response.getResult().getOutput().getText())
+        .collect(Collectors.joining())
+        .block(Duration.ofSeconds(5));
+
+    assertThat(answer).isEqualTo("ответ от fast");
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(2_000));
+    assertThat(slow.hits).hasValue(1);
+    assertThat(meterRegistry.counter("llm.endpoint.hedges", "reason", "delay").count()).isEqualTo(1);
+    assertThat(meterRegistry.find("llm.endpoint.in.flight").tag("endpoint", "slow").gauge().value()).isZero();
+  }
+
+  @Test
+  void stream_failing_before_the_first_token_fails_over() throws IOException {
+    Stub down = stub("down", 502, 0);
+    Stub up = stub("up", 200, 0);
+    BalancedChatModel model = balancer(Duration.ofSeconds(10), endpoint(down, 4), endpoint(up, 4));
+
+    String answer = model.stream(new Prompt("Привет"))
+        .map(response -> response.getResult().getOutput().getText())
+        .collect(Collectors.joining())
+        .block(Duration.ofSeconds(5));
+
+    assertThat(answer).isEqualTo("ответ от up");
+    assertThat(meterRegistry.counter("llm.endpoint.hedges", "reason", "failure").count()).isEqualTo(1);
+  }
+
+  @Test
+  void endpoint_at_its_concurrency_cap_is_skipped() throws IOException {
+    Stub busy = stub("busy", 200, 2_000);
+    Stub spare = stub("spare", 200, 0);
+    BalancedChatModel model = balancer(Duration.ZERO, endpoint(busy, 1), endpoint(spare, 4));
+
+    Disposable inFlight = model.stream(new Prompt("Привет")).subscribe();
+    try {
+      awaitHits(busy, 1);
+      assertThat(model.call(new Prompt("Привет")).getResult().getOutput().getText()).isEqualTo("ответ от spare");
+      assertThat(busy.hits).hasValue(1);
+    } finally {
+      inFlight.dispose();
+    }
+  }
+
+  private BalancedChatModel balancer(Duration hedgeDelay, BalancedChatModel.Endpoint... endpoints) {
+    return new BalancedChatModel(List.of(endpoints), OpenAiChatOptions.builder().model("stub").build(), hedgeDelay,
+        1_000, meterRegistry);
+  }
+
+  private BalancedChatModel.Endpoint endpoint(Stub stub, int maxConcurrency) {
+    return new BalancedChatModel.Endpoint(stub.name, BalancedChatModel.endpointModel(
+        "http://127.0.0.1:" + stub.server.getAddress().getPort(), "test-key",
+        OpenAiChatOptions.builder().model("stub").build(), RestClient.builder(), WebClient.builder()), maxConcurrency);
+  }
+
+  private Stub stub(String name, int status, long delayMs) throws IOException {
+    Stub stub = new Stub(name, status, delayMs);
+    stubs.add(stub);
+    return stub;
+  }
+
+  private static void awaitHits(Stub stub, int hits) {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (stub.hits.get() < hits && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Chat completions endpoint answering "ответ от {name}" with the given status after the given delay.
+   */
+  private static final class Stub {
+
+    private final String name;
+    private final int status;
+    private final long delayMs;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final HttpServer server;
+
+    private Stub(String name, int status, long delayMs) throws IOException {
+      this.name = name;
+      this.status = status;
+      this.delayMs = delayMs;
+      this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+      server.createContext("/v1/chat/completions", this::handle);
+      server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+      hits.incrementAndGet();
+      boolean stream = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)
+          .contains("\"stream\":true");
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try (exchange; OutputStream body = exchange.getResponseBody()) {
+        if (status != 200) {
+          byte[] error = "{\"error\":{\"message\":\"stub\"}}".getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(status, error.length);
+          body.write(error);
+        } else if (stream) {
+          exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+          exchange.sendResponseHeaders(200, 0);
+          body.write(("data: " + chunk("ответ ") + "\n\ndata: " + chunk("от " + name) + "\n\ndata: [DONE]\n\n")
+              .getBytes(StandardCharsets.UTF_8));
+        } else {
+          byte[] completion = """
+              {"id":"1","object":"chat.completion","created":1,"model":"stub",
+               "choices":[{"index":0,"message":{"role":"assistant","content":"ответ от %s"},"finish_reason":"stop"}],
+               "usage":{"prompt_tokens":1,"completion_tokens":3,"total_tokens":4}}""".formatted(name)
+              .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, completion.length);
+          body.write(completion);
+        }
+      } catch (IOException e) {
+        // The client cancelled the request
+      }
+    }
+
+    private static String chunk(String content) {
+      return """
+          {"id":"1","object":"chat.completion.chunk","created":1,"model":"stub",\
+          "choices":[{"index":0,"delta":{"role":"assistant","content":"%s"},"finish_reason":null}]}""".formatted(content);
+    }
+  }
+}
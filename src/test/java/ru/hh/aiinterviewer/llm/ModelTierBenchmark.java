@@ -0,0 +1,137 @@
+package ru.hh.aiinterviewer.llm;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.config.ModelTiers;
+import ru.hh.aiinterviewer.service.AnswerAssessor;
+
+/**
+ * Latency and billed tokens of every model tier on a representative request of its {@link Interaction}: the
+ * {@code app.models} profiles and default options of application.yaml (with environment overrides) against the
+ * OpenAI API, measured by the same {@link TierMetricsAdvisor} that reports live calls.
+ * Needs {@code OPENAI_API_KEY}; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class ModelTierBenchmark {
+
+  private static final int ROUNDS = 3;
+
+  private static final String PLAN = """
+      ### Анализ вакансии
+      Java-разработчик уровня middle: Spring Boot, PostgreSQL, Kafka.
+
+      ### Критерии оценки
+      Понимание основ JVM, опыт с Spring и транзакциями, проектирование интеграций.
+
+      ### Список вопросов для интервью
+      1. [легкий] (Тема: Java Core) Чем отличается ArrayList от LinkedList?
+      2. [средний] (Тема: Spring) Как работает @Transactional?
+      3. [сложный] (Тема: Kafka) Как обеспечить обработку сообщений ровно один раз?
+      """;
+
+  private static final String TRANSCRIPT = """
+      Интервьюер: Вопрос 1/3 (Тема: Java Core): чем отличается ArrayList от LinkedList?
+
+      Кандидат: ArrayList на массиве, доступ по индексу за O(1), LinkedList – связный список, вставка в середину дешевле.
+
+      Интервьюер: Вопрос 2/3 (Тема: Spring): как работает @Transactional?
+
+      Кандидат: Через прокси: транзакция открывается до вызова метода и коммитится после, при исключении – откат.
+      """;
+
+  @Test
+  void latency_and_tokens_per_tier() throws IOException {
+    String apiKey = System.getenv("OPENAI_API_KEY");
+    Assumptions.assumeTrue(apiKey != null && !apiKey.isBlank(), "OPENAI_API_KEY is not set");
+
+    StandardEnvironment environment = new StandardEnvironment();
+    new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yaml"))
+        .forEach(environment.getPropertySources()::addLast);
+    Binder binder = Binder.get(environment);
+    ApplicationProperties properties = binder.bind("app", ApplicationProperties.class).get();
+    OpenAiChatModel chatModel = OpenAiChatModel.builder()
+        .openAiApi(OpenAiApi.builder().apiKey(apiKey).build())
+        .defaultOptions(OpenAiChatOptions.builder()
+            .model(environment.getProperty("spring.ai.openai.chat.options.model"))
+            .temperature(environment.getProperty("spring.ai.openai.chat.options.temperature", Double.class))
+            .build())
+        .build();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    for (Map.Entry<Interaction, Function<ChatClient, Object>> request : requests().entrySet()) {
+      Interaction interaction = request.getKey();
+      ChatClient client = ChatClient.builder(chatModel)
+          .defaultOptions(ModelTiers.options(properties, interaction))
+          .defaultAdvisors(new TierMetricsAdvisor(interaction, meterRegistry))
+          .build();
+      for (int i = 0; i < ROUNDS; i++) {
+        request.getValue().apply(client);
+      }
+    }
+
+    for (Interaction interaction : requests().keySet()) {
+      Timer calls = meterRegistry.find("llm.calls").tag("interaction", interaction.tag()).timer();
+      String model = calls.getId().getTag("model");
+      System.out.printf("%-10s %-28s %8.0f ms/call %8.0f ms max %8.0f prompt %8.0f completion tokens/call%n",
+          interaction.tag(), model, calls.mean(TimeUnit.MILLISECONDS), calls.max(TimeUnit.MILLISECONDS),
+          tokens(meterRegistry, interaction, model, "prompt"), tokens(meterRegistry, interaction, model, "completion"));
+    }
+  }
+
+  private static Map<Interaction, Function<ChatClient, Object>> requests() {
+    Map<Interaction, Function<ChatClient, Object>> requests = new EnumMap<>(Interaction.class);
+    requests.put(Interaction.PLAN, client -> client.prompt()
+        .user(Prompts.getPrepareInterviewPlanPrompt("Java-разработчик: Spring Boot, PostgreSQL, Kafka", 3, null))
+        .call()
+        .chatResponse());
+    requests.put(Interaction.REVISE, client -> client.prompt()
+        .user(Prompts.getPatchPlanPrompt(PLAN, "замени вопрос про Kafka на вопрос про индексы в PostgreSQL", 3, null))
+        .call()
+        .responseEntity(PlanPatch.class));
+    requests.put(Interaction.INTERVIEW, client -> client.prompt()
+        .system(Prompts.getInterviewerPrompt(PLAN, PlanQuestions.parse(PLAN), 0, null, null))
+        .user("Начать интервью")
+        .call()
+        .chatResponse());
+    requests.put(Interaction.FEEDBACK, client -> client.prompt()
+        .user(Prompts.getFeedbackAggregationPrompt("Интервью завершено", PlanQuestions.overview(PLAN), """
+            Вопрос 1 (Тема: Java Core), оценка 8/10: знает устройство обеих коллекций
+            Вопрос 2 (Тема: Spring), оценка 6/10: знает про прокси
+              Пробелы: не назвал самовызов и propagation""", null))
+        .call()
+        .chatResponse());
+    requests.put(Interaction.SUMMARY, client -> client.prompt()
+        .user(Prompts.getConversationSummaryPrompt(null, TRANSCRIPT))
+        .call()
+        .chatResponse());
+    requests.put(Interaction.ASSESSMENT, client -> client.prompt()
+        .user(Prompts.getAnswerAssessmentPrompt("Вопрос 2/3 (Тема: Spring): как работает @Transactional?",
+            PlanQuestions.parse(PLAN).get(1).text(),
+            "Через прокси: транзакция открывается до вызова метода и коммитится после, при исключении – откат."))
+        .call()
+        .responseEntity(AnswerAssessor.Assessment.class));
+    return requests;
+  }
+
+  private static double tokens(SimpleMeterRegistry meterRegistry, Interaction interaction, String model, String type) {
+    return meterRegistry.counter("llm.tier.tokens", "interaction", interaction.tag(), "model", model, "type", type)
+        .count() / ROUNDS;
+  }
+}
@@ -0,0 +1,83 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.domain.model.PlanQuestion;
+
+public class PlanQuestionsTest {
+
+  private static final String PLAN = """
+      ### Анализ вакансии
+      Java-разработчик уровня middle. Список вопросов для интервью покрывает все требования.
+
+      ### План интервью
+      1. Технические знания – 60%
+      2. Опыт – 40%
+
+      ### Список вопросов для интервью
+      1. [легкий] (Тема: Java Core) Чем отличается ArrayList от LinkedList?
+         Ожидается: сложность операций, локальность данных.
+      2. [средний] (Тема: Spring) Как работает @Transactional?
+      3. [сложный] (Тема: Архитектура) Как бы ты спроектировал сервис уведомлений?
+      """;
+
+  @Test
+  void reads_the_question_list_from_the_last_section() {
+    List<PlanQuestion> questions = PlanQuestions.parse(PLAN);
+
+    assertThat(questions).extracting(PlanQuestion::number).containsExactly(1, 2, 3);
+    assertThat(questions.getFirst().topic()).isEqualTo("Java Core");
+    assertThat(questions.getFirst().difficulty()).isEqualTo("легкий");
+    assertThat(questions.getFirst().text()).endsWith("Ожидается: сложность операций, локальность данных.");
+    assertThat(PlanQuestions.parse("Свободный план без списка вопросов")).isEmpty();
+  }
+
+  @Test
+  void folds_asked_questions_to_their_topics() {
+    List<PlanQuestion> questions = PlanQuestions.parse(PLAN);
+
+    assertThat(PlanQuestions.render(PLAN, questions, 1)).isEqualTo(PLAN);
+    String rendered = PlanQuestions.render(PLAN, questions, 3);
+
+    assertThat(rendered).contains("### План интервью", "Уже заданы (не повторяй их): 1 (Java Core), 2 (Spring)",
+        "Текущий вопрос:\n3. [сложный] (Тема: Архитектура)");
+    assertThat(rendered).doesNotContain("ArrayList", "@Transactional");
+  }
+
+  @Test
+  void applies_a_patch_to_the_question_list_and_renumbers_it() {
+    PlanPatch patch = new PlanPatch(false, List.of(
+        new PlanPatch.Edit(PlanPatch.Action.REMOVE, 1, ""),
+        new PlanPatch.Edit(PlanPatch.Action.REPLACE, 2, "[средний] (Тема: Kafka) Как обеспечить exactly-once?"),
+        new PlanPatch.Edit(PlanPatch.Action.INSERT, 3, "4. [легкий] (Тема: SQL) Что такое индекс?\nОжидается: B-tree.")));
+
+    String patched = PlanQuestions.apply(PLAN, patch).orElseThrow();
+
+    assertThat(patched).startsWith(PLAN.substring(0, PLAN.indexOf("1. [легкий] (Тема: Java Core)")));
+    assertThat(PlanQuestions.parse(patched)).extracting(PlanQuestion::topic)
+        .containsExactly("Kafka", "Архитектура", "SQL");
+    assertThat(patched).contains("3. [легкий] (Тема: SQL) Что такое индекс?\n   Ожидается: B-tree.");
+  }
+
+  @Test
+  void rejects_a_patch_that_does_not_fit_the_plan() {
+    PlanPatch outOfRange = new PlanPatch(false, List.of(new PlanPatch.Edit(PlanPatch.Action.REPLACE, 4, "вопрос")));
+    PlanPatch twice = new PlanPatch(false, List.of(
+        new PlanPatch.Edit(PlanPatch.Action.REMOVE, 2, ""),
+        new PlanPatch.Edit(PlanPatch.Action.REPLACE, 2, "вопрос")));
+
+    assertThat(PlanQuestions.apply(PLAN, outOfRange)).isEmpty();
+    assertThat(PlanQuestions.apply(PLAN, twice)).isEmpty();
+    assertThat(PlanQuestions.apply(PLAN, new PlanPatch(true, List.of()))).isEmpty();
+    assertThat(PlanQuestions.apply("Свободный план без списка вопросов",
+        new PlanPatch(false, List.of(new PlanPatch.Edit(PlanPatch.Action.REMOVE, 1, ""))))).isEmpty();
+  }
+
+  @Test
+  void finds_the_last_main_question_asked() {
+    assertThat(PlanQuestions.askedQuestion("Отлично! **Вопрос 2/3 (Тема: Spring):** как работает...")).hasValue(2);
+    assertThat(PlanQuestions.askedQuestion("Уточняющий вопрос (тема: Spring): а если...")).isEmpty();
+  }
+}
@@ -0,0 +1,39 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+public class PromptBudgetAdvisorTest {
+
+  @Test
+  void drops_the_oldest_history_messages_of_an_oversized_prompt() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    String answer = "Подробный ответ кандидата про сборку мусора и модель памяти. ".repeat(20);
+    ChatClientRequest request = ChatClientRequest.builder()
+        .prompt(new Prompt(List.of(
+            new SystemMessage("instructions and plan"),
+            new AssistantMessage("Вопрос 1/5"),
+            new UserMessage(answer),
+            new AssistantMessage("Вопрос 2/5"),
+            new UserMessage(answer))))
+        .build();
+    int answerTokens = TokenCounter.getDefault().count(answer);
+    PromptBudgetAdvisor advisor = new PromptBudgetAdvisor(answerTokens + 40, meterRegistry, 1);
+
+    ChatClientRequest fitted = advisor.fit(request);
+
+    assertThat(fitted.prompt().getInstructions()).extracting(Message::getText)
+        .containsExactly("instructions and plan", "Вопрос 2/5", answer);
+    assertThat(meterRegistry.counter("llm.prompt.messages.dropped").count()).isEqualTo(2);
+    assertThat(advisor.fit(fitted)).isSameAs(fitted);
+  }
+}
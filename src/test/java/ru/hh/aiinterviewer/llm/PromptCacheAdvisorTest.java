@@ -0,0 +1,69 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import ru.hh.aiinterviewer.service.TokenAccounting;
+
+public class PromptCacheAdvisorTest {
+
+  @Test
+  void puts_the_session_prefix_first_and_records_cached_tokens() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TokenAccounting tokenAccounting = mock(TokenAccounting.class);
+    PromptCacheAdvisor advisor = new PromptCacheAdvisor(meterRegistry, tokenAccounting, 1);
+    Message summary = SystemMessage.builder().text("summary").metadata(Map.of("fromHistory", true)).build();
+    Message systemPrompt = new SystemMessage("instructions and plan");
+    // The order the memory advisor produces: history first, then the request's own messages
+    Prompt prompt = new Prompt(
+        List.of(summary, new AssistantMessage("Вопрос 1/5"), new UserMessage("ответ 1"), systemPrompt, new UserMessage("ответ 2")),
+        OpenAiChatOptions.builder().model("test-model").build());
+    ChatClientRequest request = ChatClientRequest.builder()
+        .prompt(prompt)
+        .context(Map.of(ChatMemory.CONVERSATION_ID, "session-1"))
+        .build();
+
+    AtomicReference<Prompt> sent = new AtomicReference<>();
+    CallAdvisorChain chain = mock(CallAdvisorChain.class);
+    OpenAiApi.Usage usage = new OpenAiApi.Usage(20, 1000, 1020, new OpenAiApi.Usage.PromptTokensDetails(0, 768), null);
+    when(chain.nextCall(any())).thenAnswer(inv -> {
+      sent.set(inv.<ChatClientRequest>getArgument(0).prompt());
+      return ChatClientResponse.builder()
+          .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage("Вопрос 2/5"))),
+              ChatResponseMetadata.builder().usage(new DefaultUsage(1000, 20, 1020, usage)).build()))
+          .build();
+    });
+
+    advisor.adviseCall(request, chain);
+
+    assertThat(sent.get().getInstructions()).extracting(Message::getText)
+        .containsExactly("instructions and plan", "summary", "Вопрос 1/5", "ответ 1", "ответ 2");
+    assertThat(((OpenAiChatOptions) sent.get().getOptions()).getUser()).isEqualTo("session-1");
+    assertThat(meterRegistry.summary("llm.prompt.tokens", "cache", "hit").totalAmount()).isEqualTo(768);
+    assertThat(meterRegistry.summary("llm.prompt.tokens", "cache", "miss").totalAmount()).isEqualTo(232);
+    verify(tokenAccounting).record("session-1", new TokenUsage(1000, 20, 768), true);
+  }
+}
@@ -0,0 +1,51 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.config.ModelTiers;
+
+public class TierMetricsAdvisorTest {
+
+  @Test
+  void records_latency_and_tokens_under_the_interaction_and_the_served_model() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TierMetricsAdvisor advisor = new TierMetricsAdvisor(Interaction.SUMMARY, meterRegistry);
+    OpenAiChatOptions options = ModelTiers.options(new ApplicationProperties(), Interaction.SUMMARY);
+    ChatClientRequest request = ChatClientRequest.builder()
+        .prompt(new Prompt(List.of(new UserMessage("сожми историю")), options))
+        .build();
+    CallAdvisorChain chain = mock(CallAdvisorChain.class);
+    when(chain.nextCall(any())).thenReturn(ChatClientResponse.builder()
+        .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage("резюме"))),
+            ChatResponseMetadata.builder().model("gpt-4o-mini-2024-07-18").usage(new DefaultUsage(900, 40)).build()))
+        .build());
+
+    advisor.adviseCall(request, chain);
+
+    assertThat(options.getModel()).isEqualTo("gpt-4o-mini");
+    assertThat(meterRegistry.timer("llm.calls", "interaction", "summary", "model", "gpt-4o-mini-2024-07-18").count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.counter("llm.tier.tokens",
+        "interaction", "summary", "model", "gpt-4o-mini-2024-07-18", "type", "prompt").count()).isEqualTo(900);
+    assertThat(meterRegistry.counter("llm.tier.tokens",
+        "interaction", "summary", "model", "gpt-4o-mini-2024-07-18", "type", "completion").count()).isEqualTo(40);
+  }
+}
@@ -0,0 +1,36 @@
+package ru.hh.aiinterviewer.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenCounterTest {
+
+  private final TokenCounter counter = TokenCounter.getDefault();
+
+  @Test
+  void unknown_models_fall_back_to_o200k() {
+    assertThat(TokenCounter.forModel("gpt-5-chat-latest").getEncodingName()).isEqualTo("o200k_base");
+    assertThat(TokenCounter.forModel("gpt-4o-mini")).isSameAs(counter);
+    assertThat(TokenCounter.forModel("gpt-4").getEncodingName()).isEqualTo("cl100k_base");
+  }
+
+  @Test
+  void counts_russian_text_and_special_tokens_as_plain_text() {
+    assertThat(counter.count("Hello world")).isEqualTo(2);
+    assertThat(counter.count("Расскажите о своём опыте с JVM")).isBetween(5, 15);
+    assertThat(counter.count("<|endoftext|>")).isGreaterThan(1);
+    assertThat(counter.count(null)).isZero();
+  }
+
+  @Test
+  void truncates_on_a_token_boundary() {
+    String text = "Требуется Java-разработчик. Опыт работы со Spring Boot, PostgreSQL и Kafka от трёх лет. ".repeat(50);
+
+    String truncated = counter.truncate(text, 100);
+
+    assertThat(counter.count(truncated)).isLessThanOrEqualTo(100).isGreaterThan(90);
+    assertThat(text).startsWith(truncated);
+    assertThat(counter.truncate("короткий текст", 100)).isEqualTo("короткий текст");
+  }
+}
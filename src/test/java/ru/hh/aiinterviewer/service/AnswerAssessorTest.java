@@ -0,0 +1,83 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.AnswerAssessment;
+import ru.hh.aiinterviewer.domain.model.PlanQuestion;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.AnswerAssessmentRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.TokenUsage;
+
+public class AnswerAssessorTest {
+
+  private final UUID sessionId = UUID.randomUUID();
+  private ChatClient assessmentClient;
+  private SessionMessageRepository messageRepository;
+  private AnswerAssessmentRepository assessmentRepository;
+  private TokenAccounting tokenAccounting;
+  private AnswerAssessor assessor;
+
+  @BeforeEach
+  void setup() {
+    assessmentClient = mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    messageRepository = mock(SessionMessageRepository.class);
+    assessmentRepository = mock(AnswerAssessmentRepository.class);
+    tokenAccounting = mock(TokenAccounting.class);
+    assessor = new AnswerAssessor(new ApplicationProperties(), assessmentClient, messageRepository,
+        assessmentRepository, Executors.newVirtualThreadPerTaskExecutor(), tokenAccounting, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void scores_the_answer_against_the_question_it_answers_and_the_plan_item() {
+    Session session = Session.builder()
+        .id(sessionId)
+        .planQuestions(List.of(new PlanQuestion(2, "GC", "средний", "(Тема: GC) Как работает G1? Ожидаем: регионы")))
+        .build();
+    when(messageRepository.findWindow(sessionId, 4)).thenReturn(List.of(
+        SessionMessage.newAssistantMessage(sessionId, "Вопрос 2/5 (Тема: GC): как работает G1?"),
+        SessionMessage.from(sessionId, new UserMessage("Куча делится на регионы"))));
+    ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("{}"))),
+        ChatResponseMetadata.builder().usage(new DefaultUsage(300, 50)).build());
+    when(assessmentClient.prompt().user(any(String.class)).call().responseEntity(AnswerAssessor.Assessment.class))
+        .thenReturn(new ResponseEntity<>(response,
+            new AnswerAssessor.Assessment(12, "Знает основы G1", "регионы", "не назвал mixed GC")));
+
+    assessor.request(session, 2, "Куча делится на регионы");
+
+    assertThat(assessor.awaitPending(sessionId, 5_000)).isTrue();
+    verify(assessmentClient.prompt()).user(contains("Ожидаем: регионы"));
+    verify(tokenAccounting).record(eq(sessionId), eq(new TokenUsage(300, 50, 0)), eq(false));
+    ArgumentCaptor<AnswerAssessment> saved = ArgumentCaptor.forClass(AnswerAssessment.class);
+    verify(assessmentRepository, timeout(1_000)).save(saved.capture());
+    assertThat(saved.getValue().getQuestionNumber()).isEqualTo(2);
+    assertThat(saved.getValue().getQuestion()).isEqualTo("Вопрос 2/5 (Тема: GC): как работает G1?");
+    assertThat(saved.getValue().getScore()).isEqualTo(10);
+    assertThat(saved.getValue().getGaps()).isEqualTo("не назвал mixed GC");
+  }
+}
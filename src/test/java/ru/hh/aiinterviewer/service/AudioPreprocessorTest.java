@@ -0,0 +1,112 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.IntUnaryOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+
+public class AudioPreprocessorTest {
+
+  private ApplicationProperties props;
+  private SimpleMeterRegistry meterRegistry;
+  private AudioSpooler spooler;
+  private AudioPreprocessor preprocessor;
+
+  @BeforeEach
+  void setup() {
+    props = new ApplicationProperties();
+    props.setAudioSpoolMemoryThresholdBytes(64 * 1024);
+    meterRegistry = new SimpleMeterRegistry();
+    spooler = new AudioSpooler(props);
+    preprocessor = new AudioPreprocessor(props, meterRegistry);
+  }
+
+  @Test
+  void stereo_recording_is_trimmed_downmixed_and_resampled() throws Exception {
+    // 1 s silence, 1 s of a 440 Hz tone, 1 s silence at 48 kHz stereo
+    byte[] wav = stereoWav(48_000, 3 * 48_000, i -> i >= 48_000 && i < 96_000 ? tone(i, 440, 48_000) : 0);
+
+    try (SpooledAudio spooled = spooler.spool(new ByteArrayInputStream(wav));
+         SpooledAudio prepared = preprocessor.preprocess(spooled)) {
+      PcmLayout pcm = prepared.pcm();
+      assertThat(pcm.channels()).isEqualTo(1);
+      assertThat(pcm.sampleRate()).isEqualTo(16_000);
+      assertThat(pcm.bitsPerSample()).isEqualTo(16);
+      // the tone plus 300 ms of padding on both sides
+      assertThat(pcm.frames()).isBetween(16_000L + 2 * 4_800 - 320, 16_000L + 2 * 4_800 + 320);
+      assertThat(prepared.size()).isEqualTo(44 + pcm.dataBytes());
+
+      // a re-spooled copy validates as a regular WAV of the same length
+      byte[] bytes = prepared.resource().getContentAsByteArray();
+      try (SpooledAudio copy = spooler.spool(new ByteArrayInputStream(bytes))) {
+        assertThat(copy.pcm()).isEqualTo(pcm);
+      }
+      assertThat(peak(bytes, 44 + 2 * 4_800, 16_000)).isBetween(0.45, 0.55);
+    }
+    assertThat(meterRegistry.get("audio.preprocess.bytes.saved").summary().totalAmount())
+        .isEqualTo(wav.length - 44 - 2 * (double) (16_000 + 2 * 4_800), offset(1280.0));
+    assertThat(meterRegistry.get("audio.preprocess.duration").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void tones_above_the_target_nyquist_are_filtered_out() throws Exception {
+    props.setAudioVadPaddingMs(0);
+    byte[] wav = stereoWav(48_000, 48_000, i -> tone(i, 12_000, 48_000));
+
+    try (SpooledAudio spooled = spooler.spool(new ByteArrayInputStream(wav));
+         SpooledAudio prepared = preprocessor.preprocess(spooled)) {
+      byte[] bytes = prepared.resource().getContentAsByteArray();
+      // without a low-pass the tone would alias to 4 kHz at full amplitude
+      assertThat(peak(bytes, 44 + 2 * 1_000, 14_000)).isLessThan(0.01);
+    }
+  }
+
+  @Test
+  void compact_and_compressed_uploads_are_passed_through() throws Exception {
+    byte[] wav = AudioSpoolerTest.wav(16_000, 32_000);
+    try (SpooledAudio spooled = spooler.spool(new ByteArrayInputStream(wav))) {
+      assertThat(preprocessor.preprocess(spooled)).isSameAs(spooled);
+    }
+
+    props.setAudioPreprocessingEnabled(false);
+    byte[] stereo = stereoWav(48_000, 48_000, i -> 0);
+    try (SpooledAudio spooled = spooler.spool(new ByteArrayInputStream(stereo))) {
+      assertThat(preprocessor.preprocess(spooled)).isSameAs(spooled);
+    }
+  }
+
+  private static short tone(int index, int frequency, int sampleRate) {
+    return (short) (0.5 * Short.MAX_VALUE * Math.sin(2 * Math.PI * frequency * index / sampleRate));
+  }
+
+  private static byte[] stereoWav(int sampleRate, int frames, IntUnaryOperator sample) {
+    int dataBytes = frames * 4;
+    ByteBuffer buffer = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+    buffer.put("fmt ".getBytes()).putInt(16)
+        .putShort((short) 1).putShort((short) 2).putInt(sampleRate).putInt(sampleRate * 4)
+        .putShort((short) 4).putShort((short) 16);
+    buffer.put("data".getBytes()).putInt(dataBytes);
+    for (int i = 0; i < frames; i++) {
+      short value = (short) sample.applyAsInt(i);
+      buffer.putShort(value).putShort(value);
+    }
+    return buffer.array();
+  }
+
+  private static double peak(byte[] wav, int offset, int samples) {
+    ByteBuffer buffer = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+    double peak = 0;
+    for (int i = 0; i < samples; i++) {
+      peak = Math.max(peak, Math.abs(buffer.getShort(offset + 2 * i) / 32768.0));
+    }
+    return peak;
+  }
+}
@@ -0,0 +1,176 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.FileTooLargeException;
+import ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException;
+
+public class AudioSpoolerTest {
+
+  @Test
+  void small_upload_stays_in_memory_and_large_one_spills_to_temp_file() throws Exception {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setAudioSpoolMemoryThresholdBytes(1024);
+    AudioSpooler spooler = new AudioSpooler(props);
+
+    try (SpooledAudio small = spooler.spool(new ByteArrayInputStream(wav(16_000, 100)))) {
+      assertThat(small.isOnDisk()).isFalse();
+      assertThat(small.resource().getFilename()).endsWith(".wav");
+    }
+
+    byte[] large = wav(16_000, 200_000);
+    Path file;
+    try (SpooledAudio spooled = spooler.spool(new ByteArrayInputStream(large))) {
+      assertThat(spooled.isOnDisk()).isTrue();
+      assertThat(spooled.size()).isEqualTo(large.length);
+      assertThat(spooled.resource().getFilename()).endsWith(".wav");
+      assertThat(spooled.resource().getContentAsByteArray()).isEqualTo(large);
+      file = spooled.resource().getFile().toPath();
+    }
+    assertThat(Files.exists(file)).isFalse();
+  }
+
+  @Test
+  void bad_header_is_rejected_without_reading_the_whole_body() {
+    AudioSpooler spooler = new AudioSpooler(new ApplicationProperties());
+    byte[] notWav = new byte[10 * 1024 * 1024];
+    CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(notWav));
+
+    assertThatThrownBy(() -> spooler.spool(in)).isInstanceOf(UnsupportedAudioFormatException.class);
+    assertThat(in.read).isLessThan(notWav.length / 10);
+
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(wav(96_000, 100))))
+        .isInstanceOf(UnsupportedAudioFormatException.class)
+        .hasMessage("Unsupported sample rate");
+  }
+
+  @Test
+  void upload_over_the_limit_is_rejected() {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setMaxAudioSizeBytes(100_000);
+    AudioSpooler spooler = new AudioSpooler(props);
+
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(wav(16_000, 200_000))))
+        .isInstanceOf(FileTooLargeException.class);
+  }
+
+  @Test
+  void compressed_containers_are_sniffed_and_duration_is_read_from_headers() throws Exception {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setMaxAudioDurationSeconds(60);
+    AudioSpooler spooler = new AudioSpooler(props);
+
+    try (SpooledAudio ogg = spooler.spool(new ByteArrayInputStream(ogg(48_000L * 30)))) {
+      assertThat(ogg.format()).isEqualTo(AudioFormat.OGG);
+      assertThat(ogg.resource().getFilename()).isEqualTo("audio.ogg");
+    }
+    try (SpooledAudio flac = spooler.spool(new ByteArrayInputStream(flac(16_000, 16_000L * 30)))) {
+      assertThat(flac.format()).isEqualTo(AudioFormat.FLAC);
+    }
+    try (SpooledAudio m4a = spooler.spool(new ByteArrayInputStream(m4a(1000, 30_000)))) {
+      assertThat(m4a.format()).isEqualTo(AudioFormat.M4A);
+    }
+    try (SpooledAudio webm = spooler.spool(new ByteArrayInputStream(webm(30_000f)))) {
+      assertThat(webm.format()).isEqualTo(AudioFormat.WEBM);
+    }
+
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(ogg(48_000L * 61))))
+        .isInstanceOf(FileTooLargeException.class);
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(flac(16_000, 16_000L * 61))))
+        .isInstanceOf(FileTooLargeException.class);
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(m4a(1000, 61_000))))
+        .isInstanceOf(FileTooLargeException.class);
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream(webm(61_000f))))
+        .isInstanceOf(FileTooLargeException.class);
+    assertThatThrownBy(() -> spooler.spool(new ByteArrayInputStream("ID3\u0004 mp3 is not supported".getBytes())))
+        .isInstanceOf(UnsupportedAudioFormatException.class);
+  }
+
+  static byte[] wav(int sampleRate, int dataBytes) {
+    ByteBuffer buffer = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+    buffer.put("fmt ".getBytes()).putInt(16)
+        .putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2)
+        .putShort((short) 2).putShort((short) 16);
+    buffer.put("data".getBytes()).putInt(dataBytes);
+    return buffer.array();
+  }
+
+  private static byte[] ogg(long lastGranule) {
+    ByteBuffer buffer = ByteBuffer.allocate(2 * 28 + 19 + 100).order(ByteOrder.LITTLE_ENDIAN);
+    // identification page with a single 19-byte segment
+    buffer.put("OggS".getBytes()).put((byte) 0).put((byte) 2).putLong(0).putInt(1).putInt(0).putInt(0)
+        .put((byte) 1).put((byte) 19);
+    buffer.put("OpusHead".getBytes()).put((byte) 1).put((byte) 1).putShort((short) 0).putInt(48_000)
+        .putShort((short) 0).put((byte) 0);
+    // last page carrying the final granule position
+    buffer.put("OggS".getBytes()).put((byte) 0).put((byte) 4).putLong(lastGranule).putInt(1).putInt(1).putInt(0)
+        .put((byte) 1).put((byte) 100);
+    return buffer.array();
+  }
+
+  private static byte[] flac(int sampleRate, long totalSamples) {
+    ByteBuffer buffer = ByteBuffer.allocate(42 + 100);
+    buffer.put("fLaC".getBytes()).put((byte) 0x80).put((byte) 0).put((byte) 0).put((byte) 34);
+    buffer.putShort((short) 4096).putShort((short) 4096).put(new byte[6]);
+    // 20 bits sample rate, 3 bits channels - 1, 5 bits bits per sample - 1, 36 bits total samples
+    long packed = ((long) sampleRate << 44) | (15L << 36) | totalSamples;
+    buffer.putLong(packed);
+    return buffer.array();
+  }
+
+  private static byte[] m4a(int timescale, int duration) {
+    ByteBuffer buffer = ByteBuffer.allocate(16 + 200 + 8 + 8 + 108);
+    buffer.putInt(16).put("ftyp".getBytes()).put("M4A ".getBytes()).putInt(0);
+    buffer.putInt(200).put("mdat".getBytes()).put(new byte[192]);
+    // moov at the end, as recorders write it without a faststart pass
+    buffer.putInt(8 + 8 + 108).put("moov".getBytes());
+    buffer.putInt(8).put("free".getBytes());
+    buffer.putInt(108).put("mvhd".getBytes()).putInt(0).putInt(0).putInt(0).putInt(timescale).putInt(duration);
+    return buffer.array();
+  }
+
+  private static byte[] webm(float durationMs) {
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    buffer.put(new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x84}).put("webm".getBytes());
+    // Segment and Cluster of unknown size, Info with TimecodeScale (1 ms) and a float Duration
+    buffer.put(new byte[]{0x18, 0x53, (byte) 0x80, 0x67, 0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+    buffer.put(new byte[]{0x15, 0x49, (byte) 0xA9, 0x66, (byte) 0x8E});
+    buffer.put(new byte[]{0x2A, (byte) 0xD7, (byte) 0xB1, (byte) 0x83, 0x0F, 0x42, 0x40});
+    buffer.put(new byte[]{0x44, (byte) 0x89, (byte) 0x84}).putFloat(durationMs);
+    buffer.put(new byte[]{0x1F, 0x43, (byte) 0xB6, 0x75, 0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+    return buffer.array();
+  }
+
+  private static final class CountingInputStream extends InputStream {
+
+    private final InputStream delegate;
+    private long read;
+
+    private CountingInputStream(InputStream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int read() throws java.io.IOException {
+      read++;
+      return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws java.io.IOException {
+      int n = delegate.read(b, off, len);
+      read += Math.max(n, 0);
+      return n;
+    }
+  }
+}
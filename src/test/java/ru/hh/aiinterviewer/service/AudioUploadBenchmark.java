@@ -0,0 +1,78 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.audio.transcription.AudioTranscription;
+import org.springframework.ai.audio.transcription.AudioTranscriptionPrompt;
+import org.springframework.ai.audio.transcription.AudioTranscriptionResponse;
+import org.springframework.ai.openai.OpenAiAudioTranscriptionModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.hh.aiinterviewer.api.dto.MessageRequestDto;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.repository.TranscriptionCacheRepository;
+
+/**
+ * Heap allocated per audio turn: base64-in-JSON vs. the binary upload endpoint. The model stub reads the whole
+ * resource the way the Spring AI OpenAI client does, so both paths include that unavoidable copy.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class AudioUploadBenchmark {
+
+  // Jackson rejects JSON strings over 20M chars, so base64 bodies above ~15 MB of audio fail before this point anyway
+  private static final int AUDIO_BYTES = 12 * 1024 * 1024;
+
+  @Test
+  void heap_per_audio_turn() throws Exception {
+    OpenAiAudioTranscriptionModel model = mock(OpenAiAudioTranscriptionModel.class);
+    when(model.call(any(AudioTranscriptionPrompt.class))).thenAnswer(inv -> {
+      AudioTranscriptionPrompt prompt = inv.getArgument(0);
+      prompt.getInstructions().getInputStream().readAllBytes();
+      return new AudioTranscriptionResponse(new AudioTranscription("text"));
+    });
+    ApplicationProperties props = new ApplicationProperties();
+    props.setAudioPreprocessingEnabled(false);
+    props.setTranscriptionChunkingEnabled(false);
+    props.setTranscriptionCacheEnabled(false);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TranscriptionService service = new TranscriptionService(model, new UpstreamLimiters(props, meterRegistry),
+        new AudioSpooler(props), new AudioPreprocessor(props, meterRegistry), props, null,
+        new TranscriptionCache(props, mock(TranscriptionCacheRepository.class), meterRegistry));
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    byte[] wav = AudioSpoolerTest.wav(16_000, AUDIO_BYTES);
+    byte[] json = objectMapper.writeValueAsBytes(MessageRequestDto.builder()
+        .type("audio")
+        .audioBase64(Base64.getEncoder().encodeToString(wav))
+        .build());
+
+    long base64 = 0;
+    long binary = 0;
+    for (int i = 0; i < 3; i++) {
+      base64 = allocated(() -> service.transcribe(objectMapper.readValue(json, MessageRequestDto.class).getAudioBase64()));
+      binary = allocated(() -> service.transcribe(new ByteArrayInputStream(wav)));
+    }
+
+    System.out.printf("audio %d MB: base64 JSON %d MB allocated, binary upload %d MB allocated (%.1fx less)%n",
+        wav.length >> 20, base64 >> 20, binary >> 20, (double) base64 / binary);
+    assertThat(binary * 2).isLessThan(base64);
+  }
+
+  private static long allocated(Callable<String> turn) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    turn.call();
+    return threads.getCurrentThreadAllocatedBytes() - before;
+  }
+}
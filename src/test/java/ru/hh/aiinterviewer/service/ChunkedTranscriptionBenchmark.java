@@ -0,0 +1,119 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.openai.OpenAiAudioTranscriptionModel;
+import org.springframework.ai.openai.api.OpenAiAudioApi;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.repository.TranscriptionCacheRepository;
+
+/**
+ * Latency of transcribing long answers in one request vs. in concurrent segments, against a local stub of the
+ * transcription endpoint whose latency grows with the audio length. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class ChunkedTranscriptionBenchmark {
+
+  private static final int SAMPLE_RATE = 16_000;
+  private static final long BASE_LATENCY_MS = 300;
+  private static final long LATENCY_MS_PER_AUDIO_SECOND = 20;
+
+  @Test
+  void chunked_vs_single_request() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/v1/audio/transcriptions", exchange -> {
+      long bodyBytes = exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+      long audioSeconds = bodyBytes / (SAMPLE_RATE * 2);
+      sleep(BASE_LATENCY_MS + audioSeconds * LATENCY_MS_PER_AUDIO_SECOND);
+      byte[] response = ("{\"text\":\"" + "word ".repeat((int) audioSeconds * 2) + "\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+    OpenAiAudioTranscriptionModel model = new OpenAiAudioTranscriptionModel(OpenAiAudioApi.builder()
+        .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+        .apiKey("test")
+        .build());
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(8, Thread.ofVirtual().factory())) {
+      elapsedMs(service(model, executor, true), speech(90));
+      for (int minutes : new int[]{1, 2, 5, 8}) {
+        byte[] wav = speech(minutes * 60);
+        long single = elapsedMs(service(model, executor, false), wav);
+        long chunked = elapsedMs(service(model, executor, true), wav);
+        System.out.printf("%2d min: single %5d ms, chunked %5d ms, speedup %.1fx%n", minutes, single, chunked,
+            (double) single / chunked);
+        if (minutes >= 2) {
+          assertThat(chunked).isLessThan(single);
+        }
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  private static TranscriptionService service(OpenAiAudioTranscriptionModel model, ExecutorService executor,
+                                              boolean chunking) {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setTranscriptionChunkingEnabled(chunking);
+    props.setTranscriptionCacheEnabled(false);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    return new TranscriptionService(model, new UpstreamLimiters(props, meterRegistry), new AudioSpooler(props),
+        new AudioPreprocessor(props, meterRegistry), props, executor,
+        new TranscriptionCache(props, mock(TranscriptionCacheRepository.class), meterRegistry));
+  }
+
+  private static long elapsedMs(TranscriptionService service, byte[] wav) {
+    long start = System.nanoTime();
+    assertThat(service.transcribe(new ByteArrayInputStream(wav))).isNotBlank();
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+
+  /**
+   * Tone bursts of 3-7 s separated by half-second pauses, roughly the rhythm of spoken sentences.
+   */
+  private static byte[] speech(int seconds) {
+    int samples = seconds * SAMPLE_RATE;
+    byte[] wav = AudioSpoolerTest.wav(SAMPLE_RATE, samples * 2);
+    ByteBuffer data = ByteBuffer.wrap(wav, 44, samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+    Random random = new Random(42);
+    int position = 0;
+    while (position < samples) {
+      int phrase = Math.min(samples - position, (3 + random.nextInt(5)) * SAMPLE_RATE);
+      for (int i = 0; i < phrase; i++) {
+        data.putShort((short) (8000 * Math.sin(2 * Math.PI * 220 * i / SAMPLE_RATE)));
+      }
+      int pause = Math.min(samples - position - phrase, SAMPLE_RATE / 2);
+      for (int i = 0; i < pause; i++) {
+        data.putShort((short) 0);
+      }
+      position += phrase + pause;
+    }
+    return wav;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.openai.api.OpenAiApi;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.ConversationSummary;
+import ru.hh.aiinterviewer.domain.model.MessageRole;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.ConversationSummaryRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+import ru.hh.aiinterviewer.llm.TokenUsage;
+
+public class ConversationSummarizerTest {
+
+  private static final OffsetDateTime START = OffsetDateTime.parse("2025-01-01T10:00:00Z");
+
+  private final UUID sessionId = UUID.randomUUID();
+  private ChatClient summaryClient;
+  private SessionMessageRepository messageRepository;
+  private ConversationSummaryRepository summaryRepository;
+  private TokenAccounting tokenAccounting;
+  private ConversationSummarizer summarizer;
+
+  @BeforeEach
+  void setup() {
+    summaryClient = mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    messageRepository = mock(SessionMessageRepository.class);
+    summaryRepository = mock(ConversationSummaryRepository.class);
+    tokenAccounting = mock(TokenAccounting.class);
+    ApplicationProperties props = new ApplicationProperties();
+    props.setChatSummaryKeepMessages(4);
+    summarizer = new ConversationSummarizer(props, summaryClient, messageRepository, summaryRepository,
+        Executors.newVirtualThreadPerTaskExecutor(), tokenAccounting, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void folds_all_but_the_recent_messages_into_the_previous_summary() {
+    ConversationSummary previous = ConversationSummary.builder()
+        .sessionId(sessionId).summary("Вопрос 1: JVM, ответ полный").coveredUntil(START).coveredMessages(2).build();
+    when(summaryRepository.findById(sessionId)).thenReturn(Optional.of(previous));
+    List<SessionMessage> messages = messages(10);
+    when(messageRepository.findBySessionIdAndCreatedAtAfterOrderByCreatedAtAsc(sessionId, START)).thenReturn(messages);
+    OpenAiApi.Usage usage = new OpenAiApi.Usage(40, 900, 940, new OpenAiApi.Usage.PromptTokensDetails(0, 0), null);
+    when(summaryClient.prompt().user(any(String.class)).call().chatResponse()).thenReturn(new ChatResponse(
+        List.of(new Generation(new AssistantMessage("Вопросы 1-4"))),
+        ChatResponseMetadata.builder().usage(new DefaultUsage(900, 40, 940, usage)).build()));
+
+    summarizer.compact(sessionId);
+
+    verify(summaryClient.prompt()).user(contains("Вопрос 1: JVM, ответ полный"));
+    verify(summaryClient.prompt()).user(contains("Кандидат: ответ 5"));
+    ArgumentCaptor<ConversationSummary> saved = ArgumentCaptor.forClass(ConversationSummary.class);
+    verify(summaryRepository).save(saved.capture());
+    assertThat(saved.getValue().getSummary()).isEqualTo("Вопросы 1-4");
+    assertThat(saved.getValue().getCoveredUntil()).isEqualTo(messages.get(5).getCreatedAt());
+    assertThat(saved.getValue().getCoveredMessages()).isEqualTo(8);
+    verify(tokenAccounting).record(sessionId, new TokenUsage(900, 40, 0), false);
+  }
+
+  @Test
+  void does_not_split_messages_with_the_same_timestamp() {
+    List<SessionMessage> messages = messages(5);
+    // The message kept verbatim shares its timestamp with the one before it
+    messages.get(1).setCreatedAt(messages.get(0).getCreatedAt());
+    when(summaryRepository.findById(sessionId)).thenReturn(Optional.empty());
+    when(messageRepository.findBySessionIdAndCreatedAtAfterOrderByCreatedAtAsc(eq(sessionId), any())).thenReturn(messages);
+
+    summarizer.compact(sessionId);
+
+    verify(summaryRepository, never()).save(any());
+  }
+
+  private List<SessionMessage> messages(int count) {
+    List<SessionMessage> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      boolean question = i % 2 == 0;
+      messages.add(SessionMessage.builder()
+          .sessionId(sessionId)
+          .role(question ? MessageRole.ASSISTANT : MessageRole.USER)
+          .content(question ? "вопрос " + i : "ответ " + i)
+          .createdAt(START.plusMinutes(i + 1))
+          .build());
+    }
+    return messages;
+  }
+}
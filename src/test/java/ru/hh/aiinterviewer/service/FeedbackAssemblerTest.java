@@ -0,0 +1,155 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.UserMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.AnswerAssessment;
+import ru.hh.aiinterviewer.domain.model.MessageTrigger;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.repository.AnswerAssessmentRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
+
+public class FeedbackAssemblerTest {
+
+  private final UUID sessionId = UUID.randomUUID();
+  private ChatClient feedbackClient;
+  private AnswerAssessor answerAssessor;
+  private AnswerAssessmentRepository assessmentRepository;
+  private SessionMessageRepository messageRepository;
+  private SimpleMeterRegistry meterRegistry;
+  private FeedbackAssembler assembler;
+
+  @BeforeEach
+  void setup() {
+    feedbackClient = mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    answerAssessor = mock(AnswerAssessor.class);
+    assessmentRepository = mock(AnswerAssessmentRepository.class);
+    messageRepository = mock(SessionMessageRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+    assembler = new FeedbackAssembler(new ApplicationProperties(), feedbackClient, answerAssessor,
+        assessmentRepository, messageRepository, Executors.newVirtualThreadPerTaskExecutor(), meterRegistry);
+  }
+
+  @Test
+  void transcript_is_split_by_main_question() {
+    List<FeedbackAssembler.Segment> segments = FeedbackAssembler.segments(List.of(
+        assistant("Привет! Готовы начать?"),
+        user("Начать интервью"),
+        assistant("Вопрос 1/3 (Тема: JVM): что такое JIT?"),
+        user("Компиляция во время выполнения"),
+        assistant("А какие уровни компиляции бывают?"),
+        user("C1 и C2"),
+        assistant("Вопрос 2/3 (Тема: GC): как работает G1?"),
+        user("Регионы"),
+        assistant("Вопрос 3/3 (Тема: Kafka): как обеспечить exactly-once?"),
+        user("Обратная связь"),
+        assistant("Обратная связь: ...")));
+
+    assertThat(segments).extracting(FeedbackAssembler.Segment::questionNumber).containsExactly(1, 2);
+    assertThat(segments.getFirst().question()).isEqualTo("Вопрос 1/3 (Тема: JVM): что такое JIT?");
+    assertThat(segments.getFirst().answers()).isEqualTo("Компиляция во время выполнения\n\nC1 и C2");
+    assertThat(segments.get(1).messages()).hasSize(2);
+  }
+
+  @Test
+  void questions_without_assessments_are_scored_by_segment_before_the_reduce_call() {
+    Session session = Session.builder().id(sessionId).interviewPlan("PLAN").build();
+    when(answerAssessor.awaitPending(eq(sessionId), anyLong())).thenReturn(true);
+    when(assessmentRepository.findBySessionIdOrderByCreatedAtAsc(sessionId))
+        .thenReturn(List.of(assessment(2, "Знает G1")));
+    when(messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId)).thenReturn(List.of(
+        assistant("Вопрос 1/2 (Тема: JVM): что такое JIT?"),
+        user("Компиляция во время выполнения"),
+        assistant("Вопрос 2/2 (Тема: GC): как работает G1?"),
+        user("Регионы")));
+    when(answerAssessor.assessSegment(eq(sessionId), eq(1), any(), any(), any(), any()))
+        .thenReturn(Optional.of(assessment(1, "Знает JIT")));
+    when(feedbackClient.prompt().user(any(String.class)).advisors(Mockito.<Consumer>any())
+        .call().content()).thenReturn("Интервью завершено. ...");
+
+    Optional<String> feedback = assembler.assemble(session, MessageTrigger.COMPLETE);
+
+    assertThat(feedback).contains("Интервью завершено. ...");
+    verify(answerAssessor, never()).assessSegment(eq(sessionId), eq(2), any(), any(), any(), any());
+    verify(feedbackClient.prompt()).user(contains("Вопрос 1, оценка 7/10: Знает JIT\nВопрос 2, оценка 7/10: Знает G1"));
+    assertThat(meterRegistry.timer("feedback.phase.duration", "phase", "map").count()).isEqualTo(1);
+    assertThat(meterRegistry.timer("feedback.phase.duration", "phase", "reduce").count()).isEqualTo(1);
+  }
+
+  @Test
+  void stream_is_returned_before_pending_assessments_are_awaited() {
+    Session session = Session.builder().id(sessionId).interviewPlan("PLAN").build();
+    CountDownLatch scored = new CountDownLatch(1);
+    when(answerAssessor.isEnabled()).thenReturn(true);
+    when(answerAssessor.awaitPending(eq(sessionId), anyLong())).thenAnswer(inv -> scored.await(5, TimeUnit.SECONDS));
+    when(assessmentRepository.findBySessionIdOrderByCreatedAtAsc(sessionId))
+        .thenReturn(List.of(assessment(1, "Знает JIT")));
+    when(feedbackClient.prompt().user(any(String.class)).advisors(Mockito.<Consumer>any())
+        .stream().content()).thenReturn(Flux.just("Обратная ", "связь"));
+
+    Mono<Flux<String>> feedback = assembler.assembleStream(session, MessageTrigger.FEEDBACK);
+
+    verify(answerAssessor, never()).awaitPending(any(), anyLong());
+    Mono<List<String>> tokens = feedback.flatMapMany(Function.identity()).collectList();
+    scored.countDown();
+    assertThat(tokens.block(Duration.ofSeconds(5))).containsExactly("Обратная ", "связь");
+  }
+
+  @Test
+  void falls_back_to_the_interviewer_when_nothing_was_scored() {
+    Session session = Session.builder().id(sessionId).interviewPlan("PLAN").build();
+    when(answerAssessor.awaitPending(eq(sessionId), anyLong())).thenReturn(true);
+    when(messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId)).thenReturn(List.of(
+        assistant("Привет!"), user("Начать интервью")));
+
+    assertThat(assembler.assemble(session, MessageTrigger.FEEDBACK)).isEmpty();
+    verify(answerAssessor, never()).assessSegment(any(), anyInt(), any(), any(), any(), any());
+    assertThat(meterRegistry.counter("feedback.requests", "result", "fallback").count()).isEqualTo(1);
+  }
+
+  private AnswerAssessment assessment(int questionNumber, String summary) {
+    return AnswerAssessment.builder()
+        .sessionId(sessionId)
+        .questionNumber(questionNumber)
+        .answer("ответ")
+        .score(7)
+        .summary(summary)
+        .build();
+  }
+
+  private SessionMessage assistant(String content) {
+    return SessionMessage.newAssistantMessage(sessionId, content);
+  }
+
+  private SessionMessage user(String content) {
+    return SessionMessage.from(sessionId, new UserMessage(content));
+  }
+}
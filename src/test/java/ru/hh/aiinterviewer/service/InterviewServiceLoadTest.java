@@ -0,0 +1,94 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.hh.aiinterviewer.api.dto.MessageRequestDto;
+import ru.hh.aiinterviewer.api.dto.MessageResponseDto;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionStatus;
+import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+
+/**
+ * Concurrent turns must not be capped by the connection pool: every turn blocks inside the (stubbed) model call
+ * until all of them are in flight at once, which is only possible if none of them holds a pooled connection there.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.hikari.maximum-pool-size=2",
+    "spring.datasource.hikari.connection-timeout=1000"
+})
+@ActiveProfiles("test")
+public class InterviewServiceLoadTest {
+
+  private static final int POOL_SIZE = 2;
+  private static final int CONCURRENT_TURNS = POOL_SIZE * 4;
+
+  @Autowired
+  private InterviewService interviewService;
+
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @MockitoBean(name = "interviewerChatClient", answers = Answers.RETURNS_DEEP_STUBS)
+  private ChatClient interviewerChatClient;
+
+  @MockitoBean(name = "prepareInterviewPlanChatClient", answers = Answers.RETURNS_DEEP_STUBS)
+  private ChatClient prepareInterviewPlanChatClient;
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void concurrent_turns_exceed_connection_pool_size() throws Exception {
+    CountDownLatch allInFlight = new CountDownLatch(CONCURRENT_TURNS);
+    when(interviewerChatClient.prompt().system(anyString()).user(anyString())
+        .advisors(any(Consumer.class)).call().content())
+        .thenAnswer(inv -> {
+          allInFlight.countDown();
+          if (!allInFlight.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Model calls were serialized by the connection pool");
+          }
+          return "Вопрос 2/5 (Тема: X): ...?";
+        });
+
+    List<UUID> sessionIds = new ArrayList<>();
+    for (int i = 0; i < CONCURRENT_TURNS; i++) {
+      sessionIds.add(sessionRepository.save(Session.builder()
+          .status(SessionStatus.ONGOING)
+          .interviewPlan("PLAN")
+          .build()).getId());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_TURNS);
+    try {
+      List<Future<MessageResponseDto>> turns = new ArrayList<>();
+      for (UUID sessionId : sessionIds) {
+        MessageRequestDto request = MessageRequestDto.builder().type("text").message("ответ").build();
+        turns.add(executor.submit(() -> interviewService.processMessage(sessionId, request)));
+      }
+      for (Future<MessageResponseDto> turn : turns) {
+        assertThat(turn.get(30, TimeUnit.SECONDS).getMessage()).startsWith("Вопрос 2/5");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(allInFlight.getCount()).isZero();
+  }
+}
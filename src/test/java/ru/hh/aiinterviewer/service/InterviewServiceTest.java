@@ -4,32 +4,66 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.ChatClient.CallPromptResponseSpec;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.codec.ServerSentEvent;
 import java.util.function.Consumer;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import ru.hh.aiinterviewer.api.dto.CreateSessionRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageRequestDto;
 import ru.hh.aiinterviewer.api.dto.MessageResponseDto;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.MessageTrigger;
+import ru.hh.aiinterviewer.domain.model.Role;
 import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionMessage;
+import ru.hh.aiinterviewer.domain.model.SessionMode;
 import ru.hh.aiinterviewer.domain.model.SessionStatus;
+import ru.hh.aiinterviewer.domain.repository.InterviewPlanCacheRepository;
+import ru.hh.aiinterviewer.domain.repository.RoleRepository;
+import ru.hh.aiinterviewer.domain.repository.SessionMessageRepository;
 import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+import ru.hh.aiinterviewer.exception.InvalidStatusTransitionException;
 import ru.hh.aiinterviewer.exception.SessionCompletedException;
 
 public class InterviewServiceTest {
 
   private VacancyService vacancyService;
   private SessionRepository sessionRepository;
+  private SessionMessageRepository sessionMessageRepository;
   private ChatClient interviewerClient;
   private ChatClient preparePlanClient;
+  private ChatClient openingClient;
   private TranscriptionService transcriptionService;
+  private AnswerAssessor answerAssessor;
+  private FeedbackAssembler feedbackAssembler;
+  private SimpleMeterRegistry meterRegistry;
+  private RoleRepository roleRepository;
+  private PlanPool planPool;
   private InterviewService interviewService;
   private UUID sessionId;
   private Session session;
@@ -38,17 +72,38 @@ public class InterviewServiceTest {
   void setup() {
     vacancyService = mock(VacancyService.class);
     sessionRepository = mock(SessionRepository.class);
+    sessionMessageRepository = mock(SessionMessageRepository.class);
 
     interviewerClient = Mockito.mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
     preparePlanClient = Mockito.mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    openingClient = Mockito.mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
     transcriptionService = mock(TranscriptionService.class);
+    answerAssessor = mock(AnswerAssessor.class);
+    feedbackAssembler = mock(FeedbackAssembler.class);
+    meterRegistry = new SimpleMeterRegistry();
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    roleRepository = mock(RoleRepository.class);
+    planPool = new PlanPool(streamProps(), roleRepository, preparePlanClient, meterRegistry);
 
     interviewService = new InterviewService(
         vacancyService,
         sessionRepository,
+        sessionMessageRepository,
         interviewerClient,
         preparePlanClient,
-        transcriptionService
+        transcriptionService,
+        new StreamCancellationMetrics(meterRegistry),
+        new StreamReplayRegistry(streamProps()),
+        new TokenCoalescer(streamProps()),
+        new PlanCache(streamProps(), mock(InterviewPlanCacheRepository.class), meterRegistry, "test-model"),
+        planPool,
+        new PlanStreams(),
+        executor,
+        new OpeningTurnSpeculator(streamProps(), openingClient, sessionMessageRepository, executor, meterRegistry),
+        new TokenAccounting(sessionRepository, meterRegistry),
+        answerAssessor,
+        feedbackAssembler,
+        new PlanReviser(streamProps(), preparePlanClient, meterRegistry)
     );
 
     sessionId = UUID.randomUUID();
@@ -89,6 +144,177 @@ public class InterviewServiceTest {
     assertThat(session.getStatus()).isEqualTo(SessionStatus.ONGOING);
   }
 
+  @Test
+  void plans_for_the_same_role_are_reused_unless_a_fresh_one_is_requested() {
+    AtomicInteger generations = new AtomicInteger();
+    when(preparePlanClient.prompt().user(any(String.class)).call().content())
+        .thenAnswer(inv -> "PLAN " + generations.incrementAndGet());
+    ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+
+    interviewService.createSession(roleRequest("Java Developer", false));
+    interviewService.createSession(roleRequest("  java   developer ", false));
+    interviewService.createSession(roleRequest("Java Developer", true));
+
+    verify(sessionRepository, Mockito.times(3)).save(saved.capture());
+    assertThat(saved.getAllValues()).extracting(Session::getInterviewPlan).containsExactly("PLAN 1", "PLAN 1", "PLAN 2");
+  }
+
+  @Test
+  void pooled_plans_are_handed_out_once_and_not_cached() throws Exception {
+    AtomicInteger generations = new AtomicInteger();
+    when(preparePlanClient.prompt().user(any(String.class)).call().content())
+        .thenAnswer(inv -> "PLAN " + generations.incrementAndGet());
+    when(roleRepository.findAllByOrderByPopularityDesc(any(Pageable.class)))
+        .thenReturn(List.of(Role.builder().name("Java Developer").normalized("java developer").popularity(10).build()));
+    planPool.refill();
+    for (int i = 0; i < 100 && meterRegistry.get("plan.pool.depth").gauge().value() < 2; i++) {
+      Thread.sleep(20);
+    }
+    ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+
+    interviewService.createSession(roleRequest("Java Developer", false));
+    interviewService.createSession(roleRequest("Java Developer", false));
+    interviewService.createSession(roleRequest("Java Developer", false));
+
+    verify(sessionRepository, Mockito.times(3)).save(saved.capture());
+    assertThat(saved.getAllValues()).extracting(Session::getInterviewPlan).doesNotHaveDuplicates();
+    assertThat(meterRegistry.get("plan.pool.requests").tag("result", "hit").counter().count()).isGreaterThanOrEqualTo(2);
+  }
+
+  @Test
+  void async_session_streams_plan_and_becomes_planned() {
+    Sinks.Many<String> model = Sinks.many().unicast().onBackpressureBuffer();
+    when(preparePlanClient.prompt().user(any(String.class)).stream().content()).thenReturn(model.asFlux());
+    CreateSessionRequestDto request = roleRequest("Go Developer", false);
+    request.setAsync(true);
+
+    UUID id = interviewService.createSessionAsync(request);
+
+    ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+    verify(sessionRepository).save(saved.capture());
+    Session created = saved.getValue();
+    assertThat(created.getStatus()).isEqualTo(SessionStatus.PLANNING);
+    when(sessionRepository.findById(id)).thenReturn(Optional.of(created));
+    MessageRequestDto start = MessageRequestDto.builder().type("text").message("Начать интервью").build();
+    assertThatThrownBy(() -> interviewService.processMessage(id, start))
+        .isInstanceOf(InvalidStatusTransitionException.class);
+
+    Flux<String> plan = interviewService.streamPlan(id, null).map(ServerSentEvent::data);
+    model.tryEmitNext("1. Go");
+    model.tryEmitNext("routines");
+    model.tryEmitComplete();
+
+    assertThat(plan.collectList().block()).containsExactly("1. Go", "routines");
+    assertThat(created.getStatus()).isEqualTo(SessionStatus.PLANNED);
+    assertThat(created.getInterviewPlan()).isEqualTo("1. Goroutines");
+    // Once generation is over the stored plan is served, resuming after the given character offset
+    assertThat(interviewService.streamPlan(id, "3").map(ServerSentEvent::data).collectList().block())
+        .containsExactly("Goroutines");
+  }
+
+  @Test
+  void start_is_answered_from_the_opening_turn_speculated_for_the_revised_plan() {
+    when(preparePlanClient.prompt().user(any(String.class)).call().content()).thenReturn("PLAN 1");
+    when(preparePlanClient.prompt().system(any(String.class)).call().content()).thenReturn("PLAN 2");
+    when(openingClient.prompt().system(any(String.class)).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).call().content())
+        .thenReturn("Вопрос 1/5 (Тема: Kafka): ...?");
+    ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+
+    interviewService.createSession(roleRequest("Java Developer", false));
+    verify(sessionRepository).save(saved.capture());
+    Session created = saved.getValue();
+    when(sessionRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    interviewService.processMessage(created.getId(), MessageRequestDto.builder().type("text").message("добавь Kafka").build());
+    MessageResponseDto resp = interviewService.processMessage(created.getId(),
+        MessageRequestDto.builder().type("text").message("Начать интервью").build());
+
+    assertThat(resp.getMessage()).isEqualTo("Вопрос 1/5 (Тема: Kafka): ...?");
+    assertThat(created.getStatus()).isEqualTo(SessionStatus.ONGOING);
+    verifyNoInteractions(interviewerClient);
+    ArgumentCaptor<List<SessionMessage>> stored = ArgumentCaptor.forClass(List.class);
+    verify(sessionMessageRepository).saveAll(stored.capture());
+    assertThat(stored.getValue()).extracting(SessionMessage::getContent)
+        .containsExactly("Начать интервью", "Вопрос 1/5 (Тема: Kafka): ...?");
+    assertThat(meterRegistry.counter("opening.speculation.requests", "result", "hit").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("opening.speculation.discarded", "reason", "revised").count()).isEqualTo(1);
+  }
+
+  @Test
+  void hanging_opening_speculation_is_cancelled_and_start_asks_the_model() throws Exception {
+    when(preparePlanClient.prompt().user(any(String.class)).call().content()).thenReturn("PLAN 1");
+    CountDownLatch cancelled = new CountDownLatch(1);
+    when(openingClient.prompt().system(any(String.class)).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).call().content())
+        .thenAnswer(inv -> {
+          try {
+            Thread.sleep(60_000);
+          } catch (InterruptedException e) {
+            cancelled.countDown();
+          }
+          throw new IllegalStateException("interrupted");
+        });
+    when(interviewerClient.prompt().system(any(String.class)).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).call().content())
+        .thenReturn("Вопрос 1/5 (Тема: X): ...?");
+    ArgumentCaptor<Session> saved = ArgumentCaptor.forClass(Session.class);
+
+    interviewService.createSession(roleRequest("Java Developer", false));
+    verify(sessionRepository).save(saved.capture());
+    Session created = saved.getValue();
+    when(sessionRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    MessageResponseDto resp = interviewService.processMessage(created.getId(),
+        MessageRequestDto.builder().type("text").message("Начать интервью").build());
+
+    assertThat(resp.getMessage()).isEqualTo("Вопрос 1/5 (Тема: X): ...?");
+    assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(meterRegistry.counter("opening.speculation.discarded", "reason", "timeout").count()).isEqualTo(1);
+  }
+
+  @Test
+  void asked_questions_are_folded_out_of_the_next_interviewer_prompt() {
+    session.setStatus(SessionStatus.ONGOING);
+    session.updatePlan("""
+        ### Список вопросов для интервью
+        1. [легкий] (Тема: JVM) Что такое JIT?
+        2. [средний] (Тема: GC) Как работает G1?
+        3. [сложный] (Тема: Kafka) Как обеспечить exactly-once?
+        """);
+    session.advanceTo(1);
+    ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+    when(interviewerClient.prompt().system(prompts.capture()).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).call().content())
+        .thenReturn("Вопрос 2/3 (Тема: GC): как работает G1?", "Вопрос 3/3 (Тема: Kafka): ...?");
+
+    interviewService.processMessage(sessionId, MessageRequestDto.builder().type("text").message("JIT компилирует").build());
+    interviewService.processMessage(sessionId, MessageRequestDto.builder().type("text").message("регионы").build());
+
+    assertThat(session.getCurrentQuestion()).isEqualTo(3);
+    assertThat(prompts.getAllValues().get(0)).contains("Что такое JIT?");
+    assertThat(prompts.getAllValues().get(1)).doesNotContain("Что такое JIT?").contains("Уже заданы (не повторяй их): 1 (JVM)");
+    verify(answerAssessor).request(session, 1, "JIT компилирует");
+    verify(answerAssessor).request(session, 2, "регионы");
+  }
+
+  @Test
+  void finish_is_answered_with_feedback_assembled_from_assessments() {
+    session.setStatus(SessionStatus.ONGOING);
+    when(feedbackAssembler.assemble(session, MessageTrigger.COMPLETE))
+        .thenReturn(Optional.of("Интервью завершено. Итоговая оценка: 7/10"));
+
+    MessageResponseDto resp = interviewService.processMessage(sessionId,
+        MessageRequestDto.builder().type("text").message("Завершить интервью").build());
+
+    assertThat(resp.getMessage()).isEqualTo("Интервью завершено. Итоговая оценка: 7/10");
+    assertThat(resp.isInterviewComplete()).isTrue();
+    assertThat(session.getStatus()).isEqualTo(SessionStatus.COMPLETED);
+    verifyNoInteractions(interviewerClient);
+    ArgumentCaptor<List<SessionMessage>> stored = ArgumentCaptor.forClass(List.class);
+    verify(sessionMessageRepository).saveAll(stored.capture());
+    assertThat(stored.getValue()).extracting(SessionMessage::getContent)
+        .containsExactly(MessageTrigger.COMPLETE.getValue(), "Интервью завершено. Итоговая оценка: 7/10");
+  }
+
   @Test
   void completed_session_throws_410() {
     session.setStatus(SessionStatus.COMPLETED);
@@ -96,6 +322,61 @@ public class InterviewServiceTest {
     assertThatThrownBy(() -> interviewService.processMessage(sessionId, req))
         .isInstanceOf(SessionCompletedException.class);
   }
-}
 
+  @Test
+  void stream_relays_tokens_and_completes_session_on_trigger() {
+    session.setStatus(SessionStatus.FEEDBACK);
+    when(interviewerClient.prompt().system(any(String.class)).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).stream().chatResponse())
+        .thenReturn(Flux.just(chunk("Интервью "), chunk("завершено. "), chunk("Спасибо!"), new ChatResponse(List.of())));
+    MessageRequestDto req = MessageRequestDto.builder().type("text").message("Спасибо").build();
+
+    List<String> tokens = interviewService.processMessageStream(sessionId, req)
+        .map(ServerSentEvent::data)
+        .collectList()
+        .block();
 
+    assertThat(tokens).containsExactly("Интервью ", "завершено. ", "Спасибо!");
+    assertThat(session.getStatus()).isEqualTo(SessionStatus.COMPLETED);
+  }
+
+  @Test
+  void stream_cancel_persists_partial_answer_as_interrupted() {
+    session.setStatus(SessionStatus.ONGOING);
+    when(interviewerClient.prompt().system(any(String.class)).user(any(String.class))
+        .advisors(Mockito.<Consumer>any()).stream().chatResponse())
+        .thenReturn(Flux.concat(Flux.just(chunk("Вопрос "), chunk("2/5")), Flux.never()));
+    MessageRequestDto req = MessageRequestDto.builder().type("text").message("Мой ответ").build();
+
+    // take() cancels upstream the same way a dropped SSE connection does
+    interviewService.processMessageStream(sessionId, req).take(2).blockLast();
+
+    ArgumentCaptor<SessionMessage> saved = ArgumentCaptor.forClass(SessionMessage.class);
+    verify(sessionMessageRepository, timeout(1000)).save(saved.capture());
+    assertThat(saved.getValue().getContent()).isEqualTo("Вопрос 2/5");
+    assertThat(saved.getValue().isInterrupted()).isTrue();
+    assertThat(meterRegistry.counter("chat.stream.cancelled").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("chat.stream.tokens.saved").count()).isPositive();
+  }
+
+  private static CreateSessionRequestDto roleRequest(String roleName, boolean freshPlan) {
+    return CreateSessionRequestDto.builder()
+        .mode(SessionMode.ROLE)
+        .roleName(roleName)
+        .numQuestions(5)
+        .freshPlan(freshPlan)
+        .build();
+  }
+
+  private static ApplicationProperties streamProps() {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setStreamResumeGraceMs(0);
+    props.setStreamCoalesceWindowMs(0);
+    props.setOpeningSpeculationAwaitMs(1000);
+    return props;
+  }
+
+  private static ChatResponse chunk(String text) {
+    return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+  }
+}
@@ -0,0 +1,124 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.InterviewPlanCacheEntry;
+import ru.hh.aiinterviewer.domain.repository.InterviewPlanCacheRepository;
+
+public class PlanCacheTest {
+
+  private ApplicationProperties props;
+  private InterviewPlanCacheRepository repository;
+  private SimpleMeterRegistry meterRegistry;
+  private PlanCache cache;
+
+  @BeforeEach
+  void setup() {
+    props = new ApplicationProperties();
+    repository = mock(InterviewPlanCacheRepository.class);
+    when(repository.findById(any())).thenReturn(Optional.empty());
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new PlanCache(props, repository, meterRegistry, "gpt-4o");
+  }
+
+  @Test
+  void copies_of_a_vacancy_differing_in_case_width_and_whitespace_share_a_key() {
+    String key = cache.key("Java-разработчик\nSpring Boot, Kafka", 5, null);
+
+    assertThat(cache.key("  JAVA-разработчик   spring boot,\tKafka ", 5, "  ")).isEqualTo(key);
+    assertThat(cache.key("Ｊａｖａ-разработчик Spring Boot, Kafka", 5, null)).isEqualTo(key);
+    assertThat(cache.key("Java-разработчик Spring Boot, Kafka", 6, null)).isNotEqualTo(key);
+    assertThat(cache.key("Java-разработчик Spring Boot, Kafka", 5, "больше про Kafka")).isNotEqualTo(key);
+  }
+
+  @Test
+  void key_changes_with_the_plan_model() {
+    PlanCache otherModel = new PlanCache(props, repository, new SimpleMeterRegistry(), "gpt-4o-mini");
+
+    assertThat(otherModel.key("Java-разработчик", 5, null)).isNotEqualTo(cache.key("Java-разработчик", 5, null));
+  }
+
+  @Test
+  void expired_database_rows_are_regenerated() {
+    props.setPlanCacheTtlMs(60_000);
+    String fresh = cache.key("fresh", 5, null);
+    String stale = cache.key("stale", 5, null);
+    when(repository.findById(fresh)).thenReturn(Optional.of(entry(fresh, OffsetDateTime.now().minusSeconds(10))));
+    when(repository.findById(stale)).thenReturn(Optional.of(entry(stale, OffsetDateTime.now().minusMinutes(5))));
+
+    assertThat(cache.get("fresh", 5, null, () -> "generated")).isEqualTo("stored");
+    assertThat(cache.get("stale", 5, null, () -> "generated")).isEqualTo("generated");
+
+    assertThat(meterRegistry.get("plan.cache.requests").tag("tier", "database").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("plan.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    verify(repository).deleteCreatedBefore(any());
+  }
+
+  @Test
+  void blank_plans_are_not_cached() {
+    assertThat(cache.get("Java", 5, null, () -> " ")).isBlank();
+    assertThat(cache.get("Java", 5, null, () -> "PLAN")).isEqualTo("PLAN");
+
+    verify(repository, never()).save(InterviewPlanCacheEntry.builder().key(cache.key("Java", 5, null)).plan(" ").build());
+  }
+
+  @Test
+  void concurrent_misses_share_one_generation() throws Exception {
+    CountDownLatch waiting = new CountDownLatch(1);
+    AtomicInteger generations = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> cache.get("Java", 5, null, () -> {
+        generations.incrementAndGet();
+        await(waiting);
+        return "PLAN";
+      }));
+      // The second request arrives while the first one is generating
+      while (generations.get() == 0) {
+        Thread.onSpinWait();
+      }
+      Future<String> second = executor.submit(() -> cache.get("Java", 5, null, () -> {
+        generations.incrementAndGet();
+        return "OTHER PLAN";
+      }));
+      Thread.sleep(100);
+      waiting.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("PLAN");
+      assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("PLAN");
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(generations).hasValue(1);
+    assertThat(meterRegistry.get("plan.cache.requests").tag("tier", "in_flight").counter().count()).isEqualTo(1);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static InterviewPlanCacheEntry entry(String key, OffsetDateTime createdAt) {
+    return InterviewPlanCacheEntry.builder().key(key).plan("stored").createdAt(createdAt).build();
+  }
+}
@@ -0,0 +1,102 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.data.domain.Pageable;
+import ru.hh.aiinterviewer.api.dto.CreateSessionRequestDto;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.Role;
+import ru.hh.aiinterviewer.domain.model.SessionMode;
+import ru.hh.aiinterviewer.domain.repository.RoleRepository;
+
+public class PlanPoolTest {
+
+  private final AtomicInteger generations = new AtomicInteger();
+  private ApplicationProperties props;
+  private RoleRepository roleRepository;
+  private ChatClient chatClient;
+  private SimpleMeterRegistry meterRegistry;
+  private PlanPool pool;
+
+  @BeforeEach
+  void setup() {
+    props = new ApplicationProperties();
+    props.setPlanPoolDepth(2);
+    props.setPlanPoolQuestionCounts(List.of(5, 10));
+    props.setPlanPoolMaxGenerationsPerMinute(100);
+    roleRepository = mock(RoleRepository.class);
+    when(roleRepository.findAllByOrderByPopularityDesc(any(Pageable.class)))
+        .thenReturn(List.of(Role.builder().name("Java Developer").normalized("java developer").popularity(10).build()));
+    chatClient = mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    when(chatClient.prompt().user(any(String.class)).call().content())
+        .thenAnswer(inv -> "PLAN " + generations.incrementAndGet());
+    meterRegistry = new SimpleMeterRegistry();
+    pool = new PlanPool(props, roleRepository, chatClient, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  void popular_roles_get_ready_plans_that_are_handed_out_once_and_replaced() throws Exception {
+    pool.refill();
+    awaitDepth(4);
+
+    String first = pool.take(request("java  developer", 5, null)).orElseThrow();
+    String second = pool.take(request("Java Developer", 5, null)).orElseThrow();
+    assertThat(first).isNotEqualTo(second);
+    // taking plans schedules their replacements
+    awaitDepth(4);
+    assertThat(generations.get()).isEqualTo(6);
+
+    assertThat(pool.take(request("Java Developer", 5, "больше про SQL"))).isEmpty();
+    assertThat(pool.take(request("Java Developer", 7, null))).isEmpty();
+    assertThat(pool.take(request("Go Developer", 5, null))).isEmpty();
+    assertThat(meterRegistry.get("plan.pool.hit.ratio").gauge().value()).isEqualTo(2.0 / 3);
+  }
+
+  @Test
+  void generations_stay_within_the_rate_budget() throws Exception {
+    props.setPlanPoolMaxGenerationsPerMinute(3);
+    pool.shutdown();
+    meterRegistry = new SimpleMeterRegistry();
+    pool = new PlanPool(props, roleRepository, chatClient, meterRegistry);
+
+    pool.refill();
+    awaitDepth(3);
+    pool.refill();
+    Thread.sleep(100);
+
+    assertThat(generations.get()).isEqualTo(3);
+    assertThat(meterRegistry.get("plan.pool.generations").tag("result", "throttled").counter().count()).isPositive();
+  }
+
+  private void awaitDepth(int depth) throws InterruptedException {
+    for (int i = 0; i < 100 && meterRegistry.get("plan.pool.depth").gauge().value() < depth; i++) {
+      Thread.sleep(20);
+    }
+    assertThat(meterRegistry.get("plan.pool.depth").gauge().value()).isEqualTo(depth);
+  }
+
+  private static CreateSessionRequestDto request(String roleName, int numQuestions, String planPreferences) {
+    return CreateSessionRequestDto.builder()
+        .mode(SessionMode.ROLE)
+        .roleName(roleName)
+        .numQuestions(numQuestions)
+        .planPreferences(planPreferences)
+        .build();
+  }
+}
@@ -0,0 +1,65 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.ai.chat.client.ChatClient;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.llm.PlanPatch;
+
+public class PlanReviserTest {
+
+  private static final String PLAN = """
+      ### Анализ вакансии
+      Java-разработчик.
+
+      ### Список вопросов для интервью
+      1. [легкий] (Тема: Java Core) Чем отличается ArrayList от LinkedList?
+      2. [средний] (Тема: Spring) Как работает @Transactional?
+      """;
+
+  private ChatClient planClient;
+  private SimpleMeterRegistry meterRegistry;
+  private PlanReviser reviser;
+  private Session session;
+
+  @BeforeEach
+  void setup() {
+    planClient = mock(ChatClient.class, Answers.RETURNS_DEEP_STUBS);
+    meterRegistry = new SimpleMeterRegistry();
+    reviser = new PlanReviser(new ApplicationProperties(), planClient, meterRegistry);
+    session = Session.builder().id(UUID.randomUUID()).build();
+    session.updatePlan(PLAN);
+  }
+
+  @Test
+  void correction_of_a_question_is_applied_as_a_patch() {
+    when(planClient.prompt().user(any(String.class)).call().entity(PlanPatch.class)).thenReturn(new PlanPatch(false,
+        List.of(new PlanPatch.Edit(PlanPatch.Action.REPLACE, 2, "[средний] (Тема: Kafka) Как работают партиции?"))));
+
+    String revised = reviser.revise(session, "замени Spring на Kafka");
+
+    assertThat(revised).contains("Java-разработчик.", "1. [легкий] (Тема: Java Core)",
+        "2. [средний] (Тема: Kafka) Как работают партиции?").doesNotContain("@Transactional");
+    assertThat(meterRegistry.counter("plan.revisions", "mode", "patch").count()).isEqualTo(1);
+  }
+
+  @Test
+  void plan_is_regenerated_when_the_model_asks_for_a_full_revision() {
+    when(planClient.prompt().user(any(String.class)).call().entity(PlanPatch.class))
+        .thenReturn(new PlanPatch(true, List.of()));
+    when(planClient.prompt().system(any(String.class)).call().content()).thenReturn("NEW PLAN");
+
+    assertThat(reviser.revise(session, "сделай акцент на архитектуре в анализе")).isEqualTo("NEW PLAN");
+    assertThat(meterRegistry.counter("plan.revisions", "mode", "full").count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,111 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.StreamNotResumableException;
+
+public class StreamReplayRegistryTest {
+
+  private ApplicationProperties props;
+  private UUID sessionId;
+
+  @BeforeEach
+  void setup() {
+    props = new ApplicationProperties();
+    props.setStreamResumeGraceMs(60_000);
+    sessionId = UUID.randomUUID();
+  }
+
+  @Test
+  void reconnect_resumes_after_last_event_without_new_generation() {
+    StreamReplayRegistry registry = new StreamReplayRegistry(props);
+    Sinks.Many<String> model = Sinks.many().unicast().onBackpressureBuffer();
+    AtomicInteger generations = new AtomicInteger();
+    Flux<String> source = model.asFlux().doOnSubscribe(s -> generations.incrementAndGet());
+
+    // the client drops after two chunks, the model keeps generating
+    List<ServerSentEvent<String>> first = registry.open(sessionId, source).take(2).collectList()
+        .doOnSubscribe(s -> {
+          model.tryEmitNext("a");
+          model.tryEmitNext("b");
+        })
+        .block();
+    model.tryEmitNext("c");
+    model.tryEmitComplete();
+
+    List<String> resumed = registry.resume(sessionId, first.get(1).id())
+        .map(ServerSentEvent::data)
+        .collectList()
+        .block();
+
+    assertThat(first.get(1).id()).endsWith(":1");
+    assertThat(resumed).containsExactly("c");
+    assertThat(generations).hasValue(1);
+  }
+
+  @Test
+  void evicted_or_foreign_stream_is_not_resumable() throws InterruptedException {
+    props.setStreamReplayMaxChunks(2);
+    StreamReplayRegistry registry = new StreamReplayRegistry(props);
+    List<ServerSentEvent<String>> events = registry.open(sessionId, Flux.just("a", "b", "c", "d"))
+        .collectList()
+        .block();
+    String firstId = events.get(0).id();
+
+    // chunk 1 has already been pushed out of the two-chunk buffer
+    assertThatThrownBy(() -> registry.resume(sessionId, firstId))
+        .isInstanceOf(StreamNotResumableException.class);
+    assertThatThrownBy(() -> registry.resume(UUID.randomUUID(), events.get(2).id()))
+        .isInstanceOf(StreamNotResumableException.class);
+    assertThatThrownBy(() -> registry.resume(sessionId, "garbage"))
+        .isInstanceOf(StreamNotResumableException.class);
+    assertThat(registry.resume(sessionId, events.get(2).id()).map(ServerSentEvent::data).collectList().block())
+        .containsExactly("d");
+
+    props.setStreamReplayTtlMs(1);
+    StreamReplayRegistry expiring = new StreamReplayRegistry(props);
+    expiring.open(sessionId, Flux.just("a")).blockLast();
+    Thread.sleep(5);
+    expiring.open(sessionId, Flux.just("b")).blockLast();
+    assertThat(expiring.size()).isEqualTo(1);
+  }
+
+  @Test
+  void cancellation_racing_a_chunk_still_terminates_the_subscriber() {
+    props.setStreamReplayTtlMs(1);
+    StreamReplayRegistry registry = new StreamReplayRegistry(props);
+    Sinks.Many<String> model = Sinks.many().unicast().onBackpressureBuffer();
+
+    // While the first chunk is being delivered, opening another turn expires this one from another thread
+    Flux<String> received = registry.open(sessionId, model.asFlux())
+        .map(ServerSentEvent::data)
+        .doOnNext(chunk -> {
+          sleep(5);
+          Thread.ofVirtual().start(() -> registry.open(sessionId, Flux.never()));
+          sleep(100);
+        })
+        .doOnSubscribe(s -> model.tryEmitNext("a"));
+
+    assertThatThrownBy(() -> received.collectList().block(Duration.ofSeconds(5)))
+        .isInstanceOf(StreamNotResumableException.class);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+
+/**
+ * Per-token overhead of the SSE output path with and without {@link TokenCoalescer}. A synthetic model flux emits
+ * short Russian deltas; each frame is built as a {@link ServerSentEvent}, encoded the way the SSE writer does and
+ * written to {@code /dev/null} with one write syscall per frame, like a servlet flush after every event.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class TokenCoalescerBenchmark {
+
+  private static final int TOKENS = 200_000;
+  private static final int ROUNDS = 5;
+  private static final String[] DELTAS = {"Рас", "ска", "жи", "те", " о", " себе", ",", " по", "жал", "уйс", "та", "."};
+
+  @Test
+  void per_token_overhead() throws IOException {
+    ApplicationProperties props = new ApplicationProperties();
+    TokenCoalescer coalescer = new TokenCoalescer(props);
+
+    Result raw = null;
+    Result coalesced = null;
+    for (int i = 0; i < ROUNDS; i++) {
+      raw = run("raw", model());
+      coalesced = run("coalesced", coalescer.coalesce(model()));
+    }
+
+    raw.print();
+    coalesced.print();
+    assertThat(coalesced.frames).isLessThan(raw.frames);
+    assertThat(coalesced.nanosPerToken()).isLessThan(raw.nanosPerToken());
+  }
+
+  private static Flux<String> model() {
+    return Flux.range(0, TOKENS).map(i -> DELTAS[i % DELTAS.length]);
+  }
+
+  private static Result run(String name, Flux<String> frames) throws IOException {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    AtomicLong frameCount = new AtomicLong();
+
+    try (OutputStream socket = new FileOutputStream("/dev/null")) {
+      long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+      long start = System.nanoTime();
+      frames.map(text -> ServerSentEvent.builder(text).id("turn:" + frameCount.get()).build())
+          .doOnNext(event -> {
+            try {
+              socket.write(("id:" + event.id() + "\ndata:" + event.data() + "\n\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            frameCount.incrementAndGet();
+          })
+          .blockLast();
+      long elapsed = System.nanoTime() - start;
+      long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+      return new Result(name, elapsed, allocated, frameCount.get());
+    }
+  }
+
+  private record Result(String name, long elapsedNanos, long allocatedBytes, long frames) {
+
+    double nanosPerToken() {
+      return (double) elapsedNanos / TOKENS;
+    }
+
+    void print() {
+      System.out.printf("%-10s %8.1f ns/token %8.1f B/token %8d frames%n",
+          name, nanosPerToken(), (double) allocatedBytes / TOKENS, frames);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+
+public class TokenCoalescerTest {
+
+  @Test
+  void first_token_is_immediate_and_rest_is_batched_by_size() {
+    TokenCoalescer coalescer = new TokenCoalescer(props(10_000, 6));
+
+    List<String> frames = coalescer.coalesce(Flux.just("Во", "пр", "ос", " 1", "/5", "?")).collectList().block();
+
+    // "Во" goes out alone, then batches of at least 6 bytes (Cyrillic is 2 bytes per char), the tail on completion
+    assertThat(frames).containsExactly("Во", "прос", " 1/5?");
+  }
+
+  @Test
+  void pending_batch_is_flushed_when_window_elapses() throws InterruptedException {
+    TokenCoalescer coalescer = new TokenCoalescer(props(500, 1024));
+    Sinks.Many<String> model = Sinks.many().unicast().onBackpressureBuffer();
+    List<String> frames = new CopyOnWriteArrayList<>();
+    coalescer.coalesce(model.asFlux()).subscribe(frames::add);
+
+    model.tryEmitNext("a");
+    model.tryEmitNext("b");
+    model.tryEmitNext("c");
+    assertThat(frames).containsExactly("a");
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (frames.size() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(frames).containsExactly("a", "bc");
+  }
+
+  @Test
+  void zero_window_disables_coalescing() {
+    TokenCoalescer coalescer = new TokenCoalescer(props(0, 64));
+
+    assertThat(coalescer.coalesce(Flux.just("a", "b")).collectList().block()).containsExactly("a", "b");
+  }
+
+  private static ApplicationProperties props(long windowMs, int maxBytes) {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setStreamCoalesceWindowMs(windowMs);
+    props.setStreamCoalesceMaxBytes(maxBytes);
+    return props;
+  }
+}
@@ -0,0 +1,129 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.model.TranscriptionCacheEntry;
+import ru.hh.aiinterviewer.domain.repository.TranscriptionCacheRepository;
+import ru.hh.aiinterviewer.service.TranscriptionCache.Transcript;
+
+public class TranscriptionCacheTest {
+
+  private ApplicationProperties props;
+  private TranscriptionCacheRepository repository;
+  private SimpleMeterRegistry meterRegistry;
+  private TranscriptionCache cache;
+
+  @BeforeEach
+  void setup() {
+    props = new ApplicationProperties();
+    repository = mock(TranscriptionCacheRepository.class);
+    when(repository.findById(any())).thenReturn(Optional.empty());
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new TranscriptionCache(props, repository, meterRegistry);
+  }
+
+  @Test
+  void repeated_audio_is_served_from_memory_and_failures_are_not_cached() {
+    AtomicInteger calls = new AtomicInteger();
+
+    assertThat(cache.get("a", () -> new Transcript("text " + calls.incrementAndGet(), 12))).isEqualTo("text 1");
+    assertThat(cache.get("a", () -> new Transcript("text " + calls.incrementAndGet(), 12))).isEqualTo("text 1");
+    assertThatThrownBy(() -> cache.get("b", () -> {
+      throw new IllegalStateException("upstream failed");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(cache.get("b", () -> new Transcript("text b", 3))).isEqualTo("text b");
+
+    verify(repository, times(2)).save(any());
+    assertThat(meterRegistry.get("transcription.cache.requests").tag("tier", "memory").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("transcription.cache.saved.seconds").counter().count()).isEqualTo(12);
+    assertThat(meterRegistry.get("transcription.cache.hit.ratio").gauge().value()).isEqualTo(1.0 / 4);
+  }
+
+  @Test
+  void memory_tier_evicts_least_recently_used_entries_by_size() {
+    props.setTranscriptionCacheDbEnabled(false);
+    props.setTranscriptionCacheMaxBytes(1000);
+    // A fresh registry: gauges registered by the cache from setup would keep pointing at that instance
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new TranscriptionCache(props, repository, meterRegistry);
+    String text = "x".repeat(150);
+
+    cache.get("a", () -> new Transcript(text, 1));
+    cache.get("b", () -> new Transcript(text, 1));
+    cache.get("a", () -> new Transcript("recomputed", 1));
+    cache.get("c", () -> new Transcript(text, 1));
+
+    // b was the least recently used one when c did not fit next to a and b
+    assertThat(cache.get("a", () -> new Transcript("recomputed", 1))).isEqualTo(text);
+    assertThat(cache.get("b", () -> new Transcript("recomputed", 1))).isEqualTo("recomputed");
+    assertThat(meterRegistry.get("transcription.cache.memory.bytes").gauge().value()).isLessThanOrEqualTo(1000);
+    verify(repository, never()).findById(any());
+  }
+
+  @Test
+  void database_tier_is_shared_between_instances_and_honours_ttl() {
+    props.setTranscriptionCacheTtlMs(60_000);
+    when(repository.findById("fresh")).thenReturn(Optional.of(entry("fresh", OffsetDateTime.now().minusSeconds(10))));
+    when(repository.findById("stale")).thenReturn(Optional.of(entry("stale", OffsetDateTime.now().minusMinutes(5))));
+
+    assertThat(cache.get("fresh", () -> new Transcript("recomputed", 1))).isEqualTo("stored");
+    assertThat(cache.get("stale", () -> new Transcript("recomputed", 1))).isEqualTo("recomputed");
+    assertThat(meterRegistry.get("transcription.cache.requests").tag("tier", "database").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void concurrent_requests_for_the_same_audio_share_one_upstream_call() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> cache.get("a", () -> {
+          calls.incrementAndGet();
+          await(release);
+          return new Transcript("text", 5);
+        })));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<String> result : results) {
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("text");
+      }
+    }
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(meterRegistry.get("transcription.cache.saved.seconds").counter().count()).isEqualTo(35);
+  }
+
+  private static TranscriptionCacheEntry entry(String key, OffsetDateTime createdAt) {
+    return TranscriptionCacheEntry.builder().key(key).text("stored").audioSeconds(7).createdAt(createdAt).build();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,22 +1,52 @@
 package ru.hh.aiinterviewer.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.audio.transcription.AudioTranscription;
+import org.springframework.ai.audio.transcription.AudioTranscriptionPrompt;
+import org.springframework.ai.audio.transcription.AudioTranscriptionResponse;
 import org.springframework.ai.openai.OpenAiAudioTranscriptionModel;
 import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.domain.repository.TranscriptionCacheRepository;
 
 public class TranscriptionServiceTest {
 
+  private OpenAiAudioTranscriptionModel model;
+  private ExecutorService executor;
+  private SimpleMeterRegistry meterRegistry;
+  private TranscriptionCache transcriptionCache;
   private TranscriptionService transcriptionService;
 
   @BeforeEach
   void setup() {
-    OpenAiAudioTranscriptionModel model = mock(OpenAiAudioTranscriptionModel.class);
-    ApplicationProperties props = new ApplicationProperties();
-    transcriptionService = new TranscriptionService(model, props);
+    model = mock(OpenAiAudioTranscriptionModel.class);
+    executor = Executors.newFixedThreadPool(4);
+    meterRegistry = new SimpleMeterRegistry();
+    ApplicationProperties props = properties();
+    transcriptionCache = new TranscriptionCache(props, mock(TranscriptionCacheRepository.class), meterRegistry);
+    transcriptionService = service(props);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
   }
 
   @Test
@@ -25,6 +55,94 @@ public class TranscriptionServiceTest {
     assertThatThrownBy(() -> transcriptionService.transcribe(base64))
         .isInstanceOf(ru.hh.aiinterviewer.exception.UnsupportedAudioFormatException.class);
   }
-}
 
+  @Test
+  void long_answer_is_cut_at_pauses_and_transcribed_concurrently() {
+    // four 28 s phrases separated by 2 s pauses; phrase k is a constant level of 1000 * (k + 1)
+    int rate = 16_000;
+    ByteBuffer pcm = ByteBuffer.allocate(4 * 30 * rate * 2).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < 4 * 30 * rate; i++) {
+      int second = i / rate;
+      pcm.putShort(second % 30 < 28 ? (short) (1000 * (second / 30 + 1)) : 0);
+    }
+    byte[] wav = AudioSpoolerTest.wav(rate, pcm.capacity());
+    System.arraycopy(pcm.array(), 0, wav, 44, pcm.capacity());
+
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(model.call(any(AudioTranscriptionPrompt.class))).thenAnswer(inv -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      int phrase = firstLevel(inv.<AudioTranscriptionPrompt>getArgument(0).getInstructions().getContentAsByteArray()) / 1000 - 1;
+      Thread.sleep(100);
+      inFlight.decrementAndGet();
+      // each transcript repeats the last words of the previous segment, as an overlap would
+      String text = (phrase > 0 ? "end " + (phrase - 1) + ". " : "") + "Phrase " + phrase + " end " + phrase + ".";
+      return new AudioTranscriptionResponse(new AudioTranscription(text));
+    });
+
+    String text = transcriptionService.transcribe(new ByteArrayInputStream(wav));
+
+    assertThat(text).isEqualTo("Phrase 0 end 0. Phrase 1 end 1. Phrase 2 end 2. Phrase 3 end 3.");
+    assertThat(maxInFlight.get()).isGreaterThan(1);
+  }
+
+  @Test
+  void overlapping_words_are_stitched_once() {
+    assertThat(TranscriptStitcher.stitch(List.of("I worked on the", "on the billing service,", "Service, mostly Java")))
+        .isEqualTo("I worked on the billing service, mostly Java");
+    assertThat(TranscriptStitcher.stitch(List.of("yes", "", "yes it was"))).isEqualTo("yes it was");
+  }
+
+  @Test
+  void changed_preprocessing_settings_miss_the_cache() {
+    int rate = 16_000;
+    ByteBuffer pcm = ByteBuffer.allocate(rate * 2).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < rate; i++) {
+      pcm.putShort((short) 2000);
+    }
+    byte[] wav = AudioSpoolerTest.wav(rate, pcm.capacity());
+    System.arraycopy(pcm.array(), 0, wav, 44, pcm.capacity());
+    when(model.call(any(AudioTranscriptionPrompt.class)))
+        .thenReturn(new AudioTranscriptionResponse(new AudioTranscription("Да")));
+
+    transcriptionService.transcribe(new ByteArrayInputStream(wav));
+    transcriptionService.transcribe(new ByteArrayInputStream(wav));
+    ApplicationProperties louderThreshold = properties();
+    louderThreshold.setAudioVadThresholdDbfs(-30);
+    service(louderThreshold).transcribe(new ByteArrayInputStream(wav));
+
+    verify(model, times(2)).call(any(AudioTranscriptionPrompt.class));
+  }
+
+  @Test
+  void cache_key_covers_model_and_pipeline_settings() {
+    assertThat(transcriptionService.keyInput("abc"))
+        .isEqualTo("abc|gpt-4o-mini-transcribe|0.0|1|pre:16000:-45.0:300|chunks:60:30:500");
+
+    ApplicationProperties raw = properties();
+    raw.setAudioPreprocessingEnabled(false);
+    raw.setTranscriptionChunkingEnabled(false);
+    assertThat(service(raw).keyInput("abc")).isEqualTo("abc|gpt-4o-mini-transcribe|0.0|1|raw|whole");
+  }
+
+  private static ApplicationProperties properties() {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setTranscriptionCacheDbEnabled(false);
+    return props;
+  }
 
+  private TranscriptionService service(ApplicationProperties props) {
+    return new TranscriptionService(model, new UpstreamLimiters(props, meterRegistry), new AudioSpooler(props),
+        new AudioPreprocessor(props, meterRegistry), props, executor, transcriptionCache);
+  }
+
+  private static int firstLevel(byte[] wav) {
+    ByteBuffer buffer = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+    for (int offset = 44; offset < wav.length; offset += 2) {
+      if (buffer.getShort(offset) != 0) {
+        return buffer.getShort(offset);
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,36 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hh.aiinterviewer.config.ApplicationProperties;
+import ru.hh.aiinterviewer.exception.UpstreamBusyException;
+
+public class UpstreamLimitersTest {
+
+  private UpstreamLimiters limiters;
+
+  @BeforeEach
+  void setup() {
+    ApplicationProperties props = new ApplicationProperties();
+    props.setTranscriptionMaxConcurrency(1);
+    props.setUpstreamAcquireTimeoutMs(50);
+    limiters = new UpstreamLimiters(props, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void rejects_when_upstream_is_saturated() {
+    limiters.acquire(Upstream.TRANSCRIPTION);
+
+    assertThatThrownBy(() -> limiters.call(Upstream.TRANSCRIPTION, () -> "text"))
+        .isInstanceOf(UpstreamBusyException.class);
+    // other upstreams are limited independently
+    assertThat(limiters.call(Upstream.LLM, () -> "answer")).isEqualTo("answer");
+
+    limiters.release(Upstream.TRANSCRIPTION);
+    assertThat(limiters.call(Upstream.TRANSCRIPTION, () -> "text")).isEqualTo("text");
+  }
+}
@@ -3,6 +3,7 @@ package ru.hh.aiinterviewer.service;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,7 +15,8 @@ public class VacancyServiceTest {
 
   @BeforeEach
   void setup() {
-    vacancyService = new VacancyService(new ApplicationProperties());
+    ApplicationProperties props = new ApplicationProperties();
+    vacancyService = new VacancyService(props, new UpstreamLimiters(props, new SimpleMeterRegistry()));
   }
 
   @Test
@@ -0,0 +1,241 @@
+package ru.hh.aiinterviewer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.hh.aiinterviewer.domain.model.Session;
+import ru.hh.aiinterviewer.domain.model.SessionStatus;
+import ru.hh.aiinterviewer.domain.repository.SessionRepository;
+
+/**
+ * Text turns through Tomcat, {@link InterviewService#processMessage} and a real Hikari pool on Tomcat's platform
+ * thread pool and with {@code spring.threads.virtual.enabled}. The model call is stubbed to a fixed latency behind
+ * the {@link UpstreamLimiters} LLM permit. Every run is recorded with JFR and fails if a virtual thread blocked while
+ * pinned to its carrier. The database is the H2 of the test profile, so the PostgreSQL driver is not covered.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class VirtualThreadsBenchmark {
+
+  private static final int TOMCAT_MAX_THREADS = 200;
+  private static final int CLIENTS = 1000;
+  private static final int WARMUP_TURNS = 500;
+  private static final int TURNS = 3000;
+  private static final long LLM_LATENCY_MS = 200;
+
+  private static final String TOMCAT_THREADS = "server.tomcat.threads.max=" + TOMCAT_MAX_THREADS;
+  private static final String LLM_PERMITS = "app.llm-max-concurrency=" + CLIENTS;
+  private static final String POOL_SIZE = "spring.datasource.hikari.maximum-pool-size=10";
+  // Like the component test's addFilters = false: the turns, not the security filters, are measured
+  private static final String NO_SECURITY = "spring.autoconfigure.exclude="
+      + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+      + "org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration,"
+      + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration";
+
+  private static final Map<String, Result> results = new LinkedHashMap<>();
+
+  @AfterAll
+  static void report() {
+    System.out.printf("%d CPUs%n", Runtime.getRuntime().availableProcessors());
+    results.forEach((mode, result) -> System.out.printf(
+        "%-9s %7.0f turns/s  p50 %5d ms  p99 %5d ms  max model calls in flight %4d  pinned %d%n",
+        mode, result.throughput(), result.percentile(50), result.percentile(99), result.maxInFlight(), result.pinned()));
+    Result platform = results.get("platform");
+    Result virtual = results.get("virtual");
+    if (platform != null && virtual != null) {
+      System.out.printf("speedup: %.2fx%n", virtual.throughput() / platform.throughput());
+    }
+  }
+
+  @Nested
+  @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+      properties = {"spring.threads.virtual.enabled=false", TOMCAT_THREADS, LLM_PERMITS, POOL_SIZE, NO_SECURITY})
+  @ActiveProfiles("test")
+  class PlatformThreads extends Turns {
+
+    @Test
+    void turns() throws Exception {
+      run("platform");
+    }
+  }
+
+  @Nested
+  @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+      properties = {"spring.threads.virtual.enabled=true", TOMCAT_THREADS, LLM_PERMITS, POOL_SIZE, NO_SECURITY})
+  @ActiveProfiles("test")
+  class VirtualThreads extends Turns {
+
+    @Test
+    void turns() throws Exception {
+      run("virtual");
+    }
+  }
+
+  abstract class Turns {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UpstreamLimiters upstreamLimiters;
+
+    @MockitoBean(name = "interviewerChatClient", answers = Answers.RETURNS_DEEP_STUBS)
+    private ChatClient interviewerChatClient;
+
+    @MockitoBean(name = "prepareInterviewPlanChatClient", answers = Answers.RETURNS_DEEP_STUBS)
+    private ChatClient prepareInterviewPlanChatClient;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    void run(String mode) throws Exception {
+      when(interviewerChatClient.prompt().system(anyString()).user(anyString())
+          .advisors(any(Consumer.class)).call().content())
+          .thenAnswer(inv -> upstreamLimiters.call(Upstream.LLM, () -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+              Thread.sleep(LLM_LATENCY_MS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return "Вопрос 2/5 (Тема: X): ...?";
+          }));
+
+      turns(sessions(WARMUP_TURNS));
+      maxInFlight.set(0);
+      List<UUID> sessions = sessions(TURNS);
+
+      try (Recording recording = new Recording()) {
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+        recording.start();
+        long start = System.nanoTime();
+        long[] latencies = turns(sessions);
+        long elapsed = System.nanoTime() - start;
+        recording.stop();
+
+        List<RecordedEvent> pinned = pinnedEvents(recording);
+        results.put(mode, new Result(elapsed, latencies, maxInFlight.get(), pinned.size()));
+        assertThat(pinned).as("virtual threads pinned while blocking:%n%s", describe(pinned)).isEmpty();
+      }
+    }
+
+    private List<UUID> sessions(int count) {
+      List<UUID> sessionIds = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        sessionIds.add(sessionRepository.save(Session.builder()
+            .status(SessionStatus.ONGOING)
+            .interviewPlan("PLAN")
+            .build()).getId());
+      }
+      return sessionIds;
+    }
+
+    /**
+     * Clients are platform threads in both modes, so they never compete with the server for carrier threads.
+     *
+     * @return the latency of every turn, ms
+     */
+    private long[] turns(List<UUID> sessionIds) throws Exception {
+      ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+      try {
+        List<Future<Long>> turns = new ArrayList<>(sessionIds.size());
+        for (UUID sessionId : sessionIds) {
+          turns.add(clients.submit(() -> turn(sessionId)));
+        }
+        long[] latencies = new long[turns.size()];
+        for (int i = 0; i < latencies.length; i++) {
+          latencies[i] = turns.get(i).get();
+        }
+        return latencies;
+      } finally {
+        clients.shutdownNow();
+      }
+    }
+
+    private long turn(UUID sessionId) throws Exception {
+      HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/sessions/" + sessionId + "/messages"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"text\",\"message\":\"ответ\"}"))
+          .build();
+      long start = System.nanoTime();
+      HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+      return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private List<RecordedEvent> pinnedEvents(Recording recording) throws Exception {
+      Path file = Files.createTempFile("virtual-threads-benchmark", ".jfr");
+      try {
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    private String describe(List<RecordedEvent> pinned) {
+      return pinned.stream()
+          .limit(5)
+          .map(event -> event.getStackTrace() == null ? "(no stack trace)" : event.getStackTrace().getFrames().stream()
+              .limit(15)
+              .map(frame -> "  at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                  + ":" + frame.getLineNumber())
+              .collect(Collectors.joining("\n")))
+          .collect(Collectors.joining("\n\n"));
+    }
+  }
+
+  private record Result(long elapsedNanos, long[] latencies, int maxInFlight, int pinned) {
+
+    double throughput() {
+      return latencies.length / (elapsedNanos / 1e9);
+    }
+
+    long percentile(int percentile) {
+      long[] sorted = latencies.clone();
+      Arrays.sort(sorted);
+      return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+  }
+}